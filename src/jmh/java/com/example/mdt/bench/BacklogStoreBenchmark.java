@@ -0,0 +1,109 @@
+package com.example.mdt.bench;
+
+import com.example.mdt.infrastructure.adapter.backlog.BacklogProperties;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogRecord;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Backlog con {@code records} mensajes pendientes (payload SCAN de 50 CSN):
+ * alta de un mensaje, apertura (recuento de pendientes) y drenado completo
+ * en lotes como el catch-up.
+ */
+@State(Scope.Benchmark)
+public class BacklogStoreBenchmark {
+
+    private static final int DRAIN_BATCH = 2000;
+
+    @Param({"10000", "100000"})
+    int records;
+
+    private byte[] payload;
+    private Path dir;
+    private BacklogStore store;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        payload = ScanFixtures.payload(50);
+        dir = Files.createTempDirectory("backlog-bench");
+        store = open(dir);
+        for (int i = 0; i < records; i++) {
+            store.enqueue(payload, "db_unavailable");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean enqueue() {
+        return store.enqueue(payload, "db_unavailable");
+    }
+
+    /** Reabrir el log: valida la cola del último segmento y cuenta los pendientes. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long reopen() {
+        store.close();
+        store = open(dir);
+        return store.depth();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long drainAll() {
+        long drained = 0;
+        List<BacklogRecord> batch;
+        while (!(batch = store.readBatch(DRAIN_BATCH)).isEmpty()) {
+            store.commitAll(batch);
+            drained += batch.size();
+        }
+        return drained;
+    }
+
+    private static BacklogStore open(Path dir) {
+        BacklogProperties props = new BacklogProperties();
+        props.setEnabled(true);
+        props.setDir(dir.toString());
+        return new BacklogStore(props);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.mdt.bench;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.gateway.MetadataGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.Scan;
+import com.example.mdt.domain.usecase.ProcessScanUseCase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProcessScanUseCase#process} sin base de datos: metadata en un mapa y
+ * un gateway que solo cuenta filas. Mide validación + construcción de detecciones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProcessScanBenchmark {
+
+    @Param({"1", "50", "500"})
+    int csns;
+
+    private ProcessScanUseCase useCase;
+    private Scan scan;
+
+    static final class InMemoryMetadata implements MetadataGateway {
+        private final Map<String, Long> lectores = Map.of(ScanFixtures.DEVICE, 101L);
+
+        @Override
+        public Optional<Long> findLectorIdByCodigo(String codigo) {
+            return Optional.ofNullable(lectores.get(codigo));
+        }
+
+        @Override
+        public boolean existsUbicacionId(Long id) {
+            return id == 99L;
+        }
+    }
+
+    static final class CountingGateway implements DeteccionesGateway {
+        long rows;
+
+        @Override
+        public void save(Deteccion d) {
+            rows++;
+        }
+
+        @Override
+        public int saveAll(List<Deteccion> detecciones) {
+            rows += detecciones.size();
+            return detecciones.size();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        useCase = new ProcessScanUseCase(new CountingGateway(), new InMemoryMetadata());
+        scan = new Scan("SCAN", ScanFixtures.STAGE, ScanFixtures.DEVICE, "ABDDEE", "1.4.2", ScanFixtures.csns(csns));
+    }
+
+    @Benchmark
+    public int process() {
+        return useCase.process(scan);
+    }
+}
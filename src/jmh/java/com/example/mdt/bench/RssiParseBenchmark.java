@@ -0,0 +1,38 @@
+package com.example.mdt.bench;
+
+import com.example.mdt.domain.usecase.ProcessScanUseCase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** {@link ProcessScanUseCase#parseRssiFromCsn} por CSN. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RssiParseBenchmark {
+
+    private static final int N = 1024;
+
+    private String[] csns;
+
+    @Setup
+    public void setup() {
+        csns = ScanFixtures.csns(N).toArray(new String[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void parse(Blackhole bh) {
+        for (String csn : csns) {
+            bh.consume(ProcessScanUseCase.parseRssiFromCsn(csn));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mdt.bench;
+
+import com.example.mdt.domain.model.Scan;
+import com.example.mdt.infrastructure.adapter.codec.ScanPayloadDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Decodificación del payload SCAN tal como llega por MQTT. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScanDecodeBenchmark {
+
+    @Param({"1", "50", "500"})
+    int csns;
+
+    private final ScanPayloadDecoder decoder = new ScanPayloadDecoder();
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = ScanFixtures.payload(csns);
+    }
+
+    @Benchmark
+    public Scan decode() throws IOException {
+        return decoder.decode(payload);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mdt.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/** Payloads SCAN representativos: EPC de 24 hex con RSSI en los 2 últimos. */
+final class ScanFixtures {
+
+    static final String DEVICE = "101-AB";
+    static final String STAGE = "99";
+
+    private ScanFixtures() {}
+
+    static List<String> csns(int n) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(String.format("E280%016X%02X", rnd.nextLong(), 0x30 + rnd.nextInt(0x40)));
+        }
+        return out;
+    }
+
+    static byte[] payload(int n) {
+        StringBuilder sb = new StringBuilder(64 + n * 30);
+        sb.append("{\"DATATYPE\":\"SCAN\",\"OBJECT\":{\"STAGE\":\"").append(STAGE)
+          .append("\",\"DEVICE\":\"").append(DEVICE)
+          .append("\",\"MACHINE\":\"ABDDEE\",\"VERSION\":\"1.4.2\",\"CSN\":[");
+        List<String> csns = csns(n);
+        for (int i = 0; i < csns.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(csns.get(i)).append('"');
+        }
+        sb.append("]}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.mdt.loadtest;
+
+import java.util.Arrays;
+
+/** Muestras de latencia en nanosegundos; percentiles exactos al final de la corrida. */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1 << 16];
+    private int size;
+
+    synchronized void record(long nanos) {
+        if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+        samples[size++] = nanos;
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted);
+    }
+
+    record Snapshot(long[] sorted) {
+        int count() { return sorted.length; }
+
+        /** Percentil p (0..100) en milisegundos; 0 sin muestras. */
+        double percentileMs(double p) {
+            if (sorted.length == 0) return 0;
+            int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, idx))] / 1_000_000.0;
+        }
+
+        double maxMs() { return sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0; }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.mdt.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parámetros del arnés ({@code --load.*}); el resto de argumentos se pasa tal
+ * cual a Spring, p.ej. {@code --ingest.write-behind.enabled=true}.
+ */
+record LoadOptions(
+        int readers,
+        double ratePerReader,
+        int durationSeconds,
+        int warmupSeconds,
+        int drainSeconds,
+        int csnMin,
+        int csnMax,
+        int tagsPerReader,
+        double reread,
+        int publishers,
+        String topic
+) {
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> m = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--load.")) continue;
+            int eq = a.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected --load.<name>=<value>: " + a);
+            m.put(a.substring("--load.".length(), eq), a.substring(eq + 1));
+        }
+        LoadOptions o = new LoadOptions(
+                intOf(m, "readers", 100),
+                doubleOf(m, "rate", 1.0),
+                intOf(m, "duration-seconds", 60),
+                intOf(m, "warmup-seconds", 10),
+                intOf(m, "drain-seconds", 30),
+                intOf(m, "csn-min", 1),
+                intOf(m, "csn-max", 60),
+                intOf(m, "tags-per-reader", 300),
+                doubleOf(m, "reread", 0.8),
+                intOf(m, "publishers", 4),
+                m.getOrDefault("topic", "mdt/pass"));
+        if (!m.isEmpty()) {
+            throw new IllegalArgumentException("Unknown load options: " + m.keySet());
+        }
+        if (o.readers < 1 || o.publishers < 1 || o.ratePerReader <= 0 || o.durationSeconds < 1
+                || o.csnMin < 1 || o.csnMax < o.csnMin || o.tagsPerReader < o.csnMax
+                || o.reread < 0 || o.reread > 1) {
+            throw new IllegalArgumentException("Invalid load options: " + o);
+        }
+        return o;
+    }
+
+    private static int intOf(Map<String, String> m, String key, int def) {
+        String v = m.remove(key);
+        return v == null ? def : Integer.parseInt(v.trim());
+    }
+
+    private static double doubleOf(Map<String, String> m, String key, double def) {
+        String v = m.remove(key);
+        return v == null ? def : Double.parseDouble(v.trim());
+    }
+}
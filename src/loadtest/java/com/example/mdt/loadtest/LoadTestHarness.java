@@ -0,0 +1,192 @@
+package com.example.mdt.loadtest;
+
+import com.example.mdt.application.MainApplication;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import com.hivemq.embedded.EmbeddedHiveMQ;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Arnés de carga extremo a extremo, sin red ni servicios externos.
+ *
+ * Levanta en el mismo proceso un broker MQTT5 (HiveMQ CE embebido) y una H2
+ * en modo MariaDB con el esquema de {@code db/loadtest}, siembra ubicaciones y
+ * lectores, arranca la aplicación real ({@link MainApplication}, con el
+ * {@code MqttListenerService} de siempre) apuntando a ambos y la carga con una
+ * {@link ReaderFleet}. Al terminar imprime mensajes/s, detecciones/s y los
+ * percentiles de latencia hasta el ACK.
+ *
+ * <pre>
+ * gradle loadTest -PloadArgs="--load.readers=200 --load.duration-seconds=60 --ingest.gateway=jdbc"
+ * </pre>
+ */
+public final class LoadTestHarness {
+
+    private static final String DB_URL =
+            "jdbc:h2:mem:mdt;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final int READERS_PER_UBICACION = 10;
+
+    private LoadTestHarness() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions opts = LoadOptions.parse(args);
+        int port = freePort();
+        String brokerUrl = "tcp://127.0.0.1:" + port;
+
+        EmbeddedHiveMQ broker = startBroker(port);
+        ConfigurableApplicationContext app = null;
+        int exit = 0;
+        try {
+            List<Long> stages = new ArrayList<>();
+            List<String> devices = seedDatabase(opts.readers(), stages);
+
+            app = startApplication(brokerUrl, opts.topic(), args);
+            awaitDb(app.getBean(DbHealthService.class), 60_000);
+
+            try (ReaderFleet fleet = new ReaderFleet(opts, brokerUrl, devices, stages)) {
+                fleet.connect();
+                if (!fleet.awaitConsumer(60_000)) {
+                    throw new IllegalStateException("Consumer did not ACK the probe SCAN within 60s");
+                }
+                System.out.printf(Locale.ROOT, "Load: %d readers x %.2f SCAN/s, CSN %d..%d, reread %.2f, warmup %ds, measure %ds%n",
+                        opts.readers(), opts.ratePerReader(), opts.csnMin(), opts.csnMax(), opts.reread(),
+                        opts.warmupSeconds(), opts.durationSeconds());
+                fleet.run();
+                int unanswered = fleet.awaitOutstanding(opts.drainSeconds() * 1000L);
+                long rows = new JdbcTemplate(dataSource())
+                        .queryForObject("SELECT COUNT(*) FROM detecciones_tags", Long.class);
+                report(fleet, unanswered, rows);
+                if (unanswered > 0 || fleet.ackedOk.sum() == 0) exit = 1;
+            }
+        } finally {
+            if (app != null) app.close();
+            broker.stop().join();
+        }
+        System.exit(exit);
+    }
+
+    private static EmbeddedHiveMQ startBroker(int port) throws IOException {
+        Path base = Files.createTempDirectory("mdt-loadtest-hivemq");
+        Path conf = Files.createDirectories(base.resolve("conf"));
+        Files.writeString(conf.resolve("config.xml"), """
+                <?xml version="1.0"?>
+                <hivemq>
+                  <listeners>
+                    <tcp-listener><port>%d</port><bind-address>127.0.0.1</bind-address></tcp-listener>
+                  </listeners>
+                  <mqtt>
+                    <receive-maximum><server-receive-maximum>65535</server-receive-maximum></receive-maximum>
+                    <queued-messages><max-queue-size>1000000</max-queue-size></queued-messages>
+                  </mqtt>
+                  <persistence><mode>in-memory</mode></persistence>
+                  <anonymous-usage-statistics><enabled>false</enabled></anonymous-usage-statistics>
+                </hivemq>
+                """.formatted(port));
+        EmbeddedHiveMQ broker = EmbeddedHiveMQ.builder()
+                .withConfigurationFolder(conf)
+                .withDataFolder(Files.createDirectories(base.resolve("data")))
+                .withExtensionsFolder(Files.createDirectories(base.resolve("extensions")))
+                .build();
+        broker.start().join();
+        return broker;
+    }
+
+    /** Esquema vía Flyway y un lector por DEVICE ("0001-LT", ...), diez por ubicación. */
+    private static List<String> seedDatabase(int readers, List<Long> stages) {
+        DriverManagerDataSource ds = dataSource();
+        Flyway.configure().dataSource(ds).locations("classpath:db/loadtest").load().migrate();
+
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        List<String> devices = new ArrayList<>(readers);
+        int ubicaciones = (readers + READERS_PER_UBICACION - 1) / READERS_PER_UBICACION;
+        for (int u = 1; u <= ubicaciones; u++) {
+            jdbc.update("INSERT INTO ubicaciones (id, nombre) VALUES (?, ?)", u, "Zona " + u);
+        }
+        for (int i = 0; i < readers; i++) {
+            String codigo = String.format("%04d-LT", i + 1);
+            long ubicacion = i / READERS_PER_UBICACION + 1;
+            jdbc.update("INSERT INTO lectores_uhf (codigo, descripcion, ubicacion_id) VALUES (?, ?, ?)",
+                    codigo, "Lector de carga " + (i + 1), ubicacion);
+            devices.add(codigo);
+            stages.add(ubicacion);
+        }
+        return devices;
+    }
+
+    private static ConfigurableApplicationContext startApplication(String brokerUrl, String topic, String[] args) {
+        System.setProperty("spring.datasource.url", DB_URL);
+        System.setProperty("spring.datasource.username", "sa");
+        System.setProperty("spring.datasource.password", "");
+        System.setProperty("spring.datasource.driver-class-name", "org.h2.Driver");
+        System.setProperty("flyway.locations", "classpath:db/loadtest");
+        // H2 no tiene particiones por rango
+        System.setProperty("db.partitions.enabled", "false");
+        System.setProperty("mqtt.broker-url", brokerUrl);
+        System.setProperty("mqtt.client-id", "mdt-loadtest-consumer");
+        System.setProperty("mqtt.topic-pass", topic);
+        System.setProperty("mqtt.topic-ack", "loadtest/ack");
+        System.setProperty("spring.main.web-application-type", "none");
+        System.setProperty("logging.level.com.example.mdt", "WARN");
+
+        List<String> springArgs = new ArrayList<>();
+        for (String a : args) {
+            if (!a.startsWith("--load.")) springArgs.add(a);
+        }
+        return SpringApplication.run(MainApplication.class, springArgs.toArray(String[]::new));
+    }
+
+    private static void awaitDb(DbHealthService db, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!db.isAvailable()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Database not available after " + timeoutMs + " ms");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static void report(ReaderFleet fleet, int unanswered, long rows) {
+        double seconds = fleet.measureWindowNanos() / 1e9;
+        LatencyRecorder.Snapshot lat = fleet.latency.snapshot();
+        Map<String, Long> nacks = new TreeMap<>();
+        fleet.nacks.forEach((reason, n) -> nacks.put(reason, n.sum()));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n==== mdt ingest load test ====\n");
+        sb.append(String.format(Locale.ROOT, "window            %.1f s%n", seconds));
+        sb.append(String.format(Locale.ROOT, "sent              %d (%.1f msg/s)%n", fleet.sent.sum(), fleet.sent.sum() / seconds));
+        sb.append(String.format(Locale.ROOT, "acked ok          %d (%.1f msg/s)%n", fleet.ackedOk.sum(), fleet.ackedOk.sum() / seconds));
+        sb.append(String.format(Locale.ROOT, "detections        %d (%.1f rows/s)%n", fleet.inserted.sum(), fleet.inserted.sum() / seconds));
+        sb.append(String.format(Locale.ROOT, "nacks             %d %s%n", nacks.values().stream().mapToLong(Long::longValue).sum(), nacks));
+        sb.append(String.format(Locale.ROOT, "publish errors    %d%n", fleet.publishErrors.sum()));
+        sb.append(String.format(Locale.ROOT, "unanswered        %d%n", unanswered));
+        sb.append(String.format(Locale.ROOT, "rows in DB        %d%n", rows));
+        sb.append(String.format(Locale.ROOT, "ack latency ms    p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f (n=%d)%n",
+                lat.percentileMs(50), lat.percentileMs(90), lat.percentileMs(99), lat.percentileMs(99.9),
+                lat.maxMs(), lat.count()));
+        System.out.print(sb);
+    }
+
+    private static DriverManagerDataSource dataSource() {
+        return new DriverManagerDataSource(DB_URL, "sa", "");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.mdt.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flota simulada de lectores UHF.
+ *
+ * Cada lector tiene su población de tags (EPC fijo, RSSI base estable) y en
+ * cada SCAN vuelve a leer una fracción {@code reread} de los tags del SCAN
+ * anterior y completa con tags nuevos hasta un CSN de entre csn-min y csn-max.
+ * Los SCAN salen por {@code publishers} clientes MQTT5 con Response Topic
+ * propio y la secuencia como Correlation Data, así cada ACK se empareja con
+ * su envío para medir la latencia.
+ */
+final class ReaderFleet implements AutoCloseable {
+
+    private static final int INFLIGHT_RETRY_SLEEP_MS = 1;
+
+    private final LoadOptions opts;
+    private final String brokerUrl;
+    private final List<String> devices;
+    private final List<Long> stages;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<MqttAsyncClient> clients = new ArrayList<>();
+    private final List<String> ackTopics = new ArrayList<>();
+    private final AtomicLong seq = new AtomicLong();
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    /** Inicio de la ventana medida; los envíos anteriores son calentamiento. */
+    private volatile long measureFromNanos = Long.MAX_VALUE;
+    private volatile long measureToNanos = Long.MAX_VALUE;
+
+    final LongAdder sent = new LongAdder();
+    final LongAdder acked = new LongAdder();
+    final LongAdder ackedOk = new LongAdder();
+    final LongAdder inserted = new LongAdder();
+    final LongAdder publishErrors = new LongAdder();
+    final Map<String, LongAdder> nacks = new ConcurrentHashMap<>();
+    final LatencyRecorder latency = new LatencyRecorder();
+
+    ReaderFleet(LoadOptions opts, String brokerUrl, List<String> devices, List<Long> stages) {
+        this.opts = opts;
+        this.brokerUrl = brokerUrl;
+        this.devices = devices;
+        this.stages = stages;
+    }
+
+    void connect() throws MqttException {
+        for (int p = 0; p < opts.publishers(); p++) {
+            String ackTopic = "loadtest/ack/" + p;
+            MqttAsyncClient c = new MqttAsyncClient(brokerUrl, "loadtest-pub-" + p, new MemoryPersistence());
+            c.setCallback(new AckCallback());
+            MqttConnectionOptions o = new MqttConnectionOptions();
+            o.setCleanStart(true);
+            o.setReceiveMaximum(65535);
+            c.connect(o).waitForCompletion(10_000);
+            c.subscribe(ackTopic, 1).waitForCompletion(10_000);
+            clients.add(c);
+            ackTopics.add(ackTopic);
+        }
+    }
+
+    /**
+     * Publica un SCAN de sondeo hasta recibir su ACK: el consumidor está
+     * conectado, suscrito y con la DB disponible.
+     */
+    boolean awaitConsumer(long timeoutMs) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            long id = publish(0, scanPayload(devices.get(0), stages.get(0), List.of("E2800000000000000000" + "40")));
+            long wait = System.currentTimeMillis() + 1000;
+            while (System.currentTimeMillis() < wait) {
+                if (!pending.containsKey(id)) return true;
+                Thread.sleep(20);
+            }
+            pending.remove(id);
+        }
+        return false;
+    }
+
+    /** Lanza un hilo virtual por lector y bloquea hasta el final de la carga. */
+    void run() throws InterruptedException {
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(opts.warmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(opts.durationSeconds());
+        measureFromNanos = warmupEnd;
+        measureToNanos = end;
+
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / opts.ratePerReader());
+        List<Thread> threads = new ArrayList<>(devices.size());
+        for (int i = 0; i < devices.size(); i++) {
+            int reader = i;
+            threads.add(Thread.ofVirtual().name("reader-" + i).start(() -> simulate(reader, start, end, periodNanos)));
+        }
+        for (Thread t : threads) t.join();
+    }
+
+    /** Espera los ACK que falten de la ventana medida; devuelve cuántos quedaron sin respuesta. */
+    int awaitOutstanding(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline && !pending.isEmpty()) {
+            Thread.sleep(100);
+        }
+        return pending.size();
+    }
+
+    long measureWindowNanos() { return measureToNanos - measureFromNanos; }
+
+    private void simulate(int reader, long start, long end, long periodNanos) {
+        SplittableRandom rnd = new SplittableRandom(reader * 7919L + 17);
+        Tag[] tags = tagsFor(reader, rnd);
+        String device = devices.get(reader);
+        long stage = stages.get(reader);
+        int publisher = reader % clients.size();
+
+        List<Tag> previous = List.of();
+        // desfase inicial para que los lectores no publiquen todos a la vez
+        long next = start + (long) (rnd.nextDouble() * periodNanos);
+        while (true) {
+            long now = System.nanoTime();
+            if (next >= end) return;
+            if (next > now) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(next - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            List<Tag> current = nextScan(tags, previous, rnd);
+            List<String> csns = new ArrayList<>(current.size());
+            for (Tag t : current) {
+                int rssi = Math.max(0, Math.min(0xFF, t.baseRssi + rnd.nextInt(-3, 4)));
+                csns.add(t.epc + String.format("%02X", rssi));
+            }
+            try {
+                publish(publisher, scanPayload(device, stage, csns));
+            } catch (Exception e) {
+                publishErrors.increment();
+            }
+            previous = current;
+            next += periodNanos;
+        }
+    }
+
+    /** Relecturas del SCAN anterior más tags nuevos al azar, sin repetir. */
+    private List<Tag> nextScan(Tag[] tags, List<Tag> previous, SplittableRandom rnd) {
+        int size = rnd.nextInt(opts.csnMin(), opts.csnMax() + 1);
+        List<Tag> out = new ArrayList<>(size);
+        for (Tag t : previous) {
+            if (out.size() >= size) break;
+            if (rnd.nextDouble() < opts.reread()) {
+                t.mark = true;
+                out.add(t);
+            }
+        }
+        int guard = 0;
+        while (out.size() < size && guard++ < size * 8) {
+            Tag t = tags[rnd.nextInt(tags.length)];
+            if (!t.mark) {
+                t.mark = true;
+                out.add(t);
+            }
+        }
+        for (Tag t : out) t.mark = false;
+        return out;
+    }
+
+    private Tag[] tagsFor(int reader, SplittableRandom rnd) {
+        Tag[] tags = new Tag[opts.tagsPerReader()];
+        for (int j = 0; j < tags.length; j++) {
+            long serial = ((long) reader << 32) | j;
+            tags[j] = new Tag(String.format("E280%016X", serial), 0x30 + rnd.nextInt(0x40));
+        }
+        return tags;
+    }
+
+    private byte[] scanPayload(String device, long stage, List<String> csns) {
+        StringBuilder sb = new StringBuilder(128 + csns.size() * 26);
+        sb.append("{\"DATATYPE\":\"SCAN\",\"OBJECT\":{\"STAGE\":\"").append(stage)
+          .append("\",\"DEVICE\":\"").append(device)
+          .append("\",\"MACHINE\":\"LOADTEST\",\"VERSION\":\"1.0.0\",\"CSN\":[");
+        for (int i = 0; i < csns.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(csns.get(i)).append('"');
+        }
+        sb.append("]}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long publish(int publisher, byte[] payload) throws Exception {
+        long id = seq.incrementAndGet();
+        MqttMessage msg = new MqttMessage(payload);
+        msg.setQos(1);
+        MqttProperties props = new MqttProperties();
+        props.setResponseTopic(ackTopics.get(publisher));
+        props.setCorrelationData(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+        msg.setProperties(props);
+
+        long now = System.nanoTime();
+        pending.put(id, now);
+        if (now >= measureFromNanos) sent.increment();
+        MqttAsyncClient c = clients.get(publisher);
+        while (true) {
+            try {
+                c.publish(opts.topic(), msg);
+                return id;
+            } catch (MqttException e) {
+                if (e.getReasonCode() != MqttClientException.REASON_CODE_MAX_INFLIGHT) {
+                    pending.remove(id);
+                    throw e;
+                }
+                Thread.sleep(INFLIGHT_RETRY_SLEEP_MS);
+            }
+        }
+    }
+
+    private void onAck(MqttMessage message) {
+        long arrived = System.nanoTime();
+        MqttProperties p = message.getProperties();
+        byte[] cd = p != null ? p.getCorrelationData() : null;
+        if (cd == null || cd.length != Long.BYTES) return;
+        Long sentAt = pending.remove(ByteBuffer.wrap(cd).getLong());
+        // solo cuenta lo enviado dentro de la ventana medida
+        if (sentAt == null || sentAt < measureFromNanos) return;
+
+        acked.increment();
+        try {
+            JsonNode node = mapper.readTree(message.getPayload());
+            if (node.path("ok").asBoolean(false)) {
+                ackedOk.increment();
+                inserted.add(node.path("inserted").asLong(0));
+            } else {
+                nacks.computeIfAbsent(node.path("reason").asText("unknown"), r -> new LongAdder()).increment();
+            }
+        } catch (Exception e) {
+            nacks.computeIfAbsent("unparseable_ack", r -> new LongAdder()).increment();
+        }
+        latency.record(arrived - sentAt);
+    }
+
+    @Override
+    public void close() {
+        for (MqttAsyncClient c : clients) {
+            try {
+                c.disconnect().waitForCompletion(2000);
+                c.close();
+            } catch (Exception ignored) {
+                // el broker se detiene igualmente
+            }
+        }
+    }
+
+    private static final class Tag {
+        final String epc;
+        final int baseRssi;
+        boolean mark;
+
+        Tag(String epc, int baseRssi) {
+            this.epc = epc;
+            this.baseRssi = baseRssi;
+        }
+    }
+
+    private final class AckCallback implements MqttCallback {
+        @Override public void messageArrived(String topic, MqttMessage message) { onAck(message); }
+        @Override public void disconnected(MqttDisconnectResponse r) { }
+        @Override public void mqttErrorOccurred(MqttException e) { }
+        @Override public void deliveryComplete(IMqttToken token) { }
+        @Override public void connectComplete(boolean reconnect, String serverURI) { }
+        @Override public void authPacketArrived(int reasonCode, MqttProperties properties) { }
+    }
+}
@@ -0,0 +1,71 @@
+-- Esquema de db/migration/V1 para H2 en modo MariaDB (arnés de carga).
+-- Mismas tablas, columnas, FKs e índices que usa la ingesta; sin los triggers
+-- de empleados/equipment (DELIMITER/SIGNAL no existen en H2) ni las tablas de usuarios.
+
+CREATE TABLE ubicaciones (id BIGINT PRIMARY KEY AUTO_INCREMENT, nombre VARCHAR(150) NOT NULL UNIQUE);
+
+CREATE TABLE lectores_uhf (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  codigo VARCHAR(64) NOT NULL UNIQUE,
+  descripcion VARCHAR(255),
+  ubicacion_id BIGINT NOT NULL,
+  CONSTRAINT fk_lectores_ubicacion
+    FOREIGN KEY (ubicacion_id) REFERENCES ubicaciones(id) ON DELETE RESTRICT
+);
+
+CREATE TABLE tags_uhf (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  epc VARCHAR(64) NOT NULL,
+  tipo ENUM('EMPLEADO','EQUIPMENT') NOT NULL,
+  activo BOOLEAN NOT NULL DEFAULT 1,
+  CONSTRAINT uk_taguhf_epc UNIQUE (epc)
+);
+
+CREATE TABLE empleados (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  full_name  VARCHAR(150) NOT NULL,
+  last_name  VARCHAR(150) NOT NULL,
+  doc_type   VARCHAR(20)  NOT NULL,
+  doc_number VARCHAR(30)  NOT NULL,
+  birth_date DATE         NOT NULL,
+  blood_type VARCHAR(4)   NOT NULL,
+  email      VARCHAR(120),
+  phone      VARCHAR(25),
+  tag_id     BIGINT NULL,
+  CONSTRAINT uk_empleados_doc_number UNIQUE (doc_number),
+  CONSTRAINT uk_empleados_tag UNIQUE (tag_id),
+  CONSTRAINT fk_empleados_tag FOREIGN KEY (tag_id) REFERENCES tags_uhf(id) ON DELETE SET NULL
+);
+
+CREATE TABLE equipment (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  sku     VARCHAR(64),
+  nombre  VARCHAR(150),
+  serie   VARCHAR(100),
+  estado  VARCHAR(30),
+  tag_id  BIGINT NULL,
+  CONSTRAINT uk_equipment_tag UNIQUE (tag_id),
+  CONSTRAINT fk_equipment_tag FOREIGN KEY (tag_id) REFERENCES tags_uhf(id) ON DELETE SET NULL
+);
+
+CREATE TABLE detecciones_tags (
+  id            BIGINT PRIMARY KEY AUTO_INCREMENT,
+  lector_id     BIGINT NOT NULL,
+  ubicacion_id  BIGINT NULL,
+  epc           VARCHAR(64) NOT NULL,
+  rssi          INT NULL,
+  machine       VARCHAR(100) NULL,
+  version       VARCHAR(20) NULL,
+  created_at    DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at    DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT fk_detecciones_lector
+    FOREIGN KEY (lector_id) REFERENCES lectores_uhf(id) ON DELETE RESTRICT,
+  CONSTRAINT fk_detecciones_ubicacion
+    FOREIGN KEY (ubicacion_id) REFERENCES ubicaciones(id) ON DELETE SET NULL
+);
+
+CREATE INDEX idx_detecciones_epc              ON detecciones_tags (epc);
+CREATE INDEX idx_detecciones_created          ON detecciones_tags (created_at);
+CREATE INDEX idx_detecciones_lector_created   ON detecciones_tags (lector_id, created_at);
+CREATE INDEX idx_detecciones_epc_created      ON detecciones_tags (epc, created_at);
+CREATE INDEX idx_detecciones_ubicacion_created ON detecciones_tags (ubicacion_id, created_at);
@@ -0,0 +1,20 @@
+-- db/migration/V4 (esquema compacto) para H2: mismas tablas y columnas, sin la vista.
+
+CREATE TABLE maquinas (
+  id      INT PRIMARY KEY AUTO_INCREMENT,
+  nombre  VARCHAR(100) NOT NULL,
+  CONSTRAINT uk_maquinas_nombre UNIQUE (nombre)
+);
+
+CREATE TABLE versiones (
+  id      INT PRIMARY KEY AUTO_INCREMENT,
+  nombre  VARCHAR(20) NOT NULL,
+  CONSTRAINT uk_versiones_nombre UNIQUE (nombre)
+);
+
+ALTER TABLE detecciones_tags ALTER COLUMN epc SET NULL;
+ALTER TABLE detecciones_tags ADD COLUMN epc_bin VARBINARY(32) NULL;
+ALTER TABLE detecciones_tags ADD COLUMN machine_id INT NULL;
+ALTER TABLE detecciones_tags ADD COLUMN version_id INT NULL;
+
+CREATE INDEX idx_detecciones_epcbin_created ON detecciones_tags (epc_bin, created_at);
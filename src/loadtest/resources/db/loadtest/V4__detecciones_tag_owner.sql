@@ -0,0 +1,15 @@
+-- db/migration/V5 (tag y dueño por detección) para H2: mismas columnas e índices, sin la vista.
+
+ALTER TABLE detecciones_tags ADD COLUMN tag_id BIGINT NULL;
+ALTER TABLE detecciones_tags ADD COLUMN tag_tipo ENUM('EMPLEADO','EQUIPMENT') NULL;
+ALTER TABLE detecciones_tags ADD COLUMN owner_id BIGINT NULL;
+
+CREATE INDEX idx_detecciones_owner_created ON detecciones_tags (tag_tipo, owner_id, created_at);
+
+ALTER TABLE tags_uhf  ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+ALTER TABLE empleados ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+ALTER TABLE equipment ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_taguhf_updated    ON tags_uhf (updated_at);
+CREATE INDEX idx_empleados_updated ON empleados (updated_at);
+CREATE INDEX idx_equipment_updated ON equipment (updated_at);
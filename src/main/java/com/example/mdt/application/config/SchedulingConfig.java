@@ -3,6 +3,11 @@ package com.example.mdt.application.config;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+/**
+ * Habilita las tareas {@code @Scheduled}. El pool del scheduler se dimensiona con
+ * {@code spring.task.scheduling.pool.size} (application.yml): con el hilo único
+ * por defecto un job largo de DB bloquearía al resto.
+ */
 @Configuration
 @EnableScheduling
 public class SchedulingConfig {
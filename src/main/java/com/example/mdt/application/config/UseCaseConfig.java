@@ -1,15 +1,25 @@
 package com.example.mdt.application.config;
 
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.gateway.DeteccionPublisher;
 import com.example.mdt.domain.gateway.DeteccionesGateway;
 import com.example.mdt.domain.gateway.MetadataGateway;
+import com.example.mdt.domain.gateway.TagGateway;
 import com.example.mdt.domain.usecase.ProcessScanUseCase;
+import com.example.mdt.infrastructure.adapter.tags.TagRegistryProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class UseCaseConfig {
     @Bean
-    public ProcessScanUseCase processScanUseCase(DeteccionesGateway detGateway, MetadataGateway metadataGateway) {
-        return new ProcessScanUseCase(detGateway, metadataGateway);
+    public ProcessScanUseCase processScanUseCase(DeteccionesGateway detGateway, MetadataGateway metadataGateway,
+                                                 ObjectProvider<DeteccionFilter> filters,
+                                                 ObjectProvider<TagGateway> tags, TagRegistryProperties tagProps,
+                                                 ObjectProvider<DeteccionPublisher> publisher) {
+        return new ProcessScanUseCase(detGateway, metadataGateway, filters.orderedStream().toList(),
+                tags.getIfAvailable(), tagProps.isDropUnknown(), tagProps.isDropInactive(),
+                publisher.getIfAvailable());
     }
 }
@@ -0,0 +1,35 @@
+package com.example.mdt.domain.gateway;
+
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+
+/**
+ * Filtro aplicado a cada detección antes de llegar a {@link DeteccionesGateway}.
+ * Devuelve false para descartarla (p.ej. relectura del mismo tag).
+ *
+ * {@link #accept} se evalúa al preparar el mensaje, antes de escribir, y se
+ * vuelve a evaluar si la escritura falla y el mensaje se reintenta o se
+ * reproduce desde el backlog: para la misma lectura debe dar la misma
+ * respuesta. Los efectos que no se pueden repetir (contar lecturas, actualizar
+ * sesiones o índices) van en {@link #committed}.
+ */
+public interface DeteccionFilter {
+    boolean accept(Deteccion deteccion);
+
+    /**
+     * Filtro para las lecturas de un solo mensaje; {@code prepare} pide uno por
+     * SCAN. Sirve para filtros que comparan lecturas del mismo mensaje entre sí
+     * (p.ej. el mismo tag repetido en un SCAN). Por defecto, el propio filtro.
+     */
+    default DeteccionFilter forMessage() {
+        return this;
+    }
+
+    /**
+     * Un mensaje cuya escritura hizo commit: {@link PreparedScan#reads()} son
+     * todas sus lecturas (aceptadas o no) y {@link PreparedScan#rows()} las que
+     * quedaron como fila. Se llama una sola vez por mensaje.
+     */
+    default void committed(PreparedScan prepared) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.mdt.domain.gateway;
+
+import com.example.mdt.domain.model.Deteccion;
+
+/**
+ * Recibe cada detección escrita por la ingesta, recién después del commit de
+ * su lote: un mensaje que falla y se reproduce desde el backlog se publica una
+ * sola vez, cuando por fin queda en la base. Se llama desde el camino
+ * caliente: no debe bloquear ni lanzar.
+ */
+public interface DeteccionPublisher {
+    void publish(Deteccion deteccion);
+}
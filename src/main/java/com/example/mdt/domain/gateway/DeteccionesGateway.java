@@ -2,6 +2,14 @@ package com.example.mdt.domain.gateway;
 
 import com.example.mdt.domain.model.Deteccion;
 
+import java.util.List;
+
 public interface DeteccionesGateway {
     void save(Deteccion deteccion);
+
+    /**
+     * Persiste todas las detecciones en una única transacción.
+     * @return número de filas escritas
+     */
+    int saveAll(List<Deteccion> detecciones);
 }
@@ -0,0 +1,9 @@
+package com.example.mdt.domain.gateway;
+
+import com.example.mdt.domain.model.Presencia;
+
+import java.util.List;
+
+public interface PresenciasGateway {
+    int saveAll(List<Presencia> presencias);
+}
@@ -0,0 +1,16 @@
+package com.example.mdt.domain.gateway;
+
+import com.example.mdt.domain.model.TagInfo;
+
+import java.util.Optional;
+
+/** Tags registrados (tags_uhf) por EPC. */
+public interface TagGateway {
+    /**
+     * false mientras no se haya cargado el registro: en ese estado un EPC
+     * ausente no significa "desconocido" y la ingesta no descarta lecturas.
+     */
+    boolean isReady();
+
+    Optional<TagInfo> findByEpc(String epc);
+}
@@ -2,6 +2,23 @@ package com.example.mdt.domain.model;
 
 import java.time.LocalDateTime;
 
+/**
+ * Una lectura de un CSN. {@code tagId}/{@code tagTipo}/{@code ownerId} vienen
+ * del registro de tags (tags_uhf + empleados/equipment); null si el EPC no
+ * está registrado o el registro está desactivado.
+ */
 public record Deteccion(Long lectorId, Long ubicacionId, String epc, Integer rssi, String machine,
-                        LocalDateTime createdAt, String version) {
+                        LocalDateTime createdAt, String version,
+                        Long tagId, TagTipo tagTipo, Long ownerId) {
+
+    public Deteccion(Long lectorId, Long ubicacionId, String epc, Integer rssi, String machine,
+                     LocalDateTime createdAt, String version) {
+        this(lectorId, ubicacionId, epc, rssi, machine, createdAt, version, null, null, null);
+    }
+
+    /** Copia con el tag y su dueño. */
+    public Deteccion withTag(TagInfo tag) {
+        return new Deteccion(lectorId, ubicacionId, epc, rssi, machine, createdAt, version,
+                tag.id(), tag.tipo(), tag.ownerId());
+    }
 }
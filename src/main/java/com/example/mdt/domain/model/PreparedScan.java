@@ -0,0 +1,18 @@
+package com.example.mdt.domain.model;
+
+import java.util.List;
+
+/**
+ * SCAN validado y listo para escribir: {@code rows} son las detecciones que
+ * van a detecciones_tags y {@code reads} todas las lecturas del mensaje,
+ * también las que los filtros no escriben (relecturas, modo presencia).
+ * Las lecturas se entregan a los filtros recién tras el commit.
+ */
+public record PreparedScan(List<Deteccion> rows, List<Deteccion> reads) {
+
+    public static final PreparedScan EMPTY = new PreparedScan(List.of(), List.of());
+
+    public boolean isEmpty() {
+        return reads.isEmpty();
+    }
+}
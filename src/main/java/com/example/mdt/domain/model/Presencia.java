@@ -0,0 +1,8 @@
+package com.example.mdt.domain.model;
+
+import java.time.LocalDateTime;
+
+/** Sesión cerrada: el tag {@code epc} estuvo frente al lector entre firstSeen y lastSeen. */
+public record Presencia(Long lectorId, Long ubicacionId, String epc, LocalDateTime firstSeen,
+                        LocalDateTime lastSeen, int readCount, Integer maxRssi) {
+}
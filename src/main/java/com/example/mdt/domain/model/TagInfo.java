@@ -0,0 +1,8 @@
+package com.example.mdt.domain.model;
+
+/**
+ * Tag registrado en tags_uhf. {@code ownerId} es el id en empleados o en
+ * equipment según {@code tipo}; null si el tag no está asignado.
+ */
+public record TagInfo(long id, TagTipo tipo, Long ownerId, boolean activo) {
+}
@@ -0,0 +1,7 @@
+package com.example.mdt.domain.model;
+
+/** Valores de {@code tags_uhf.tipo}: a quién está asignado el tag. */
+public enum TagTipo {
+    EMPLEADO,
+    EQUIPMENT
+}
@@ -1,22 +1,114 @@
 package com.example.mdt.domain.usecase;
 
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.gateway.DeteccionPublisher;
 import com.example.mdt.domain.gateway.DeteccionesGateway;
 import com.example.mdt.domain.gateway.MetadataGateway;
+import com.example.mdt.domain.gateway.TagGateway;
 import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
 import com.example.mdt.domain.model.Scan;
+import com.example.mdt.domain.model.TagInfo;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ProcessScanUseCase {
     private final DeteccionesGateway gateway;
     private final MetadataGateway metadata;
+    private final List<DeteccionFilter> filters;
+    /** null = sin registro de tags: las detecciones no se enriquecen. */
+    private final TagGateway tags;
+    private final boolean dropUnknownTags;
+    private final boolean dropInactiveTags;
+    /** null = las detecciones aceptadas no se publican. */
+    private final DeteccionPublisher publisher;
 
     public ProcessScanUseCase(DeteccionesGateway gateway, MetadataGateway metadata) {
+        this(gateway, metadata, List.of());
+    }
+
+    public ProcessScanUseCase(DeteccionesGateway gateway, MetadataGateway metadata, List<DeteccionFilter> filters) {
+        this(gateway, metadata, filters, null, false, false);
+    }
+
+    /**
+     * @param tags             registro de tags para completar tipo y dueño; null = no se usa
+     * @param dropUnknownTags  descartar lecturas de EPC que no están en tags_uhf
+     * @param dropInactiveTags descartar lecturas de tags con {@code activo = 0}
+     */
+    public ProcessScanUseCase(DeteccionesGateway gateway, MetadataGateway metadata, List<DeteccionFilter> filters,
+                              TagGateway tags, boolean dropUnknownTags, boolean dropInactiveTags) {
+        this(gateway, metadata, filters, tags, dropUnknownTags, dropInactiveTags, null);
+    }
+
+    /** @param publisher recibe cada detección escrita, tras el commit (stream en vivo); null = no se usa */
+    public ProcessScanUseCase(DeteccionesGateway gateway, MetadataGateway metadata, List<DeteccionFilter> filters,
+                              TagGateway tags, boolean dropUnknownTags, boolean dropInactiveTags,
+                              DeteccionPublisher publisher) {
         this.gateway = gateway;
         this.metadata = metadata;
+        this.filters = List.copyOf(filters);
+        this.tags = tags;
+        this.dropUnknownTags = dropUnknownTags;
+        this.dropInactiveTags = dropInactiveTags;
+        this.publisher = publisher;
     }
 
     public int process(Scan scan){
+        return process(scan, LocalDateTime.now());
+    }
+
+    /** @param readAt hora de lectura de las detecciones (la de llegada del mensaje, también al reproducirlo) */
+    public int process(Scan scan, LocalDateTime readAt){
+        return persist(prepare(scan, readAt));
+    }
+
+    /**
+     * Persiste un SCAN ya preparado con {@link #prepare}; devuelve filas
+     * escritas. Tras el commit aplica sus efectos ({@link #committed}).
+     */
+    public int persist(PreparedScan prepared){
+        int written = prepared.rows().isEmpty() ? 0 : gateway.saveAll(prepared.rows());
+        committed(prepared);
+        return written;
+    }
+
+    /**
+     * El SCAN preparado ya quedó en la base: sus lecturas van a los filtros
+     * ({@link DeteccionFilter#committed}) y sus filas al publicador. Quien
+     * escribe sin pasar por {@link #persist} (write-behind, catch-up del
+     * backlog) la llama tras su propio {@link DeteccionesGateway#saveAll}, una
+     * sola vez por mensaje.
+     */
+    public void committed(PreparedScan prepared){
+        if (prepared.isEmpty()) return;
+        for (DeteccionFilter f : filters) {
+            f.committed(prepared);
+        }
+        if (publisher == null) return;
+        for (Deteccion det : prepared.rows()) {
+            publisher.publish(det);
+        }
+    }
+
+    /**
+     * Valida el SCAN y construye sus detecciones sin persistirlas.
+     * Lo usa el pipeline write-behind, que agrupa detecciones de varios mensajes
+     * en un único {@link DeteccionesGateway#saveAll}. No cambia estado: se puede
+     * repetir si la escritura falla.
+     */
+    public PreparedScan prepare(Scan scan){
+        return prepare(scan, LocalDateTime.now());
+    }
+
+    /**
+     * Igual que {@link #prepare(Scan)} con {@code readAt} como {@code created_at}
+     * de las detecciones. El backlog pasa la hora en que llegó el mensaje, así un
+     * replay (o su reintento) produce las mismas detecciones que el original.
+     */
+    public PreparedScan prepare(Scan scan, LocalDateTime readAt){
         // 1) Resolver ubicacion (STAGE). La columna permite NULL, pero si te interesa forzar existencia, valida:
         Long ubicacionId = parseLongOrNull(scan.stage());
         if (ubicacionId != null && !metadata.existsUbicacionId(ubicacionId)) {
@@ -30,8 +122,11 @@ public class ProcessScanUseCase {
         Long lectorId = metadata.findLectorIdByCodigo(scan.device())
                 .orElseThrow(() -> new IllegalArgumentException("unknown_device"));
 
-        // 3) Insertar detecciones
-        int count = 0;
+        // 3) Construir detecciones (se insertan todas juntas con saveAll)
+        TagGateway registry = tags != null && tags.isReady() ? tags : null;
+        List<DeteccionFilter> messageFilters = forMessage();
+        List<Deteccion> reads = new ArrayList<>(scan.csn().size());
+        List<Deteccion> rows = new ArrayList<>(scan.csn().size());
         for (String csn : scan.csn()){
             if (csn == null || csn.length() < 2) continue;
             Integer rssi = parseRssiFromCsn(csn);
@@ -40,32 +135,80 @@ public class ProcessScanUseCase {
                     ubicacionId,
                     csn, rssi,
                     scan.machine(),
-                    LocalDateTime.now(), scan.version());
-            gateway.save(det);
-            count++;
+                    readAt, scan.version());
+            if (registry != null) {
+                det = withTag(registry, det);
+                if (det == null) continue;
+            }
+            reads.add(det);
+            if (accepted(messageFilters, det)) {
+                rows.add(det);
+            }
+        }
+        return new PreparedScan(rows, reads);
+    }
+
+    /** La detección con su tag, o null si la política la descarta (tag desconocido o inactivo). */
+    private Deteccion withTag(TagGateway registry, Deteccion det) {
+        TagInfo tag = registry.findByEpc(det.epc()).orElse(null);
+        if (tag == null) {
+            return dropUnknownTags ? null : det;
+        }
+        if (!tag.activo() && dropInactiveTags) {
+            return null;
+        }
+        return det.withTag(tag);
+    }
+
+    private static boolean accepted(List<DeteccionFilter> messageFilters, Deteccion det) {
+        for (DeteccionFilter f : messageFilters) {
+            if (!f.accept(det)) return false;
+        }
+        return true;
+    }
+
+    /** Los filtros para un SCAN; sin filtros con estado por mensaje, la misma lista. */
+    private List<DeteccionFilter> forMessage() {
+        List<DeteccionFilter> out = null;
+        for (int i = 0; i < filters.size(); i++) {
+            DeteccionFilter f = filters.get(i);
+            DeteccionFilter scoped = f.forMessage();
+            if (scoped != f && out == null) {
+                out = new ArrayList<>(filters.subList(0, i));
+            }
+            if (out != null) out.add(scoped);
         }
-        return count;
+        return out != null ? out : filters;
     }
 
+    /** Todos los dígitos ASCII del texto como número ("ST-99" → 99); null si no hay o desborda. */
     private static Long parseLongOrNull(String s) {
         if (s == null) return null;
-        try {
-            return Long.parseLong(s.replaceAll("[^0-9]", ""));
-        } catch (Exception e) {
-            return null;
+        long value = 0;
+        boolean any = false;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) continue;
+            if (value > (Long.MAX_VALUE - d) / 10) return null;
+            value = value * 10 + d;
+            any = true;
         }
+        return any ? value : null;
     }
 
+    /** Dígitos iniciales del DEVICE ("101-AB" → 101); si no empieza con dígito, todos sus dígitos. */
     private static Long parseLectorId(String device) {
         if (device == null) return null;
-        try {
-            String leading = device.replaceAll("^(\\d+).*$", "$1");
-            if (leading.matches("\\d+")) return Long.parseLong(leading);
-            String all = device.replaceAll("[^0-9]", "");
-            if (!all.isEmpty()) return Long.parseLong(all);
-        } catch (Exception ignored) {
+        long value = 0;
+        int i = 0;
+        int n = device.length();
+        for (; i < n; i++) {
+            int d = device.charAt(i) - '0';
+            if (d < 0 || d > 9) break;
+            if (value > (Long.MAX_VALUE - d) / 10) return null;
+            value = value * 10 + d;
         }
-        return null;
+        return i > 0 ? Long.valueOf(value) : parseLongOrNull(device);
     }
 
     public static Integer parseRssiFromCsn(String csn) {
@@ -1,75 +1,336 @@
 package com.example.mdt.infrastructure.adapter.backlog;
 
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
 import com.example.mdt.domain.model.Scan;
 import com.example.mdt.domain.usecase.ProcessScanUseCase;
+import com.example.mdt.infrastructure.adapter.codec.ScanPayloadDecoder;
+import com.example.mdt.infrastructure.adapter.db.DbCircuitBreaker;
 import com.example.mdt.infrastructure.adapter.db.DbHealthService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.mdt.infrastructure.adapter.ingest.IngestScheduler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class BacklogDrainService {
     private static final Logger log = LoggerFactory.getLogger(BacklogDrainService.class);
 
+    private static final long CATCH_UP_REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
     private final BacklogStore store;
+    private final BacklogProperties props;
     private final DbHealthService dbHealth;
+    private final DbCircuitBreaker breaker;
     private final ProcessScanUseCase useCase;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final DeteccionesGateway gateway;
+    private final ScanPayloadDecoder decoder;
+    private final IngestScheduler scheduler;
+    /** Registros que no son SCAN, por {@link BacklogRecord#reason()}. */
+    private final Map<String, BacklogRecordHandler> handlers = new HashMap<>();
+
+    private final AtomicBoolean catchUpRunning = new AtomicBoolean(false);
+    private volatile boolean shuttingDown;
 
-    public BacklogDrainService(BacklogStore store, DbHealthService dbHealth, ProcessScanUseCase useCase) {
+    /**
+     * Último lote del catch-up ya preparado y aún sin commit (solo lo toca el
+     * hilo de catch-up). Si el insert falla, el reintento empieza en el mismo
+     * registro y reutiliza esta preparación en lugar de repetirla.
+     */
+    private PreparedBatch preparedBatch;
+
+    private record PreparedBatch(long segment, long offset, int records, List<PreparedScan> scans) {
+        boolean matches(List<BacklogRecord> batch) {
+            BacklogRecord first = batch.get(0);
+            return first.segment() == segment && first.offset() == offset && batch.size() == records;
+        }
+    }
+
+    public BacklogDrainService(BacklogStore store, BacklogProperties props, DbHealthService dbHealth,
+                               DbCircuitBreaker breaker, ProcessScanUseCase useCase, DeteccionesGateway gateway, ScanPayloadDecoder decoder,
+                               IngestScheduler scheduler, ObjectProvider<BacklogRecordHandler> handlers) {
         this.store = store;
+        this.props = props;
         this.dbHealth = dbHealth;
+        this.breaker = breaker;
         this.useCase = useCase;
+        this.gateway = gateway;
+        this.decoder = decoder;
+        this.scheduler = scheduler;
+        handlers.orderedStream().forEach(h -> this.handlers.put(h.reason(), h));
+    }
+
+    @PreDestroy
+    public void stop() {
+        shuttingDown = true;
     }
 
+    public boolean isCatchUpRunning() { return catchUpRunning.get(); }
+
     @Scheduled(fixedDelayString = "${backlog.drain-interval-ms:5000}")
     public void drain() {
         if (!store.isEnabled()) return;
-        if (!dbHealth.isAvailable()) return;
+        if (!dbHealth.isMigrated()) return;
+        if (catchUpRunning.get()) return;
+
+        long depth = store.depth();
+        if (depth == 0) return;
+        // Circuito abierto: no se drena. En HALF_OPEN el primer registro sirve de prueba
+        if (!breaker.tryAcquire()) return;
+        boolean probing = !breaker.isClosed();
+        if (depth >= props.getCatchUpThreshold() && !probing) {
+            startCatchUp(depth);
+            return;
+        }
 
-        List<Path> files = store.listOldestFirst(50);
-        if (files.isEmpty()) return;
+        List<BacklogRecord> records = store.readBatch(Math.max(1, props.getMaxPerCycle()));
+        if (records.isEmpty()) return;
 
-        for (Path p : files) {
+        for (BacklogRecord rec : records) {
+            // el tráfico en vivo va primero: sin permiso, el resto espera al próximo ciclo
+            if (!scheduler.tryAcquireReplay(1)) return;
             try {
-                String body = store.read(p);
-                JsonNode root = mapper.readTree(body);
-                String dt = root.path("DATATYPE").asText(null);
-                if (dt == null || !"SCAN".equalsIgnoreCase(dt)) {
-                    log.warn("Skipping backlog file (not SCAN): {}", p.getFileName());
-                    store.delete(p);
-                    continue;
+                BacklogRecordHandler handler = handlers.get(rec.reason());
+                if (handler != null) {
+                    handler.replay(rec);
+                } else {
+                    Scan scan = decoder.decode(rec.payload());
+                    String dt = scan.datatype();
+                    if (dt == null || !"SCAN".equalsIgnoreCase(dt)) {
+                        log.warn("Skipping backlog record (not SCAN): {}", rec.position());
+                    } else if (scan.csn().isEmpty()) {
+                        log.warn("Skipping backlog record (invalid OBJECT): {}", rec.position());
+                    } else {
+                        int inserted = useCase.process(scan, readAt(rec));
+                        log.debug("Backlog drained: {} inserted from {}", inserted, rec.position());
+                    }
                 }
-                JsonNode obj = root.path("OBJECT");
-                if (obj.isMissingNode() || obj.isNull() || !obj.has("CSN")) {
-                    log.warn("Skipping backlog file (invalid OBJECT): {}", p.getFileName());
-                    store.delete(p);
-                    continue;
-                }
-                String stage = obj.path("STAGE").asText(null);
-                String device = obj.path("DEVICE").asText(null);
-                String machine = obj.path("MACHINE").asText(null);
-                String version = obj.path("VERSION").asText(null);
-                List<String> csn = new ArrayList<>();
-                if (obj.get("CSN").isArray()) {
-                    obj.get("CSN").forEach(n -> csn.add(n.asText()));
+            } catch (JsonProcessingException | IllegalArgumentException | DataIntegrityViolationException e) {
+                // El registro nunca va a poder insertarse: se descarta para no bloquear el log
+                log.warn("Dropping backlog record {} ({}): {}", rec.position(), rec.reason(), e.getMessage());
+            } catch (Exception e) {
+                log.warn("Backlog processing failed for {}: {}", rec.position(), e.getMessage());
+                // el cursor no avanza: se reintenta desde aquí en el próximo ciclo
+                return;
+            }
+            store.commit(rec);
+            if (probing) return;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Catch-up: backlog grande tras una caída
+    // -------------------------------------------------------------------------
+
+    private void startCatchUp(long depth) {
+        if (!catchUpRunning.compareAndSet(false, true)) return;
+        log.info("Backlog catch-up started (depth={}, batchRecords={}, parallelism={})",
+                depth, props.getCatchUpBatchRecords(), props.getCatchUpParallelism());
+        Thread.ofPlatform().name("backlog-catch-up").daemon(true).start(this::runCatchUp);
+    }
+
+    /**
+     * Drena hasta vaciar el backlog: decodifica y valida cada lote en paralelo
+     * y escribe las detecciones de todo el lote con un único
+     * {@link DeteccionesGateway#saveAll}, al ritmo que permita {@link IngestScheduler}.
+     */
+    private void runCatchUp() {
+        int parallelism = Math.max(1, props.getCatchUpParallelism());
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("backlog-decode-", 0).daemon(true).factory());
+        long start = System.nanoTime();
+        long lastReport = start;
+        long records = 0;
+        long rows = 0;
+        long windowRecords = 0;
+        try {
+            while (!shuttingDown && breaker.isClosed()) {
+                List<BacklogRecord> batch = store.readBatch(Math.max(1, props.getCatchUpBatchRecords()));
+                if (batch.isEmpty()) break;
+                batch = cutAtHandled(batch);
+
+                int inserted = replayBatch(batch, pool, parallelism);
+                if (inserted < 0) break;
+                records += batch.size();
+                windowRecords += batch.size();
+                rows += inserted;
+
+                long now = System.nanoTime();
+                if (now - lastReport >= CATCH_UP_REPORT_NANOS) {
+                    double perSec = windowRecords / ((now - lastReport) / 1e9);
+                    long depth = store.depth();
+                    log.info("Backlog catch-up: {} records/s, depth={}, ETA={}s (replayed {} records, {} detections)",
+                            Math.round(perSec), depth, perSec > 0 ? Math.round(depth / perSec) : -1, records, rows);
+                    lastReport = now;
+                    windowRecords = 0;
                 }
+            }
+        } catch (Exception e) {
+            log.error("Backlog catch-up aborted", e);
+        } finally {
+            pool.shutdownNow();
+            catchUpRunning.set(false);
+            double secs = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+            log.info("Backlog catch-up finished: {} records, {} detections in {}s ({} records/s), depth={}",
+                    records, rows, Math.round(secs), Math.round(records / secs), store.depth());
+        }
+    }
+
+    /** @return detecciones insertadas, o -1 si hay que detener el catch-up (error transitorio) */
+    private int replayBatch(List<BacklogRecord> batch, ExecutorService pool, int parallelism) {
+        BacklogRecordHandler handler = handlers.get(batch.get(0).reason());
+        if (handler != null) return replayHandled(batch.get(0), handler);
 
-                Scan scan = new Scan("SCAN", stage, device, machine, version, csn);
-                int inserted = useCase.process(scan);
-                log.info("Backlog drained: {} inserted from {}", inserted, p.getFileName());
-                store.delete(p);
+        List<PreparedScan> prepared;
+        if (preparedBatch != null && preparedBatch.matches(batch)) {
+            prepared = preparedBatch.scans();
+        } else {
+            try {
+                prepared = prepareParallel(batch, pool, parallelism);
             } catch (Exception e) {
-                log.warn("Backlog processing failed for {}: {}", p.getFileName(), e.getMessage());
-                // leave file to retry later
+                log.warn("Backlog catch-up could not validate batch at {}: {}", batch.get(0).position(), e.getMessage());
+                return -1;
             }
+            BacklogRecord first = batch.get(0);
+            preparedBatch = new PreparedBatch(first.segment(), first.offset(), batch.size(), prepared);
         }
+
+        List<Deteccion> all = new ArrayList<>();
+        for (PreparedScan p : prepared) all.addAll(p.rows());
+        try {
+            scheduler.acquireReplay(batch.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        try {
+            int inserted = all.isEmpty() ? 0 : gateway.saveAll(all);
+            preparedBatch = null;
+            // antes de avanzar el cursor: lo que solo guardan los filtros (p.ej. presencias) no se pierde
+            for (PreparedScan p : prepared) useCase.committed(p);
+            store.commitAll(batch);
+            return inserted;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Backlog catch-up batch at {} violated a constraint; replaying it record by record",
+                    batch.get(0).position());
+        } catch (Exception e) {
+            log.warn("Backlog catch-up insert failed at {}: {}", batch.get(0).position(), e.getMessage());
+            return -1;
+        }
+
+        // aislar el registro culpable sin perder el resto del lote; los ya
+        // confirmados avanzan el cursor, así que la preparación cacheada ya no sirve
+        preparedBatch = null;
+        int inserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BacklogRecord rec = batch.get(i);
+            PreparedScan p = prepared.get(i);
+            try {
+                if (!p.rows().isEmpty()) inserted += gateway.saveAll(p.rows());
+                useCase.committed(p);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Dropping backlog record {} ({}): {}", rec.position(), rec.reason(), e.getMessage());
+            } catch (Exception e) {
+                log.warn("Backlog processing failed for {}: {}", rec.position(), e.getMessage());
+                return -1;
+            }
+            store.commit(rec);
+        }
+        return inserted;
+    }
+
+    /**
+     * Los registros con handler propio cortan el lote: van solos, en su orden
+     * respecto a los SCAN que los rodean.
+     */
+    private List<BacklogRecord> cutAtHandled(List<BacklogRecord> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (handlers.containsKey(batch.get(i).reason())) {
+                return batch.subList(0, Math.max(1, i));
+            }
+        }
+        return batch;
+    }
+
+    private int replayHandled(BacklogRecord rec, BacklogRecordHandler handler) {
+        try {
+            scheduler.acquireReplay(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        try {
+            handler.replay(rec);
+        } catch (JsonProcessingException | DataIntegrityViolationException e) {
+            log.warn("Dropping backlog record {} ({}): {}", rec.position(), rec.reason(), e.getMessage());
+        } catch (Exception e) {
+            log.warn("Backlog processing failed for {}: {}", rec.position(), e.getMessage());
+            return -1;
+        }
+        store.commit(rec);
+        return 0;
+    }
+
+    private List<PreparedScan> prepareParallel(List<BacklogRecord> batch, ExecutorService pool, int parallelism) {
+        int n = batch.size();
+        int chunk = (n + parallelism - 1) / parallelism;
+        List<CompletableFuture<List<PreparedScan>>> parts = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            List<BacklogRecord> slice = batch.subList(from, Math.min(n, from + chunk));
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                List<PreparedScan> out = new ArrayList<>(slice.size());
+                for (BacklogRecord rec : slice) out.add(prepareRecord(rec));
+                return out;
+            }, pool));
+        }
+        List<PreparedScan> prepared = new ArrayList<>(n);
+        for (CompletableFuture<List<PreparedScan>> part : parts) {
+            prepared.addAll(part.join());
+        }
+        return prepared;
+    }
+
+    /** Decodifica y valida un registro; los que nunca podrán insertarse devuelven un SCAN vacío. */
+    private PreparedScan prepareRecord(BacklogRecord rec) {
+        try {
+            Scan scan = decoder.decode(rec.payload());
+            String dt = scan.datatype();
+            if (dt == null || !"SCAN".equalsIgnoreCase(dt) || scan.csn().isEmpty()) {
+                log.warn("Skipping backlog record (not a valid SCAN): {}", rec.position());
+                return PreparedScan.EMPTY;
+            }
+            return useCase.prepare(scan, readAt(rec));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Dropping backlog record {} ({}): {}", rec.position(), rec.reason(), e.getMessage());
+            return PreparedScan.EMPTY;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Hora de lectura original: la de llegada del mensaje, no la del replay. */
+    private static LocalDateTime readAt(BacklogRecord rec) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(rec.enqueuedAtMillis()), ZoneId.systemDefault());
     }
 }
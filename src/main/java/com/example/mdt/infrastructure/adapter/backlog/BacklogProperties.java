@@ -10,6 +10,16 @@ public class BacklogProperties {
     private String dir = "data/backlog";
     private int maxPerCycle = 50;
     private long drainIntervalMs = 5000;
+    /** Con al menos esta cantidad de registros pendientes se activa el modo catch-up. */
+    private long catchUpThreshold = 1000;
+    /** Registros por lote en catch-up (sus detecciones van en un solo saveAll). */
+    private int catchUpBatchRecords = 2000;
+    /** Hilos que decodifican/validan registros en paralelo durante el catch-up. */
+    private int catchUpParallelism = Runtime.getRuntime().availableProcessors();
+    /** Tamaño de cada segmento del log; al llenarse se abre uno nuevo. */
+    private long segmentBytes = 64L * 1024 * 1024;
+    /** fsync tras cada append (más durable, más lento). */
+    private boolean fsync = false;
 
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
@@ -22,4 +32,19 @@ public class BacklogProperties {
 
     public long getDrainIntervalMs() { return drainIntervalMs; }
     public void setDrainIntervalMs(long drainIntervalMs) { this.drainIntervalMs = drainIntervalMs; }
+
+    public long getCatchUpThreshold() { return catchUpThreshold; }
+    public void setCatchUpThreshold(long catchUpThreshold) { this.catchUpThreshold = catchUpThreshold; }
+
+    public int getCatchUpBatchRecords() { return catchUpBatchRecords; }
+    public void setCatchUpBatchRecords(int catchUpBatchRecords) { this.catchUpBatchRecords = catchUpBatchRecords; }
+
+    public int getCatchUpParallelism() { return catchUpParallelism; }
+    public void setCatchUpParallelism(int catchUpParallelism) { this.catchUpParallelism = catchUpParallelism; }
+
+    public long getSegmentBytes() { return segmentBytes; }
+    public void setSegmentBytes(long segmentBytes) { this.segmentBytes = segmentBytes; }
+
+    public boolean isFsync() { return fsync; }
+    public void setFsync(boolean fsync) { this.fsync = fsync; }
 }
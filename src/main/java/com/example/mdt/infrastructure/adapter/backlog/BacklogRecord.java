@@ -0,0 +1,16 @@
+package com.example.mdt.infrastructure.adapter.backlog;
+
+/**
+ * Registro leído del backlog. {@code segment}/{@code offset} identifican su
+ * posición en el log; {@code nextOffset} es donde empieza el siguiente.
+ * {@code enqueuedAtMillis} es el instante en que llegó el mensaje (la ingesta
+ * lo encola con su hora de recepción, no con la del encolado): al reproducirlo
+ * es la hora de lectura de sus detecciones.
+ */
+public record BacklogRecord(long segment, long offset, long nextOffset,
+                            long enqueuedAtMillis, String reason, byte[] payload) {
+
+    public String position() {
+        return segment + ":" + offset;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.mdt.infrastructure.adapter.backlog;
+
+/**
+ * Registros del backlog que no son mensajes SCAN (p.ej. presencias que no
+ * cupieron en memoria). {@link BacklogDrainService} los entrega al handler
+ * cuyo {@link #reason()} coincide con el del registro, en orden con el resto.
+ */
+public interface BacklogRecordHandler {
+    String reason();
+
+    /**
+     * Escribe el registro. Si lanza {@link org.springframework.dao.DataIntegrityViolationException}
+     * el registro se descarta; cualquier otra excepción lo deja en el backlog
+     * para el próximo ciclo.
+     */
+    void replay(BacklogRecord rec) throws Exception;
+}
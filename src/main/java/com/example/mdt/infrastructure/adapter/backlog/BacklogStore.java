@@ -1,26 +1,73 @@
 package com.example.mdt.infrastructure.adapter.backlog;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
+/**
+ * Backlog persistente como log segmentado de solo-append.
+ *
+ * Cada mensaje es un registro {@code [len:int][crc32:int][body]} con
+ * {@code body = [enqueuedAt:long][reasonLen:short][reason][payload]}, añadido al
+ * segmento activo ({@code <id>.seg}, ids crecientes). Al superar
+ * {@code segmentBytes} se abre el siguiente segmento.
+ *
+ * La posición de lectura (segmento, offset) se guarda en el archivo
+ * {@code cursor}; un segmento se borra recién cuando el cursor lo dejó atrás.
+ * Al arrancar se descarta una cola truncada del segmento activo (el último
+ * registro, escrito a medias) y se migran los {@code *.json} del formato
+ * anterior (un archivo por mensaje).
+ *
+ * Un registro que no pasa el CRC antes del final de lo escrito no es una cola
+ * truncada sino un registro dañado: al llegar el cursor se copian sus bytes a
+ * {@code quarantine/}, se cuenta y se sigue con el registro siguiente (o con
+ * el siguiente segmento si su largo tampoco es confiable).
+ */
 @Component
 public class BacklogStore {
     private static final Logger log = LoggerFactory.getLogger(BacklogStore.class);
 
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final String QUARANTINE_DIR = "quarantine";
+    private static final int HEADER_BYTES = 8;                 // len + crc
+    private static final int BODY_FIXED_BYTES = Long.BYTES + Short.BYTES;
+
     private final BacklogProperties props;
     private final Path dir;
 
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private FileChannel writer;
+    private long activeSegment;
+    private long writePos;
+
+    private FileChannel cursorChannel;
+    private long cursorSegment;
+    private long cursorOffset;
+
+    /** Registros entre el cursor y el final del log; se calcula una vez al abrir. */
+    private long pending;
+    /** Registros dañados puestos en cuarentena desde el arranque. */
+    private long quarantined;
+
+    /** Canal de lectura cacheado del segmento que se está drenando. */
+    private FileChannel reader;
+    private long readerSegment = -1;
+
     public BacklogStore(BacklogProperties props) {
         this.props = props;
         this.dir = Paths.get(props.getDir());
@@ -29,46 +76,445 @@ public class BacklogStore {
         } catch (IOException e) {
             log.warn("Could not create backlog directory {}: {}", dir, e.getMessage());
         }
+        if (props.isEnabled()) {
+            try {
+                open();
+                migrateLegacyFiles();
+            } catch (IOException e) {
+                log.error("Could not open backlog log in {}: {}", dir, e.getMessage());
+            }
+        }
     }
 
-    public boolean isEnabled() { return props.isEnabled(); }
+    public boolean isEnabled() { return props.isEnabled() && writer != null; }
+
+    /** Registros pendientes de drenar, en O(1). */
+    public synchronized long depth() { return pending; }
+
+    /** Registros dañados saltados desde el arranque. */
+    public synchronized long quarantinedTotal() { return quarantined; }
+
+    public boolean enqueue(String payload, String reason) {
+        return enqueue(payload.getBytes(StandardCharsets.UTF_8), reason);
+    }
+
+    public boolean enqueue(byte[] payload, String reason) {
+        return enqueue(payload, reason, System.currentTimeMillis());
+    }
 
-    public Path enqueue(String payload, String reason) {
+    /**
+     * @param receivedAtMillis instante en que llegó el mensaje; se conserva como
+     *                         {@link BacklogRecord#enqueuedAtMillis()} para que el
+     *                         replay use la hora de lectura original
+     */
+    public synchronized boolean enqueue(byte[] payload, String reason, long receivedAtMillis) {
+        if (writer == null) return false;
         try {
-            String name = String.format("%d_%s_%s.json", Instant.now().toEpochMilli(), reason, UUID.randomUUID());
-            Path p = dir.resolve(name);
-            Files.writeString(p, payload, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
-            return p;
+            append(payload, reason, receivedAtMillis);
+            pending++;
+            return true;
         } catch (Exception e) {
-            log.error("Failed to write backlog file: {}", e.getMessage());
-            return null;
+            log.error("Failed to append backlog record: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Lee hasta {@code max} registros a partir del cursor, sin avanzarlo.
+     * El llamador confirma cada registro procesado con {@link #commit}.
+     */
+    public synchronized List<BacklogRecord> readBatch(int max) {
+        List<BacklogRecord> out = new ArrayList<>();
+        if (writer == null) return out;
+        long seg = cursorSegment;
+        long off = cursorOffset;
+        try {
+            while (out.size() < max) {
+                long end = seg == activeSegment ? writePos : segmentChannel(seg).size();
+                BacklogRecord rec = off + HEADER_BYTES <= end ? readRecord(seg, off, end) : null;
+                if (rec != null) {
+                    out.add(rec);
+                    off = rec.nextOffset();
+                    continue;
+                }
+                if (off + HEADER_BYTES <= end) {
+                    // dañado antes de lo escrito: se salta cuando el cursor llega a él
+                    if (seg != cursorSegment || off != cursorOffset) break;
+                    off = quarantine(seg, off, end);
+                    if (off < end) continue;
+                    seg = cursorSegment;
+                    off = cursorOffset;
+                    if (off < (seg == activeSegment ? writePos : segmentChannel(seg).size())) continue;
+                }
+                if (seg == activeSegment) break;
+                Long next = segments.higher(seg);
+                if (next == null) break;
+                seg = next;
+                off = 0;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read backlog at {}:{}: {}", seg, off, e.getMessage());
         }
+        return out;
     }
 
-    public List<Path> listOldestFirst(int limit) {
+    /** Marca como consumido todo hasta {@code rec} inclusive y borra segmentos ya leídos. */
+    public void commit(BacklogRecord rec) {
+        commitAll(List.of(rec));
+    }
+
+    /**
+     * Confirma un lote leído con {@link #readBatch}: el cursor avanza hasta el
+     * último registro y se persiste una sola vez.
+     */
+    public synchronized void commitAll(List<BacklogRecord> recs) {
+        if (recs.isEmpty()) return;
+        BacklogRecord last = recs.get(recs.size() - 1);
+        pending = Math.max(0, pending - recs.size());
+        cursorSegment = last.segment();
+        cursorOffset = last.nextOffset();
+        try {
+            while (cursorSegment != activeSegment && cursorOffset >= segmentChannel(cursorSegment).size()) {
+                Long next = segments.higher(cursorSegment);
+                if (next == null) break;
+                cursorSegment = next;
+                cursorOffset = 0;
+            }
+            persistCursor();
+            while (!segments.isEmpty() && segments.first() < cursorSegment) {
+                deleteSegment(segments.pollFirst());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to commit backlog cursor {}:{}: {}", cursorSegment, cursorOffset, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeQuietly(reader);
+        closeQuietly(writer);
+        closeQuietly(cursorChannel);
+        reader = null;
+        writer = null;
+        cursorChannel = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Apertura / recuperación
+    // -------------------------------------------------------------------------
+
+    private void open() throws IOException {
         try (Stream<Path> st = Files.list(dir)) {
-            return st.filter(Files::isRegularFile)
-                    .sorted(Comparator.comparingLong(this::fileTime))
-                    .limit(limit)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return List.of();
+            st.map(p -> p.getFileName().toString())
+              .filter(n -> n.endsWith(SEGMENT_SUFFIX))
+              .forEach(n -> {
+                  try {
+                      segments.add(Long.parseLong(n.substring(0, n.length() - SEGMENT_SUFFIX.length())));
+                  } catch (NumberFormatException ignored) {
+                  }
+              });
+        }
+        if (segments.isEmpty()) {
+            segments.add(1L);
+        }
+        activeSegment = segments.last();
+
+        cursorChannel = FileChannel.open(dir.resolve(CURSOR_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer cur = ByteBuffer.allocate(16);
+        if (cursorChannel.read(cur, 0) == 16) {
+            cur.flip();
+            cursorSegment = cur.getLong();
+            cursorOffset = cur.getLong();
+        }
+        if (!segments.contains(cursorSegment)) {
+            // cursor inexistente o apuntando a un segmento ya borrado
+            Long first = segments.ceiling(cursorSegment);
+            cursorSegment = first != null ? first : segments.first();
+            cursorOffset = 0;
+        }
+
+        writer = FileChannel.open(segmentPath(activeSegment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writePos = recoverEnd(activeSegment, cursorSegment == activeSegment ? cursorOffset : 0);
+        if (writePos < writer.size()) {
+            log.warn("Truncating torn backlog tail in segment {} at offset {} (size {})",
+                    activeSegment, writePos, writer.size());
+            writer.truncate(writePos);
+        }
+        if (cursorSegment == activeSegment && cursorOffset > writePos) {
+            cursorOffset = writePos;
         }
+        pending = countFromCursor();
+        log.info("Backlog log opened: dir={} segments={} active={} writePos={} cursor={}:{} pending={}",
+                dir, segments.size(), activeSegment, writePos, cursorSegment, cursorOffset, pending);
     }
 
-    private long fileTime(Path p) {
+    /**
+     * Recorre el segmento desde {@code from} y devuelve el fin de lo escrito:
+     * se detiene en el último registro si está incompleto o no pasa el CRC
+     * (escritura cortada); uno dañado con más datos detrás se conserva para
+     * que la lectura lo ponga en cuarentena.
+     */
+    private long recoverEnd(long seg, long from) throws IOException {
+        long size = writer.size();
+        long off = Math.min(from, size);
+        while (off + HEADER_BYTES <= size) {
+            BacklogRecord rec = readRecord(seg, off, size);
+            if (rec != null) {
+                off = rec.nextOffset();
+                continue;
+            }
+            long skipTo = skipCorrupt(seg, off, size);
+            if (skipTo >= size) break;
+            off = skipTo;
+        }
+        return off;
+    }
+
+    /** Cuenta los registros válidos desde el cursor (una sola pasada al arrancar). */
+    private long countFromCursor() throws IOException {
+        long count = 0;
+        for (Long seg : segments.tailSet(cursorSegment, true)) {
+            long off = seg == cursorSegment ? cursorOffset : 0;
+            long end = seg == activeSegment ? writePos : segmentChannel(seg).size();
+            while (off + HEADER_BYTES <= end) {
+                BacklogRecord rec = readRecord(seg, off, end);
+                if (rec != null) {
+                    count++;
+                    off = rec.nextOffset();
+                } else {
+                    off = skipCorrupt(seg, off, end);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Dónde sigue la lectura tras un registro dañado en {@code off}: después
+     * de él si su largo es plausible, si no el final del segmento.
+     */
+    private long skipCorrupt(long seg, long off, long end) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(segmentChannel(seg), header, off);
+        int bodyLen = header.getInt(0);
+        long next = off + HEADER_BYTES + (long) bodyLen;
+        return bodyLen >= BODY_FIXED_BYTES && next <= end ? next : end;
+    }
+
+    /**
+     * Copia a {@code quarantine/} el registro dañado en el cursor, avanza el
+     * cursor más allá y devuelve el offset desde el que seguir en {@code seg}.
+     */
+    private long quarantine(long seg, long off, long end) throws IOException {
+        long skipTo = skipCorrupt(seg, off, end);
+        quarantined++;
+        Path target = dir.resolve(QUARANTINE_DIR).resolve(String.format("%020d-%d.bad", seg, off));
+        try {
+            Files.createDirectories(target.getParent());
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                FileChannel in = segmentChannel(seg);
+                for (long pos = off; pos < skipTo; ) {
+                    pos += in.transferTo(pos, skipTo - pos, out);
+                }
+            }
+            log.error("Corrupt backlog record at {}:{}; moved {} bytes to {}", seg, off, skipTo - off, target);
+        } catch (IOException e) {
+            log.error("Corrupt backlog record at {}:{}; skipped {} bytes (quarantine failed: {})",
+                    seg, off, skipTo - off, e.getMessage());
+        }
+        cursorSegment = seg;
+        cursorOffset = skipTo;
+        if (seg != activeSegment && skipTo >= end) {
+            Long next = segments.higher(seg);
+            if (next != null) {
+                cursorSegment = next;
+                cursorOffset = 0;
+            }
+        }
+        persistCursor();
+        while (!segments.isEmpty() && segments.first() < cursorSegment) {
+            deleteSegment(segments.pollFirst());
+        }
+        return skipTo;
+    }
+
+    private void migrateLegacyFiles() {
+        List<Path> legacy;
+        try (Stream<Path> st = Files.list(dir)) {
+            legacy = st.filter(p -> p.getFileName().toString().endsWith(".json"))
+                       .sorted(Comparator.comparingLong(BacklogStore::legacyTimestamp))
+                       .toList();
+        } catch (IOException e) {
+            log.warn("Could not list legacy backlog files: {}", e.getMessage());
+            return;
+        }
+        if (legacy.isEmpty()) return;
+
+        int migrated = 0;
+        for (Path p : legacy) {
+            try {
+                String name = p.getFileName().toString();
+                int first = name.indexOf('_');
+                int last = name.lastIndexOf('_');
+                String reason = first >= 0 && last > first ? name.substring(first + 1, last) : "legacy";
+                synchronized (this) {
+                    append(Files.readAllBytes(p), reason, legacyTimestamp(p));
+                    pending++;
+                }
+                Files.deleteIfExists(p);
+                migrated++;
+            } catch (IOException e) {
+                log.warn("Could not migrate legacy backlog file {}: {}", p.getFileName(), e.getMessage());
+            }
+        }
+        log.info("Migrated {} legacy backlog files into the segmented log", migrated);
+    }
+
+    /** Hora de llegada del nombre del archivo; si no se puede leer, la de modificación (o ahora). */
+    static long legacyTimestamp(Path p) {
+        String name = p.getFileName().toString();
+        int us = name.indexOf('_');
+        try {
+            return Long.parseLong(us > 0 ? name.substring(0, us) : name);
+        } catch (NumberFormatException e) {
+            try {
+                return Files.getLastModifiedTime(p).toMillis();
+            } catch (IOException ex) {
+                return System.currentTimeMillis();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Formato de registro
+    // -------------------------------------------------------------------------
+
+    private void append(byte[] payload, String reason, long enqueuedAt) throws IOException {
+        byte[] reasonBytes = reason != null ? reason.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int bodyLen = BODY_FIXED_BYTES + reasonBytes.length + payload.length;
+        int recLen = HEADER_BYTES + bodyLen;
+        if (writePos > 0 && writePos + recLen > props.getSegmentBytes()) {
+            roll();
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(recLen);
+        buf.putInt(bodyLen).putInt(0)
+           .putLong(enqueuedAt)
+           .putShort((short) reasonBytes.length).put(reasonBytes)
+           .put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER_BYTES, bodyLen);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+
+        long pos = writePos;
+        while (buf.hasRemaining()) {
+            pos += writer.write(buf, pos);
+        }
+        if (props.isFsync()) {
+            writer.force(false);
+        }
+        writePos = pos;
+    }
+
+    /** @return el registro en {@code off}, o null si está incompleto o no pasa el CRC */
+    private BacklogRecord readRecord(long seg, long off, long end) throws IOException {
+        FileChannel ch = segmentChannel(seg);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(ch, header, off);
+        header.flip();
+        int bodyLen = header.getInt();
+        int expectedCrc = header.getInt();
+        if (bodyLen < BODY_FIXED_BYTES || off + HEADER_BYTES + bodyLen > end) {
+            return null;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLen);
+        readFully(ch, body, off + HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, bodyLen);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        body.flip();
+        long enqueuedAt = body.getLong();
+        int reasonLen = body.getShort() & 0xFFFF;
+        if (BODY_FIXED_BYTES + reasonLen > bodyLen) {
+            return null;
+        }
+        String reason = new String(body.array(), BODY_FIXED_BYTES, reasonLen, StandardCharsets.UTF_8);
+        int payloadStart = BODY_FIXED_BYTES + reasonLen;
+        byte[] payload = new byte[bodyLen - payloadStart];
+        System.arraycopy(body.array(), payloadStart, payload, 0, payload.length);
+        return new BacklogRecord(seg, off, off + HEADER_BYTES + bodyLen, enqueuedAt, reason, payload);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new EOFException("Unexpected end of backlog segment at " + pos);
+            pos += n;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Segmentos / cursor
+    // -------------------------------------------------------------------------
+
+    private void roll() throws IOException {
+        writer.force(false);
+        writer.close();
+        activeSegment++;
+        segments.add(activeSegment);
+        writer = FileChannel.open(segmentPath(activeSegment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writePos = 0;
+        log.debug("Backlog rolled to segment {}", activeSegment);
+    }
+
+    private FileChannel segmentChannel(long seg) throws IOException {
+        if (seg == activeSegment) return writer;
+        if (readerSegment != seg) {
+            closeQuietly(reader);
+            reader = FileChannel.open(segmentPath(seg), StandardOpenOption.READ);
+            readerSegment = seg;
+        }
+        return reader;
+    }
+
+    private void persistCursor() throws IOException {
+        ByteBuffer cur = ByteBuffer.allocate(16).putLong(cursorSegment).putLong(cursorOffset);
+        cur.flip();
+        long pos = 0;
+        while (cur.hasRemaining()) {
+            pos += cursorChannel.write(cur, pos);
+        }
+    }
+
+    private void deleteSegment(long seg) {
+        if (readerSegment == seg) {
+            closeQuietly(reader);
+            reader = null;
+            readerSegment = -1;
+        }
         try {
-            return Files.getLastModifiedTime(p).toMillis();
+            Files.deleteIfExists(segmentPath(seg));
+            log.debug("Deleted consumed backlog segment {}", seg);
         } catch (IOException e) {
-            return Long.MAX_VALUE;
+            log.warn("Could not delete backlog segment {}: {}", seg, e.getMessage());
         }
     }
 
-    public String read(Path p) throws IOException {
-        return Files.readString(p, StandardCharsets.UTF_8);
+    private Path segmentPath(long seg) {
+        return dir.resolve(String.format("%020d%s", seg, SEGMENT_SUFFIX));
     }
 
-    public void delete(Path p) {
-        try { Files.deleteIfExists(p); } catch (IOException ignored) {}
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try { ch.close(); } catch (IOException ignored) {}
     }
 }
@@ -0,0 +1,53 @@
+package com.example.mdt.infrastructure.adapter.codec;
+
+/**
+ * EPC (hex ASCII) ↔ bytes para la columna {@code detecciones_tags.epc_bin}.
+ *
+ * Un EPC de 96 bits ocupa 24 caracteres utf8mb4 en {@code epc} y 12 bytes en
+ * {@code epc_bin}. Solo se codifica hex en mayúsculas, de longitud par y hasta
+ * {@link #MAX_BYTES} bytes: es la forma que {@link #decode} (y {@code HEX()} en
+ * la vista) devuelve, así que {@code decode(encode(epc))} es exactamente el
+ * EPC recibido. Cualquier otro valor, incluido hex en minúsculas, devuelve
+ * null y se guarda como texto, de modo que no se pierde nada.
+ */
+public final class EpcCodec {
+
+    /** Tamaño de {@code epc_bin VARBINARY(32)}: hasta 256 bits. */
+    public static final int MAX_BYTES = 32;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private EpcCodec() {}
+
+    /** @return los bytes del EPC, o null si no es hex en mayúsculas, par y de hasta {@link #MAX_BYTES} bytes */
+    public static byte[] encode(String epc) {
+        if (epc == null) return null;
+        int n = epc.length();
+        if (n == 0 || (n & 1) != 0 || n > MAX_BYTES * 2) return null;
+        byte[] out = new byte[n >> 1];
+        for (int i = 0; i < n; i += 2) {
+            int hi = hex(epc.charAt(i));
+            int lo = hex(epc.charAt(i + 1));
+            if (hi < 0 || lo < 0) return null;
+            out[i >> 1] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    public static String decode(byte[] bytes) {
+        if (bytes == null) return null;
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            out[2 * i] = HEX[b >>> 4];
+            out[2 * i + 1] = HEX[b & 0x0F];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mdt.infrastructure.adapter.codec;
+
+import com.example.mdt.domain.model.Scan;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodifica el payload SCAN directamente desde el byte[] del mensaje con el
+ * {@link JsonParser} de streaming de Jackson: sin árbol {@code JsonNode} ni
+ * copia del cuerpo a {@code String}. Los campos desconocidos se saltan.
+ *
+ * Lo comparten el listener MQTT y el drenado del backlog.
+ */
+@Component
+public class ScanPayloadDecoder {
+
+    private final JsonFactory factory = new JsonFactory();
+
+    /**
+     * @return el SCAN leído; {@code datatype} puede ser null o distinto de "SCAN"
+     *         y {@code csn} es una lista vacía si no vino el arreglo CSN
+     * @throws IOException si el payload no es un objeto JSON válido
+     */
+    public Scan decode(byte[] payload) throws IOException {
+        return decode(payload, 0, payload.length);
+    }
+
+    public Scan decode(byte[] payload, int offset, int length) throws IOException {
+        try (JsonParser p = factory.createParser(payload, offset, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "SCAN payload must be a JSON object");
+            }
+            String datatype = null;
+            String stage = null;
+            String device = null;
+            String machine = null;
+            String version = null;
+            List<String> csn = List.of();
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("DATATYPE".equals(field)) {
+                    datatype = scalar(p, value);
+                } else if ("OBJECT".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String objField = p.currentName();
+                        JsonToken objValue = p.nextToken();
+                        switch (objField) {
+                            case "STAGE" -> stage = scalar(p, objValue);
+                            case "DEVICE" -> device = scalar(p, objValue);
+                            case "MACHINE" -> machine = scalar(p, objValue);
+                            case "VERSION" -> version = scalar(p, objValue);
+                            case "CSN" -> csn = csnArray(p, objValue);
+                            default -> p.skipChildren();
+                        }
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return new Scan(datatype, stage, device, machine, version, csn);
+        }
+    }
+
+    private static String scalar(JsonParser p, JsonToken token) throws IOException {
+        if (token.isScalarValue()) {
+            return p.getValueAsString();
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static List<String> csnArray(JsonParser p, JsonToken token) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return List.of();
+        }
+        List<String> out = new ArrayList<>();
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == null) {
+                throw new JsonParseException(p, "Unexpected end of input inside CSN array");
+            }
+            out.add(scalar(p, t));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import com.example.mdt.infrastructure.adapter.mariadb.CompactSchemaProperties;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Lo mismo que {@link FlywayLazyMigrator} hace con el esquema compacto, para
+ * cuando las migraciones las corre Spring al arrancar ({@code FLYWAY_ENABLED=true}).
+ */
+@Component
+public class CompactSchemaFlywayCustomizer implements FlywayConfigurationCustomizer {
+    private final CompactSchemaProperties compact;
+
+    public CompactSchemaFlywayCustomizer(CompactSchemaProperties compact) {
+        this.compact = compact;
+    }
+
+    @Override
+    public void customize(FluentConfiguration config) {
+        String[] current = Arrays.stream(config.getLocations()).map(Location::getDescriptor).toArray(String[]::new);
+        String[] locations = FlywayLazyMigrator.locations(current, compact.isEnabled());
+        config.locations(locations);
+        FlywayLazyMigrator.configureCompact(config, compact.isEnabled());
+    }
+}
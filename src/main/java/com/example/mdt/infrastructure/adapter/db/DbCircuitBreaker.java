@@ -0,0 +1,264 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker de escritura a la DB, alimentado por los inserts reales
+ * (ver {@code CircuitBreakingDeteccionesGateway}). Es la fuente de verdad de
+ * la disponibilidad: {@link DbHealthService} solo sondea con SELECT 1 hasta
+ * aplicar las migraciones.
+ *
+ * <ul>
+ *   <li>CLOSED: todo pasa. Abre al instante ante un error de conexión o
+ *       timeout, cuando la tasa de errores + inserts lentos de la ventana
+ *       supera el umbral, o cuando un insert lleva más de {@code slow-call-ms}
+ *       en curso (un pool sin conexiones no espera al connectionTimeout). El
+ *       límite crece con el tamaño del lote ({@code slow-call-per-row-us}):
+ *       un catch-up o LOAD DATA de miles de filas no cuenta como lento por
+ *       tardar más que un SCAN.</li>
+ *   <li>OPEN: {@link #tryAcquire()} devuelve false sin bloquear; la ingesta
+ *       manda los mensajes al backlog. Pasado {@code open-ms} pasa a HALF_OPEN.</li>
+ *   <li>HALF_OPEN: un insert de prueba cada {@code probe-interval-ms}.
+ *       {@code close-after-probes} correctos seguidos cierran; uno fallido
+ *       vuelve a OPEN con el doble de espera (hasta {@code max-open-ms}).</li>
+ * </ul>
+ */
+@Component
+public class DbCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(DbCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final DbCircuitBreakerProperties props;
+    private final long slowCallNanos;
+    private final long slowCallPerRowNanos;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openUntilNanos;
+    private long currentOpenMs;
+    private int probeSuccesses;
+    private final AtomicLong nextProbeNanos = new AtomicLong();
+
+    /** Ventana circular de resultados: true = error o lento. */
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+
+    private final AtomicLong callIds = new AtomicLong();
+    /** Insert en curso: cuándo empezó y cuánto puede tardar sin contar como lento. */
+    private record Call(long startedNanos, long limitNanos) {}
+
+    private final Map<Long, Call> inFlight = new ConcurrentHashMap<>();
+
+    public DbCircuitBreaker(DbCircuitBreakerProperties props) {
+        this.props = props;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(props.getSlowCallMs());
+        this.slowCallPerRowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, props.getSlowCallPerRowUs()));
+        this.window = new boolean[Math.max(1, props.getWindowSize())];
+        this.currentOpenMs = props.getOpenMs();
+    }
+
+    public State state() { return state; }
+
+    public boolean isClosed() { return state == State.CLOSED; }
+
+    /**
+     * true mientras está OPEN y no se cumplió su espera; no toma el turno de
+     * prueba. Para tareas que solo consultan si vale la pena ir a la DB.
+     */
+    public boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openUntilNanos < 0;
+    }
+
+    /**
+     * Sin bloquear: true si se puede escribir ahora. En HALF_OPEN solo el
+     * llamador que obtiene el turno de prueba recibe true.
+     */
+    public boolean tryAcquire() {
+        if (!props.isEnabled()) return true;
+        State s = state;
+        if (s == State.CLOSED) {
+            if (stuckCall()) {
+                trip("insert in flight longer than its slow-call limit");
+                return false;
+            }
+            return true;
+        }
+        long now = System.nanoTime();
+        if (s == State.OPEN) {
+            synchronized (this) {
+                if (state == State.OPEN && now - openUntilNanos >= 0) {
+                    state = State.HALF_OPEN;
+                    probeSuccesses = 0;
+                    nextProbeNanos.set(now);
+                    log.info("DB circuit HALF_OPEN: probing with live writes");
+                }
+            }
+            if (state != State.HALF_OPEN) return false;
+        }
+        long next = nextProbeNanos.get();
+        return now - next >= 0
+                && nextProbeNanos.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(props.getProbeIntervalMs()));
+    }
+
+    /** Marca el inicio de un insert de una fila; ver {@link #start(int)}. */
+    public long start() {
+        return start(1);
+    }
+
+    /**
+     * Marca el inicio de un insert de {@code rows} filas; el id se pasa a
+     * {@link #onSuccess}/{@link #onFailure}. Su límite de lentitud es
+     * {@code slow-call-ms + rows * slow-call-per-row-us}.
+     */
+    public long start(int rows) {
+        long id = callIds.incrementAndGet();
+        long limit = slowCallNanos + Math.max(0, rows - 1) * slowCallPerRowNanos;
+        inFlight.put(id, new Call(System.nanoTime(), limit));
+        return id;
+    }
+
+    public void onSuccess(long callId) {
+        Call call = inFlight.remove(callId);
+        if (!props.isEnabled() || call == null) return;
+        boolean slow = System.nanoTime() - call.startedNanos() > call.limitNanos();
+        synchronized (this) {
+            switch (state) {
+                case CLOSED -> record(slow);
+                case HALF_OPEN -> {
+                    if (slow) {
+                        reopen("slow probe write");
+                    } else if (++probeSuccesses >= props.getCloseAfterProbes()) {
+                        close();
+                    }
+                }
+                case OPEN -> { /* insert que empezó antes de abrir: no cambia nada */ }
+            }
+        }
+    }
+
+    /** Errores que no son de disponibilidad (constraint, validación) cuentan como éxito del DB. */
+    public void onFailure(long callId, Throwable error) {
+        if (!isUnavailable(error)) {
+            onSuccess(callId);
+            return;
+        }
+        inFlight.remove(callId);
+        if (!props.isEnabled()) return;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                reopen(describe(error));
+            } else if (state == State.CLOSED) {
+                open(describe(error));
+            }
+        }
+    }
+
+    /** El SELECT 1 previo a la migración falló: misma reacción que un insert con error de conexión. */
+    public void onHealthCheckFailure(Throwable error) {
+        if (!props.isEnabled()) return;
+        synchronized (this) {
+            if (state == State.CLOSED) open("health check: " + describe(error));
+        }
+    }
+
+    /** Errores de conexión, timeout o pool agotado (recorre las causas). */
+    public static boolean isUnavailable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLTimeoutException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof ConnectException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof QueryTimeoutException
+                    || t instanceof TransientDataAccessResourceException
+                    || t instanceof CannotCreateTransactionException) {
+                return true;
+            }
+            // SQLState clase 08: excepción de conexión
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean stuckCall() {
+        if (inFlight.isEmpty()) return false;
+        long now = System.nanoTime();
+        for (Call call : inFlight.values()) {
+            if (now - call.startedNanos() > call.limitNanos()) return true;
+        }
+        return false;
+    }
+
+    private synchronized void trip(String reason) {
+        if (state == State.CLOSED) open(reason);
+    }
+
+    private void record(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowPos]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = failed;
+        if (failed) windowFailures++;
+        windowPos = (windowPos + 1) % window.length;
+        if (windowCount >= props.getMinimumCalls()
+                && windowFailures >= props.getFailureRateThreshold() * windowCount) {
+            open(windowFailures + " slow/failed of last " + windowCount + " writes");
+        }
+    }
+
+    private void open(String reason) {
+        currentOpenMs = props.getOpenMs();
+        enterOpen();
+        log.warn("DB circuit OPEN for {} ms: {}", currentOpenMs, reason);
+    }
+
+    private void reopen(String reason) {
+        currentOpenMs = Math.min(props.getMaxOpenMs(), currentOpenMs * 2);
+        enterOpen();
+        log.warn("DB circuit probe failed, OPEN again for {} ms: {}", currentOpenMs, reason);
+    }
+
+    private void enterOpen() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(currentOpenMs);
+        windowPos = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        currentOpenMs = props.getOpenMs();
+        log.info("DB circuit CLOSED after {} successful probe writes", probeSuccesses);
+    }
+
+    private static String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+}
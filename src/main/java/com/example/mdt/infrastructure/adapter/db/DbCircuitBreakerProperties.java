@@ -0,0 +1,60 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "db.circuit-breaker")
+public class DbCircuitBreakerProperties {
+    private boolean enabled = true;
+    /** Un insert más lento que esto cuenta como fallo; uno en curso más tiempo abre el circuito. */
+    private long slowCallMs = 2000;
+    /**
+     * Tiempo extra permitido por fila: un lote grande (catch-up, LOAD DATA de
+     * 100k filas) tiene {@code slow-call-ms + filas * slow-call-per-row-us}.
+     */
+    private long slowCallPerRowUs = 100;
+    /** Inserts recientes evaluados para la tasa de fallos (errores + lentos). */
+    private int windowSize = 50;
+    /** Mínimo de inserts en la ventana antes de evaluar la tasa. */
+    private int minimumCalls = 10;
+    /** Tasa de fallos (0..1) que abre el circuito. */
+    private double failureRateThreshold = 0.5;
+    /** Tiempo abierto antes del primer insert de prueba; se duplica con cada prueba fallida. */
+    private long openMs = 2000;
+    private long maxOpenMs = 60000;
+    /** En HALF_OPEN, como mucho un insert de prueba cada este intervalo. */
+    private long probeIntervalMs = 1000;
+    /** Pruebas correctas seguidas para cerrar el circuito. */
+    private int closeAfterProbes = 3;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getSlowCallMs() { return slowCallMs; }
+    public void setSlowCallMs(long slowCallMs) { this.slowCallMs = slowCallMs; }
+
+    public long getSlowCallPerRowUs() { return slowCallPerRowUs; }
+    public void setSlowCallPerRowUs(long slowCallPerRowUs) { this.slowCallPerRowUs = slowCallPerRowUs; }
+
+    public int getWindowSize() { return windowSize; }
+    public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+    public int getMinimumCalls() { return minimumCalls; }
+    public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+    public double getFailureRateThreshold() { return failureRateThreshold; }
+    public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+    public long getOpenMs() { return openMs; }
+    public void setOpenMs(long openMs) { this.openMs = openMs; }
+
+    public long getMaxOpenMs() { return maxOpenMs; }
+    public void setMaxOpenMs(long maxOpenMs) { this.maxOpenMs = maxOpenMs; }
+
+    public long getProbeIntervalMs() { return probeIntervalMs; }
+    public void setProbeIntervalMs(long probeIntervalMs) { this.probeIntervalMs = probeIntervalMs; }
+
+    public int getCloseAfterProbes() { return closeAfterProbes; }
+    public void setCloseAfterProbes(int closeAfterProbes) { this.closeAfterProbes = closeAfterProbes; }
+}
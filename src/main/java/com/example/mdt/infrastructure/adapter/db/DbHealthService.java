@@ -10,54 +10,63 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Estado de la DB para el resto del servicio.
+ *
+ * El SELECT 1 periódico solo corre hasta que las migraciones de Flyway se
+ * aplicaron (la DB puede no estar al arrancar). Desde ahí la disponibilidad
+ * la decide {@link DbCircuitBreaker}, alimentado por las escrituras reales:
+ * la ruta de escritura usa {@link #isMigrated()} + {@code tryAcquire()} y las
+ * tareas de fondo {@link #isAvailable()}.
+ */
 @Component
 public class DbHealthService {
     private static final Logger log = LoggerFactory.getLogger(DbHealthService.class);
 
     private final DataSource dataSource;
-    private final AtomicBoolean available = new AtomicBoolean(false);
     private final FlywayLazyMigrator migrator;
+    private final DbCircuitBreaker breaker;
     private final AtomicBoolean migrated = new AtomicBoolean(false);
+    private volatile boolean unreachableLogged;
 
-    public DbHealthService(DataSource dataSource, FlywayLazyMigrator migrator) {
+    public DbHealthService(DataSource dataSource, FlywayLazyMigrator migrator, DbCircuitBreaker breaker) {
         this.dataSource = dataSource;
         this.migrator = migrator;
+        this.breaker = breaker;
     }
 
+    /** true una vez aplicadas las migraciones. */
+    public boolean isMigrated() {
+        return migrated.get();
+    }
+
+    /** Migrada y con el circuito sin abrir (o con su espera ya cumplida). */
     public boolean isAvailable() {
-        return available.get();
+        return migrated.get() && !breaker.isOpen();
     }
 
     @Scheduled(fixedDelayString = "${db.health.check-interval-ms:5000}")
     public void check() {
-        boolean ok = false;
+        if (migrated.get()) return;
         try (Connection c = dataSource.getConnection();
              PreparedStatement ps = c.prepareStatement("SELECT 1")) {
             ps.execute();
-            ok = true;
         } catch (Exception ex) {
-            ok = false;
-            if (available.get()) {
-                log.warn("DB became unavailable: {}", ex.getMessage());
+            breaker.onHealthCheckFailure(ex);
+            if (!unreachableLogged) {
+                unreachableLogged = true;
+                log.warn("DB unavailable, schema not migrated yet: {}", ex.getMessage());
             } else {
                 log.debug("DB still unavailable: {}", ex.getMessage());
             }
+            return;
         }
-        boolean prev = available.getAndSet(ok);
-        if (!prev && ok) {
+        try {
+            migrator.migrate();
+            migrated.set(true);
             log.info("DB is now AVAILABLE");
-            if (!migrated.get()) {
-                try {
-                    migrator.migrate();
-                    migrated.set(true);
-                } catch (Exception e) {
-                    log.error("Flyway migration failed (will retry next check): {}", e.getMessage());
-                    migrated.set(false);
-                }
-            }
-        }
-        if (prev && !ok) {
-            log.warn("DB is now UNAVAILABLE");
+        } catch (Exception e) {
+            log.error("Flyway migration failed (will retry next check): {}", e.getMessage());
         }
     }
 }
@@ -1,30 +1,37 @@
 package com.example.mdt.infrastructure.adapter.db;
 
+import com.example.mdt.infrastructure.adapter.mariadb.CompactSchemaProperties;
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class FlywayLazyMigrator {
     private static final Logger log = LoggerFactory.getLogger(FlywayLazyMigrator.class);
 
+    /** Migraciones del esquema compacto: solo con {@code ingest.compact.enabled=true}. */
+    static final String COMPACT_LOCATION = "classpath:db/migration-compact";
+
     private final DataSource dataSource;
-    private final String locations;
+    private final String[] locations;
     private final boolean baselineOnMigrate;
     private final AtomicBoolean ran = new AtomicBoolean(false);
 
     public FlywayLazyMigrator(
             DataSource dataSource,
+            CompactSchemaProperties compact,
             @Value("${flyway.locations:classpath:db/migration}") String locations,
             @Value("${flyway.lazy.baseline-on-migrate:false}") boolean baselineOnMigrate
     ) {
         this.dataSource = dataSource;
-        this.locations = locations;
+        this.locations = locations(locations.split(","), compact.isEnabled());
         this.baselineOnMigrate = baselineOnMigrate;
     }
 
@@ -32,15 +39,36 @@ public class FlywayLazyMigrator {
         if (ran.get()) return;
         synchronized (this) {
             if (ran.get()) return;
-            log.info("Running Flyway migrations lazily (locations={})", locations);
-            Flyway flyway = Flyway.configure()
+            log.info("Running Flyway migrations lazily (locations={})", String.join(",", locations));
+            FluentConfiguration config = Flyway.configure()
                     .dataSource(dataSource)
                     .locations(locations)
-                    .baselineOnMigrate(baselineOnMigrate)
-                    .load();
-            flyway.migrate();
+                    .baselineOnMigrate(baselineOnMigrate);
+            configureCompact(config, Arrays.asList(locations).contains(COMPACT_LOCATION));
+            config.load().migrate();
             ran.set(true);
             log.info("Flyway migrations completed");
         }
     }
+
+    static String[] locations(String[] base, boolean compact) {
+        String[] trimmed = Arrays.stream(base).map(String::trim).filter(s -> !s.isEmpty()).toArray(String[]::new);
+        if (!compact || Arrays.asList(trimmed).contains(COMPACT_LOCATION)) return trimmed;
+        String[] out = Arrays.copyOf(trimmed, trimmed.length + 1);
+        out[trimmed.length] = COMPACT_LOCATION;
+        return out;
+    }
+
+    /**
+     * V4_1 queda entre V4 y V5: activarlo sobre una DB ya migrada necesita
+     * outOfOrder, y apagarlo después deja una migración aplicada sin archivo,
+     * que no debe frenar el arranque.
+     */
+    static void configureCompact(FluentConfiguration config, boolean compact) {
+        if (compact) {
+            config.outOfOrder(true);
+        } else {
+            config.ignoreMigrationPatterns("versioned:missing");
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "db.partitions")
+public class PartitionMaintenanceProperties {
+
+    public enum Granularity { DAY, MONTH }
+
+    private boolean enabled = true;
+    /** Tamaño de cada partición nueva de detecciones_tags. */
+    private Granularity granularity = Granularity.DAY;
+    /** Particiones futuras que deben existir siempre por delante de hoy. */
+    private int precreate = 7;
+    /** Días de detecciones a conservar; 0 (por defecto) = no se elimina nada. */
+    private int retentionDays = 0;
+    /** Con true solo se registra en el log qué particiones se eliminarían. */
+    private boolean retentionDryRun = false;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+
+    public int getPrecreate() { return precreate; }
+    public void setPrecreate(int precreate) { this.precreate = precreate; }
+
+    public int getRetentionDays() { return retentionDays; }
+    public void setRetentionDays(int retentionDays) { this.retentionDays = retentionDays; }
+
+    public boolean isRetentionDryRun() { return retentionDryRun; }
+    public void setRetentionDryRun(boolean retentionDryRun) { this.retentionDryRun = retentionDryRun; }
+}
@@ -0,0 +1,151 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantenimiento de las particiones por rango de {@code detecciones_tags} (V3).
+ *
+ * En cada pasada:
+ * <ol>
+ *   <li>parte {@code pmax} para que existan {@code precreate} particiones
+ *       futuras (REORGANIZE de una partición vacía: no copia filas);</li>
+ *   <li>si {@code retention-days} es mayor que 0, elimina con DROP PARTITION
+ *       las particiones cuyo límite superior ya quedó fuera de la retención:
+ *       todas sus filas son más antiguas. Con {@code retention-dry-run} solo
+ *       se registran en el log.</li>
+ * </ol>
+ * Si la tabla no está particionada (migración V3 aún no aplicada, u otra
+ * base de datos) no hace nada.
+ */
+@Component
+@ConditionalOnProperty(prefix = "db.partitions", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionMaintenanceService {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    static final String TABLE = "detecciones_tags";
+    static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String PARTITIONS_SQL =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+            + "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    /** Partición existente; {@code upperBound} null para la de MAXVALUE. */
+    record Partition(String name, LocalDate upperBound) {}
+
+    private final PartitionMaintenanceProperties props;
+    private final JdbcTemplate jdbc;
+    private final DbHealthService dbHealth;
+    private volatile boolean notPartitionedLogged;
+
+    public PartitionMaintenanceService(PartitionMaintenanceProperties props, JdbcTemplate jdbc, DbHealthService dbHealth) {
+        this.props = props;
+        this.jdbc = jdbc;
+        this.dbHealth = dbHealth;
+    }
+
+    @Scheduled(initialDelayString = "${db.partitions.initial-delay-ms:60000}",
+               fixedDelayString = "${db.partitions.check-interval-ms:3600000}")
+    public void maintain() {
+        if (!dbHealth.isAvailable()) return;
+        try {
+            List<Partition> partitions = partitions();
+            if (partitions.isEmpty() || !MAX_PARTITION.equals(partitions.get(partitions.size() - 1).name())) {
+                if (!notPartitionedLogged) {
+                    notPartitionedLogged = true;
+                    log.info("{} is not range-partitioned with a '{}' partition; partition maintenance skipped",
+                            TABLE, MAX_PARTITION);
+                }
+                return;
+            }
+            LocalDate today = LocalDate.now();
+            createAhead(partitions, today);
+            dropExpired(partitions(), today);
+        } catch (Exception e) {
+            log.warn("Partition maintenance for {} failed (will retry): {}", TABLE, e.getMessage());
+        }
+    }
+
+    List<Partition> partitions() {
+        return jdbc.query(PARTITIONS_SQL, (rs, i) -> new Partition(
+                rs.getString(1), parseBound(rs.getString(2))), TABLE);
+    }
+
+    private void createAhead(List<Partition> partitions, LocalDate today) {
+        LocalDate last = lastBound(partitions);
+        LocalDate target = today;
+        for (int i = 0; i <= props.getPrecreate(); i++) {
+            target = next(target);
+        }
+        // last = límite superior de la última partición con rango; las nuevas empiezan ahí
+        LocalDate from = last != null ? last : today;
+        if (!from.isBefore(target)) return;
+
+        List<String> defs = new ArrayList<>();
+        while (from.isBefore(target)) {
+            LocalDate to = next(from);
+            defs.add("PARTITION p" + NAME.format(from) + " VALUES LESS THAN ('" + to + "')");
+            from = to;
+        }
+        defs.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbc.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION
+                + " INTO (" + String.join(", ", defs) + ")");
+        log.info("Created {} partitions on {} up to {}", defs.size() - 1, TABLE, from);
+    }
+
+    private void dropExpired(List<Partition> partitions, LocalDate today) {
+        if (props.getRetentionDays() <= 0) return;
+        LocalDate cutoff = today.minusDays(props.getRetentionDays());
+        List<String> expired = new ArrayList<>();
+        for (Partition p : partitions) {
+            if (p.upperBound() != null && !p.upperBound().isAfter(cutoff)) {
+                expired.add(p.name());
+            }
+        }
+        if (expired.isEmpty()) return;
+        if (props.isRetentionDryRun()) {
+            log.info("Retention dry run: would drop {} partitions from {} (retention {} days): {}",
+                    expired.size(), TABLE, props.getRetentionDays(), expired);
+            return;
+        }
+        log.info("Dropping {} partitions from {} older than {} (retention {} days): {}",
+                expired.size(), TABLE, cutoff, props.getRetentionDays(), expired);
+        jdbc.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", expired));
+        log.info("Dropped {} expired partitions from {} (retention {} days): {}",
+                expired.size(), TABLE, props.getRetentionDays(), expired);
+    }
+
+    /** Siguiente límite: mañana, o el día 1 del mes siguiente. */
+    private LocalDate next(LocalDate d) {
+        return props.getGranularity() == PartitionMaintenanceProperties.Granularity.MONTH
+                ? d.withDayOfMonth(1).plusMonths(1)
+                : d.plusDays(1);
+    }
+
+    private static LocalDate lastBound(List<Partition> partitions) {
+        LocalDate last = null;
+        for (Partition p : partitions) {
+            if (p.upperBound() != null) last = p.upperBound();
+        }
+        return last;
+    }
+
+    /** "'2026-10-17'" / "'2026-10-17 00:00:00'" → fecha; MAXVALUE → null. */
+    static LocalDate parseBound(String description) {
+        if (description == null) return null;
+        String s = description.replace("'", "").trim();
+        if (s.isEmpty() || s.equalsIgnoreCase("MAXVALUE")) return null;
+        return LocalDate.parse(s.length() > 10 ? s.substring(0, 10) : s);
+    }
+}
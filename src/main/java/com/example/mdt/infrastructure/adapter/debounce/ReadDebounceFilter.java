@@ -0,0 +1,191 @@
+package com.example.mdt.infrastructure.adapter.debounce;
+
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suprime relecturas del mismo EPC por el mismo lector dentro de una ventana.
+ *
+ * El estado es una tabla hash de direccionamiento abierto sobre arreglos
+ * primitivos ({@code long} clave → {@code long} instante de la última lectura
+ * escrita), sin objetos por entrada. La clave es un hash de 64 bits de
+ * (lector_id, epc). El tamaño es fijo: una entrada vencida se reutiliza y, si
+ * todas las del tramo de sondeo siguen vivas, se desaloja la más antigua.
+ * En el peor caso eso deja pasar una relectura; nunca crece la memoria.
+ *
+ * La tabla está dividida en segmentos con su propio lock para que los shards
+ * de ingesta no compitan por un único monitor.
+ *
+ * {@link #accept} solo consulta: una lectura se suprime si hay una fila escrita
+ * del mismo par a menos de la ventana (antes o después). La tabla avanza en
+ * {@link #committed} con las filas que hicieron commit, así un mensaje que
+ * termina en NACK o se reintenta no mueve la ventana, y un replay de un
+ * mensaje ya escrito encuentra sus propias filas y no las duplica. Las
+ * repeticiones dentro de un mismo SCAN (todas con la misma hora) las filtra
+ * {@link #forMessage()}. Mensajes del mismo par preparados antes de que el
+ * anterior haga commit (write-behind) pasan los dos.
+ *
+ * La ventana se mide sobre la hora de lectura ({@code createdAt}, la de llegada
+ * del mensaje), no sobre el reloj al filtrar: un backlog reproducido horas
+ * después se deduplica igual que en vivo.
+ */
+@Component
+@Order(200)
+@ConditionalOnProperty(prefix = "ingest.debounce", name = "enabled", havingValue = "true")
+public class ReadDebounceFilter implements DeteccionFilter {
+    private static final Logger log = LoggerFactory.getLogger(ReadDebounceFilter.class);
+
+    private static final int SEGMENTS = 64;
+    private static final int MAX_PROBE = 8;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long windowMillis;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder suppressedTotal = new LongAdder();
+
+    public ReadDebounceFilter(ReadDebounceProperties props) {
+        this.windowMillis = Math.max(1, props.getWindowMs());
+        int perSegment = Integer.highestOneBit(Math.max(MAX_PROBE, props.getCapacity() / SEGMENTS - 1) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        log.info("Read debounce enabled (windowMs={}, capacity={})", props.getWindowMs(), perSegment * SEGMENTS);
+    }
+
+    @Override
+    public boolean accept(Deteccion d) {
+        if (d.lectorId() == null || d.epc() == null) return true;
+        long key = key(d.lectorId(), d.epc());
+        return !segment(key).suppresses(key, readAtMillis(d.createdAt()), windowMillis);
+    }
+
+    /** Además de la tabla, deja pasar una sola lectura por par dentro del SCAN. */
+    @Override
+    public DeteccionFilter forMessage() {
+        Set<Long> seen = new HashSet<>();
+        return d -> {
+            if (d.lectorId() == null || d.epc() == null) return true;
+            if (seen.contains(key(d.lectorId(), d.epc()))) return false;
+            if (!accept(d)) return false;
+            seen.add(key(d.lectorId(), d.epc()));
+            return true;
+        };
+    }
+
+    @Override
+    public void committed(PreparedScan prepared) {
+        List<Deteccion> rows = prepared.rows();
+        int row = 0;
+        for (Deteccion d : prepared.reads()) {
+            // rows es una subsecuencia (por identidad) de reads
+            boolean written = row < rows.size() && rows.get(row) == d;
+            if (written) row++;
+            if (d.lectorId() == null || d.epc() == null) continue;
+            long key = key(d.lectorId(), d.epc());
+            long readAt = readAtMillis(d.createdAt());
+            if (written) {
+                segment(key).update(key, readAt);
+                accepted.increment();
+            } else if (segment(key).suppresses(key, readAt, windowMillis)) {
+                suppressed.increment();
+                suppressedTotal.increment();
+            }
+        }
+    }
+
+    /** Relecturas suprimidas desde el arranque. */
+    public long suppressedTotal() { return suppressedTotal.sum(); }
+
+    @Scheduled(fixedDelayString = "${ingest.debounce.report-interval-ms:60000}")
+    public void report() {
+        long s = suppressed.sumThenReset();
+        long a = accepted.sumThenReset();
+        if (s > 0 || a > 0) {
+            log.info("Read debounce: suppressed {} of {} reads (total suppressed={})", s, s + a, suppressedTotal());
+        }
+    }
+
+    /**
+     * Milisegundos de la hora de lectura en una escala local monótona (sin zona:
+     * solo se comparan lecturas entre sí). Sin hora, el reloj actual.
+     */
+    static long readAtMillis(LocalDateTime readAt) {
+        if (readAt == null) return System.currentTimeMillis();
+        return readAt.toEpochSecond(ZoneOffset.UTC) * 1000 + readAt.getNano() / 1_000_000;
+    }
+
+    /** Hash de 64 bits de (lector, epc); 0 queda reservado para "vacío". */
+    static long key(long lectorId, String epc) {
+        long h = lectorId * 0x9E3779B97F4A7C15L;
+        for (int i = 0, n = epc.length(); i < n; i++) {
+            h = (h ^ epc.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private Segment segment(long key) {
+        return segments[(int) (key >>> 58)];
+    }
+
+    private static final class Segment {
+        private final long[] keys;
+        private final long[] lastWritten;
+        private final int mask;
+
+        Segment(int size) {
+            keys = new long[size];
+            lastWritten = new long[size];
+            mask = size - 1;
+        }
+
+        /** true si hay una fila del par a menos de {@code window} de {@code readAt}. */
+        synchronized boolean suppresses(long key, long readAt, long window) {
+            int idx = (int) key & mask;
+            for (int probe = 0; probe < MAX_PROBE; probe++, idx = (idx + 1) & mask) {
+                long k = keys[idx];
+                if (k == key) return Math.abs(readAt - lastWritten[idx]) < window;
+                if (k == 0) return false;
+            }
+            return false;
+        }
+
+        /** Registra una fila escrita; una más vieja que la registrada no mueve la entrada. */
+        synchronized void update(long key, long readAt) {
+            int victim = -1;
+            long victimAge = Long.MIN_VALUE;
+            int idx = (int) key & mask;
+            for (int probe = 0; probe < MAX_PROBE; probe++, idx = (idx + 1) & mask) {
+                long k = keys[idx];
+                if (k == key) {
+                    if (readAt > lastWritten[idx]) lastWritten[idx] = readAt;
+                    return;
+                }
+                long age = k == 0 ? Long.MAX_VALUE : readAt - lastWritten[idx];
+                if (age > victimAge) {
+                    victim = idx;
+                    victimAge = age;
+                }
+            }
+            keys[victim] = key;
+            lastWritten[victim] = readAt;
+        }
+    }
+}
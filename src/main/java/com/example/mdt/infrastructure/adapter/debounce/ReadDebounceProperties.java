@@ -0,0 +1,23 @@
+package com.example.mdt.infrastructure.adapter.debounce;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.debounce")
+public class ReadDebounceProperties {
+    private boolean enabled = false;
+    /** Una misma (lector, epc) se persiste como máximo una vez por ventana. */
+    private long windowMs = 2000;
+    /** Pares (lector, epc) recordados como máximo; se redondea a potencia de 2. */
+    private int capacity = 1 << 18;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getWindowMs() { return windowMs; }
+    public void setWindowMs(long windowMs) { this.windowMs = windowMs; }
+
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+}
@@ -0,0 +1,23 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.dispatch")
+public class IngestDispatchProperties {
+    private boolean enabled = false;
+    /** Número de shards; cada DEVICE cae siempre en el mismo shard (orden por lector). */
+    private int shards = Runtime.getRuntime().availableProcessors();
+    /** Mensajes aceptados y aún sin terminar; al llegar al tope el callback MQTT espera. */
+    private int maxInFlight = 1000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getShards() { return shards; }
+    public void setShards(int shards) { this.shards = shards; }
+
+    public int getMaxInFlight() { return maxInFlight; }
+    public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+}
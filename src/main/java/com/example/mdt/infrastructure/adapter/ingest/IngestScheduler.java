@@ -0,0 +1,141 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coordina el tráfico en vivo y el replay del backlog sobre el mismo pool Hikari.
+ *
+ * El tráfico en vivo nunca espera: solo informa la latencia de sus inserts
+ * ({@link #recordLiveInsert}). El replay pide permiso por cada registro a un
+ * token bucket cuyo ritmo se ajusta con AIMD cada {@code adjust-interval-ms}:
+ * si la latencia media en vivo supera {@code target-latency-ms} o hay hilos
+ * esperando conexión en Hikari, el ritmo se multiplica por
+ * {@code decrease-factor}; si no, sube {@code increase-step} registros/s.
+ * Mientras haya hilos esperando conexión el replay no recibe permisos.
+ */
+@Component
+public class IngestScheduler {
+    private static final Logger log = LoggerFactory.getLogger(IngestScheduler.class);
+
+    private static final long MAX_SLEEP_MS = 1000;
+
+    private final IngestSchedulerProperties props;
+    private final DataSource dataSource;
+
+    private final LongAdder liveInserts = new LongAdder();
+    private final LongAdder liveInsertNanos = new LongAdder();
+
+    private double rate;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private volatile double lastLiveLatencyMs;
+    private HikariPoolMXBean pool;
+
+    public IngestScheduler(IngestSchedulerProperties props, DataSource dataSource) {
+        this.props = props;
+        this.dataSource = dataSource;
+        this.rate = props.getMinReplayRate();
+    }
+
+    public boolean isEnabled() { return props.isEnabled(); }
+
+    /** Latencia de un insert de tráfico en vivo (sincrónico o flush write-behind). */
+    public void recordLiveInsert(long nanos) {
+        liveInserts.increment();
+        liveInsertNanos.add(nanos);
+    }
+
+    public synchronized double replayRate() { return rate; }
+
+    public double lastLiveLatencyMs() { return lastLiveLatencyMs; }
+
+    /** Sin bloquear: true si el replay puede procesar {@code permits} registros ahora. */
+    public boolean tryAcquireReplay(int permits) {
+        if (!props.isEnabled()) return true;
+        if (poolWaiters() > 0) return false;
+        synchronized (this) {
+            refill();
+            if (tokens < 1) return false;
+            tokens -= permits;
+            return true;
+        }
+    }
+
+    /**
+     * Bloquea hasta que el replay pueda procesar {@code permits} registros.
+     * Un lote grande puede dejar el bucket en negativo: el siguiente espera la deuda.
+     */
+    public void acquireReplay(int permits) throws InterruptedException {
+        if (!props.isEnabled()) return;
+        while (true) {
+            long sleepMs;
+            if (poolWaiters() > 0) {
+                sleepMs = 50;
+            } else {
+                synchronized (this) {
+                    refill();
+                    if (tokens >= 1) {
+                        tokens -= permits;
+                        return;
+                    }
+                    sleepMs = (long) Math.ceil((1 - tokens) / rate * 1000);
+                }
+            }
+            Thread.sleep(Math.max(1, Math.min(MAX_SLEEP_MS, sleepMs)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.scheduler.adjust-interval-ms:1000}")
+    public void adjust() {
+        if (!props.isEnabled()) return;
+        long n = liveInserts.sumThenReset();
+        long nanos = liveInsertNanos.sumThenReset();
+        double latencyMs = n > 0 ? TimeUnit.NANOSECONDS.toMicros(nanos / n) / 1000.0 : 0;
+        lastLiveLatencyMs = latencyMs;
+        int waiters = poolWaiters();
+
+        synchronized (this) {
+            double prev = rate;
+            if (waiters > 0 || latencyMs > props.getTargetLatencyMs()) {
+                rate = Math.max(props.getMinReplayRate(), rate * props.getDecreaseFactor());
+            } else {
+                rate = Math.min(props.getMaxReplayRate(), rate + props.getIncreaseStep());
+            }
+            if (rate < prev && log.isDebugEnabled()) {
+                log.debug("Replay rate {} -> {} rec/s (live latency {} ms, pool waiters {})",
+                        Math.round(prev), Math.round(rate), latencyMs, waiters);
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double burst = Math.max(1, rate);
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * rate);
+        lastRefill = now;
+    }
+
+    private int poolWaiters() {
+        HikariPoolMXBean mx = pool;
+        if (mx == null) {
+            try {
+                if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                    mx = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                    pool = mx;
+                }
+            } catch (Exception ignored) {
+            }
+            if (mx == null) return 0;
+        }
+        return mx.getThreadsAwaitingConnection();
+    }
+}
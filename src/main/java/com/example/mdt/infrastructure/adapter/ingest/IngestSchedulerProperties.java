@@ -0,0 +1,36 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.scheduler")
+public class IngestSchedulerProperties {
+    private boolean enabled = true;
+    /** Latencia de insert del tráfico en vivo que el replay no debe empujar hacia arriba. */
+    private long targetLatencyMs = 200;
+    /** Registros de backlog por segundo: piso y techo del ritmo adaptativo. */
+    private double minReplayRate = 10;
+    private double maxReplayRate = 5000;
+    /** AIMD: suma por intervalo cuando hay holgura, multiplica cuando hay presión. */
+    private double increaseStep = 50;
+    private double decreaseFactor = 0.5;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getTargetLatencyMs() { return targetLatencyMs; }
+    public void setTargetLatencyMs(long targetLatencyMs) { this.targetLatencyMs = targetLatencyMs; }
+
+    public double getMinReplayRate() { return minReplayRate; }
+    public void setMinReplayRate(double minReplayRate) { this.minReplayRate = minReplayRate; }
+
+    public double getMaxReplayRate() { return maxReplayRate; }
+    public void setMaxReplayRate(double maxReplayRate) { this.maxReplayRate = maxReplayRate; }
+
+    public double getIncreaseStep() { return increaseStep; }
+    public void setIncreaseStep(double increaseStep) { this.increaseStep = increaseStep; }
+
+    public double getDecreaseFactor() { return decreaseFactor; }
+    public void setDecreaseFactor(double decreaseFactor) { this.decreaseFactor = decreaseFactor; }
+}
@@ -0,0 +1,121 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta el procesamiento de mensajes en paralelo, particionado por DEVICE.
+ *
+ * Cada shard es un ejecutor de un solo hilo virtual con su propia cola, así que
+ * los mensajes de un mismo lector se procesan en orden de llegada y lectores
+ * distintos avanzan en paralelo. Las llamadas bloqueantes JPA/JDBC del caso de
+ * uso liberan el hilo portador en lugar de ocupar un hilo de plataforma.
+ *
+ * {@code maxInFlight} limita los mensajes pendientes: cuando se alcanza,
+ * {@link #dispatch} bloquea el hilo de callback de Paho y la presión vuelve
+ * al broker en lugar de acumularse en memoria.
+ */
+@Component
+public class ShardedIngestExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ShardedIngestExecutor.class);
+
+    private final IngestDispatchProperties props;
+    private ThreadPoolExecutor[] shards = new ThreadPoolExecutor[0];
+    private Semaphore inFlight;
+    private int maxInFlight;
+
+    public ShardedIngestExecutor(IngestDispatchProperties props) {
+        this.props = props;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled()) return;
+        int n = Math.max(1, props.getShards());
+        shards = new ThreadPoolExecutor[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    Thread.ofVirtual().name("ingest-shard-" + i).factory());
+        }
+        maxInFlight = Math.max(1, props.getMaxInFlight());
+        inFlight = new Semaphore(maxInFlight);
+        log.info("Sharded ingest enabled (shards={}, maxInFlight={})", n, maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        for (ThreadPoolExecutor shard : shards) {
+            try {
+                if (!shard.awaitTermination(10, TimeUnit.SECONDS)) {
+                    shard.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shard.shutdownNow();
+            }
+        }
+    }
+
+    public boolean isEnabled() { return props.isEnabled(); }
+
+    /**
+     * Encola la tarea en el shard del dispositivo; bloquea si ya hay
+     * {@code maxInFlight} mensajes en proceso.
+     */
+    public void dispatch(String deviceKey, Runnable task) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            shards[shardOf(deviceKey)].execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    public int shardCount() { return shards.length; }
+
+    public int shardQueueDepth(int shard) { return shards[shard].getQueue().size(); }
+
+    public int[] shardQueueDepths() {
+        int[] depths = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            depths[i] = shards[i].getQueue().size();
+        }
+        return depths;
+    }
+
+    public int inFlight() {
+        return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.dispatch.report-interval-ms:30000}")
+    public void report() {
+        if (!props.isEnabled() || !log.isDebugEnabled()) return;
+        log.debug("Ingest shards: inFlight={} queueDepths={}", inFlight(), Arrays.toString(shardQueueDepths()));
+    }
+
+    private int shardOf(String deviceKey) {
+        if (deviceKey == null) return 0;
+        return Math.floorMod(deviceKey.hashCode(), shards.length);
+    }
+}
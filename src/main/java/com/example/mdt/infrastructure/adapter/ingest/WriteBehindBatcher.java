@@ -0,0 +1,170 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.infrastructure.adapter.metrics.IngestMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola write-behind entre el callback MQTT y la base de datos.
+ *
+ * El callback entrega las detecciones ya validadas de cada SCAN; un único hilo
+ * "flusher" junta las de muchos mensajes y las escribe con un solo
+ * {@link DeteccionesGateway#saveAll} cuando el lote llega a {@code batchRows}
+ * filas o cuando pasan {@code lingerMs} desde el primer mensaje del lote.
+ * El futuro de cada mensaje se completa recién después del commit de su lote,
+ * de modo que el ACK/NACK refleja lo que realmente quedó en la base.
+ */
+@Component
+public class WriteBehindBatcher {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindBatcher.class);
+
+    private record Pending(List<Deteccion> rows, CompletableFuture<Integer> result) {}
+
+    private final WriteBehindProperties props;
+    private final DeteccionesGateway gateway;
+    private final IngestScheduler scheduler;
+    private final IngestMetrics metrics;
+    private final BlockingQueue<Pending> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public WriteBehindBatcher(WriteBehindProperties props, DeteccionesGateway gateway,
+                              IngestScheduler scheduler, IngestMetrics metrics) {
+        this.props = props;
+        this.gateway = gateway;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled()) return;
+        running = true;
+        flusher = Thread.ofPlatform().name("ingest-flusher").daemon(true).start(this::runLoop);
+        log.info("Write-behind ingest enabled (queueCapacity={}, batchRows={}, lingerMs={})",
+                props.getQueueCapacity(), props.getBatchRows(), props.getLingerMs());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) return;
+        running = false;
+        try {
+            // el flusher vacía lo que quede en cola antes de terminar
+            flusher.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.result.completeExceptionally(new RejectedExecutionException("ingest_shutdown"));
+        }
+    }
+
+    public boolean isEnabled() { return props.isEnabled(); }
+
+    public int queueDepth() { return queue.size(); }
+
+    /**
+     * Encola las detecciones de un mensaje.
+     * @return futuro con el número de filas insertadas, completado tras el commit
+     * @throws RejectedExecutionException si la cola está llena
+     */
+    public CompletableFuture<Integer> submit(List<Deteccion> rows) {
+        if (rows.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        Pending p = new Pending(rows, new CompletableFuture<>());
+        if (!running || !queue.offer(p)) {
+            throw new RejectedExecutionException("ingest_queue_full");
+        }
+        return p.result;
+    }
+
+    private void runLoop() {
+        final long lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, props.getLingerMs()));
+        final int batchRows = Math.max(1, props.getBatchRows());
+        List<Pending> batch = new ArrayList<>();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                int rows = first.rows.size();
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (rows < batchRows) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    rows += next.rows.size();
+                }
+                flush(batch, rows);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in write-behind flusher", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch, int rows) {
+        List<Deteccion> all = new ArrayList<>(rows);
+        for (Pending p : batch) {
+            all.addAll(p.rows);
+        }
+        try {
+            long t0 = System.nanoTime();
+            gateway.saveAll(all);
+            long nanos = System.nanoTime() - t0;
+            scheduler.recordLiveInsert(nanos);
+            metrics.recordInsert(nanos);
+            for (Pending p : batch) {
+                p.result.complete(p.rows.size());
+            }
+            log.debug("Write-behind flush: {} rows from {} messages", rows, batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // Un mensaje con datos inválidos no debe tumbar el lote entero:
+            // se reintenta mensaje por mensaje para aislar al culpable.
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.warn("Write-behind batch of {} messages violated a constraint; retrying one by one", batch.size());
+            for (Pending p : batch) {
+                try {
+                    p.result.complete(gateway.saveAll(p.rows));
+                } catch (Exception ex) {
+                    p.result.completeExceptionally(ex);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Write-behind flush of {} rows failed: {}", rows, e.getMessage());
+            for (Pending p : batch) {
+                p.result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.write-behind")
+public class WriteBehindProperties {
+    private boolean enabled = false;
+    /** Mensajes (SCAN) pendientes como máximo en la cola; si se llena, el mensaje va al backlog. */
+    private int queueCapacity = 10000;
+    /** Filas por flush: se escribe en cuanto el lote alcanza este tamaño... */
+    private int batchRows = 1000;
+    /** ...o cuando el mensaje más antiguo del lote lleva este tiempo esperando. */
+    private long lingerMs = 50;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public int getBatchRows() { return batchRows; }
+    public void setBatchRows(int batchRows) { this.batchRows = batchRows; }
+
+    public long getLingerMs() { return lingerMs; }
+    public void setLingerMs(long lingerMs) { this.lingerMs = lingerMs; }
+}
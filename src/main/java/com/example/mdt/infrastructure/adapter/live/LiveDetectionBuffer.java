@@ -0,0 +1,79 @@
+package com.example.mdt.infrastructure.adapter.live;
+
+import com.example.mdt.domain.gateway.DeteccionPublisher;
+import com.example.mdt.domain.model.Deteccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ring buffer sin locks de las últimas detecciones escritas (se publican tras
+ * el commit), para el stream en vivo ({@link LiveStreamController}).
+ *
+ * Cada publicación toma una secuencia con un getAndIncrement y escribe su
+ * hueco ({@code seq & mask}); nunca espera a los lectores: el más lento
+ * simplemente encuentra su hueco sobrescrito y salta adelante. Los lectores
+ * comparan la secuencia guardada en el hueco con la que esperan:
+ * menor = aún no escrita, mayor = se la pasaron por encima.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ingest.live", name = "enabled", havingValue = "true")
+public class LiveDetectionBuffer implements DeteccionPublisher {
+    private static final Logger log = LoggerFactory.getLogger(LiveDetectionBuffer.class);
+
+    record Event(long seq, Deteccion deteccion) {}
+
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder skipped = new LongAdder();
+
+    public LiveDetectionBuffer(LiveStreamProperties props) {
+        int capacity = Integer.highestOneBit(Math.max(16, props.getBufferCapacity()) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        log.info("Live detection stream enabled (bufferCapacity={})", capacity);
+    }
+
+    @Override
+    public void publish(Deteccion d) {
+        long seq = next.getAndIncrement();
+        slots.lazySet((int) seq & mask, new Event(seq, d));
+    }
+
+    /** Secuencia que recibirá la próxima publicación. */
+    long head() { return next.get(); }
+
+    int capacity() { return mask + 1; }
+
+    /** El evento del hueco de {@code seq}; puede ser de otra secuencia (ver doc de la clase). */
+    Event slot(long seq) { return slots.get((int) seq & mask); }
+
+    /** Reserva un lugar de suscriptor; false si ya hay {@code max}. */
+    boolean addSubscriber(int max) {
+        if (subscribers.incrementAndGet() <= max) return true;
+        subscribers.decrementAndGet();
+        return false;
+    }
+
+    void removeSubscriber() { subscribers.decrementAndGet(); }
+
+    /** Eventos que un suscriptor lento perdió al saltar adelante. */
+    void recordSkipped(long n) { skipped.add(n); }
+
+    /** Detecciones publicadas desde el arranque. */
+    public long publishedTotal() { return next.get(); }
+
+    /** Conexiones SSE abiertas. */
+    public int subscribers() { return subscribers.get(); }
+
+    /** Eventos saltados por suscriptores lentos desde el arranque (sumados por suscriptor). */
+    public long skippedTotal() { return skipped.sum(); }
+}
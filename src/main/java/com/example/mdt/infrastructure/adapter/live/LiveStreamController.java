@@ -0,0 +1,78 @@
+package com.example.mdt.infrastructure.adapter.live;
+
+import com.example.mdt.domain.model.Deteccion;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Stream SSE de detecciones en vivo desde {@link LiveDetectionBuffer}, sin consultar la DB.
+ *
+ * GET /api/detecciones/stream?lector=1&lector=2&ubicacion=10&epcPrefix=E200
+ * (filtros opcionales y combinables; epcPrefix sin distinguir mayúsculas).
+ * Con {@code Last-Event-ID} se sigue desde ese evento si aún está en el buffer.
+ */
+@RestController
+@RequestMapping("/api/detecciones")
+@ConditionalOnProperty(prefix = "ingest.live", name = "enabled", havingValue = "true")
+public class LiveStreamController {
+
+    private final LiveDetectionBuffer buffer;
+    private final LiveStreamProperties props;
+    private final AtomicLong connections = new AtomicLong();
+
+    public LiveStreamController(LiveDetectionBuffer buffer, LiveStreamProperties props) {
+        this.buffer = buffer;
+        this.props = props;
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(name = "lector", required = false) Set<Long> lectores,
+                             @RequestParam(name = "ubicacion", required = false) Set<Long> ubicaciones,
+                             @RequestParam(name = "epcPrefix", required = false) String epcPrefix,
+                             @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        if (!buffer.addSubscriber(props.getMaxSubscribers())) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many live subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(props.getConnectionTimeoutMs());
+        LiveSubscription sub = new LiveSubscription(buffer, emitter, filter(lectores, ubicaciones, epcPrefix),
+                startSeq(lastEventId), props);
+        emitter.onCompletion(sub::close);
+        emitter.onTimeout(sub::close);
+        emitter.onError(e -> sub.close());
+        Thread.ofVirtual().name("live-sse-" + connections.incrementAndGet()).start(sub);
+        return emitter;
+    }
+
+    /** Siguiente a Last-Event-ID si es válido; si no, solo lo nuevo. */
+    private long startSeq(String lastEventId) {
+        long head = buffer.head();
+        if (lastEventId == null || lastEventId.isBlank()) return head;
+        try {
+            long next = Long.parseLong(lastEventId.trim()) + 1;
+            return next >= 0 && next <= head ? next : head;
+        } catch (NumberFormatException e) {
+            return head;
+        }
+    }
+
+    private static Predicate<Deteccion> filter(Set<Long> lectores, Set<Long> ubicaciones, String epcPrefix) {
+        Set<Long> l = lectores == null || lectores.isEmpty() ? null : Set.copyOf(lectores);
+        Set<Long> u = ubicaciones == null || ubicaciones.isEmpty() ? null : Set.copyOf(ubicaciones);
+        String p = epcPrefix == null || epcPrefix.isEmpty() ? null : epcPrefix;
+        return d -> (l == null || (d.lectorId() != null && l.contains(d.lectorId())))
+                && (u == null || (d.ubicacionId() != null && u.contains(d.ubicacionId())))
+                && (p == null || (d.epc() != null && d.epc().regionMatches(true, 0, p, 0, p.length())));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mdt.infrastructure.adapter.live;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.live")
+public class LiveStreamProperties {
+    private boolean enabled = false;
+    /** Detecciones retenidas en el ring buffer; se redondea a potencia de 2. */
+    private int bufferCapacity = 1 << 16;
+    /** Conexiones SSE simultáneas; por encima se responde 503. */
+    private int maxSubscribers = 50;
+    /** Detecciones por evento SSE como máximo. */
+    private int batchSize = 500;
+    /** Espera entre lecturas del buffer cuando un suscriptor no tiene nada pendiente. */
+    private long pollIntervalMs = 50;
+    /** Comentario SSE de keep-alive sin tráfico durante este tiempo (detecta clientes caídos). */
+    private long heartbeatMs = 15_000;
+    /** Duración máxima de una conexión; EventSource reconecta y sigue con Last-Event-ID. */
+    private long connectionTimeoutMs = 1_800_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getBufferCapacity() { return bufferCapacity; }
+    public void setBufferCapacity(int bufferCapacity) { this.bufferCapacity = bufferCapacity; }
+
+    public int getMaxSubscribers() { return maxSubscribers; }
+    public void setMaxSubscribers(int maxSubscribers) { this.maxSubscribers = maxSubscribers; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public long getPollIntervalMs() { return pollIntervalMs; }
+    public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+
+    public long getHeartbeatMs() { return heartbeatMs; }
+    public void setHeartbeatMs(long heartbeatMs) { this.heartbeatMs = heartbeatMs; }
+
+    public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+    public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+}
@@ -0,0 +1,119 @@
+package com.example.mdt.infrastructure.adapter.live;
+
+import com.example.mdt.domain.model.Deteccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Un cliente SSE: su propio hilo virtual lee el {@link LiveDetectionBuffer}
+ * desde su cursor y envía lotes. Un cliente lento solo se bloquea a sí mismo
+ * en {@code send}; al volver, si el buffer le pasó por encima, salta a lo más
+ * antiguo disponible y avisa con un evento {@code skipped}.
+ *
+ * Eventos: {@code detecciones} (arreglo JSON, id = secuencia de la última
+ * leída, para reanudar con Last-Event-ID) y {@code skipped} (cantidad perdida).
+ */
+final class LiveSubscription implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(LiveSubscription.class);
+
+    private final LiveDetectionBuffer buffer;
+    private final SseEmitter emitter;
+    private final Predicate<Deteccion> filter;
+    private final int batchSize;
+    private final long pollNanos;
+    private final long heartbeatNanos;
+    private volatile boolean open = true;
+    private long cursor;
+
+    LiveSubscription(LiveDetectionBuffer buffer, SseEmitter emitter, Predicate<Deteccion> filter,
+                     long startSeq, LiveStreamProperties props) {
+        this.buffer = buffer;
+        this.emitter = emitter;
+        this.filter = filter;
+        this.batchSize = Math.max(1, props.getBatchSize());
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, props.getPollIntervalMs()));
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, props.getHeartbeatMs()));
+        this.cursor = startSeq;
+    }
+
+    void close() {
+        open = false;
+    }
+
+    @Override
+    public void run() {
+        List<Deteccion> batch = new ArrayList<>(batchSize);
+        long lastSend = System.nanoTime();
+        try {
+            while (open) {
+                long skipped = 0;
+                long head = buffer.head();
+                long oldest = head - buffer.capacity();
+                if (cursor < oldest) {
+                    skipped += oldest - cursor;
+                    cursor = oldest;
+                }
+                boolean caughtUp = false;
+                batch.clear();
+                while (batch.size() < batchSize) {
+                    if (cursor >= head) {
+                        caughtUp = true;
+                        break;
+                    }
+                    LiveDetectionBuffer.Event e = buffer.slot(cursor);
+                    if (e == null || e.seq() < cursor) {
+                        // el productor tomó la secuencia pero aún no escribió el hueco
+                        caughtUp = true;
+                        break;
+                    }
+                    if (e.seq() > cursor) {
+                        long to = Math.max(cursor + 1, buffer.head() - buffer.capacity());
+                        skipped += to - cursor;
+                        cursor = to;
+                        continue;
+                    }
+                    cursor++;
+                    if (filter.test(e.deteccion())) batch.add(e.deteccion());
+                }
+
+                if (skipped > 0) {
+                    buffer.recordSkipped(skipped);
+                    emitter.send(SseEmitter.event().name("skipped").data(skipped));
+                    lastSend = System.nanoTime();
+                }
+                if (!batch.isEmpty()) {
+                    // copia: antes de que la respuesta arranque, el emitter guarda el objeto para enviarlo después
+                    emitter.send(SseEmitter.event().id(Long.toString(cursor - 1)).name("detecciones")
+                            .data(List.copyOf(batch)));
+                    lastSend = System.nanoTime();
+                }
+                if (caughtUp) {
+                    if (System.nanoTime() - lastSend >= heartbeatNanos) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                        lastSend = System.nanoTime();
+                    }
+                    LockSupport.parkNanos(pollNanos);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // cliente desconectado o emitter ya completado (timeout)
+            log.debug("Live subscriber closed: {}", e.getMessage());
+        } finally {
+            open = false;
+            buffer.removeSubscriber();
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+                // ya completado
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.mdt.infrastructure.adapter.location;
+
+import java.time.Instant;
+
+/** Última lectura conocida de un EPC. */
+public record LastSeen(String epc, long lectorId, Long ubicacionId, Instant seenAt, Integer rssi) {
+}
@@ -0,0 +1,222 @@
+package com.example.mdt.infrastructure.adapter.location;
+
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import com.example.mdt.infrastructure.adapter.codec.EpcCodec;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice en memoria de la última lectura de cada EPC (lector, ubicación,
+ * instante, RSSI) y de la ocupación actual de cada ubicación, para responder
+ * "dónde está X" sin consultar detecciones_tags.
+ *
+ * Se engancha como {@link DeteccionFilter} que siempre acepta y se actualiza
+ * en {@link #committed}, con todas las lecturas del mensaje (también las que
+ * el debounce o la presencia no escriben) y solo una vez que su escritura hizo
+ * commit: un mensaje que falla y se reintenta no se cuenta dos veces.
+ * El instante de cada lectura es su {@code createdAt}, la hora de llegada del
+ * mensaje, que el backlog conserva al reproducirlo: una lectura más antigua
+ * que la registrada (replay del backlog) no mueve el EPC.
+ *
+ * Un EPC cuenta en la ocupación de su ubicación mientras su última lectura
+ * tenga menos de {@code occupancy-window-ms}; el barrido periódico descuenta
+ * los que vencen y saca del índice los que superan {@code retention-ms}.
+ *
+ * Al arrancar se reconstruye desde las filas de los últimos
+ * {@code rebuild-window-minutes} (como máximo {@code rebuild-max-rows}); si la
+ * DB no está disponible se reintenta en cada barrido. La consulta no usa
+ * funciones de MariaDB ({@code HEX}): el EPC compacto se decodifica con
+ * {@link EpcCodec}, así que también corre sobre el H2 del arnés de carga.
+ */
+@Component
+@Order(50)
+@ConditionalOnProperty(prefix = "ingest.location", name = "enabled", havingValue = "true")
+public class LastSeenIndex implements DeteccionFilter {
+    private static final Logger log = LoggerFactory.getLogger(LastSeenIndex.class);
+
+    private static final String REBUILD_SQL =
+            "SELECT epc, epc_bin, lector_id, ubicacion_id, rssi, created_at "
+            + "FROM detecciones_tags WHERE created_at >= ? ORDER BY created_at DESC LIMIT ?";
+
+    /** {@code counted}: si suma en la ocupación de {@code ubicacionId}. */
+    private record Entry(long lectorId, Long ubicacionId, long seenAtMillis, Integer rssi, boolean counted) {}
+
+    private final LastSeenProperties props;
+    private final JdbcTemplate jdbc;
+    private final DbHealthService dbHealth;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> occupancy = new ConcurrentHashMap<>();
+    private final LongAdder overflow = new LongAdder();
+    private volatile boolean rebuilt;
+
+    public LastSeenIndex(LastSeenProperties props, JdbcTemplate jdbc, DbHealthService dbHealth) {
+        this.props = props;
+        this.jdbc = jdbc;
+        this.dbHealth = dbHealth;
+        log.info("Last-seen index enabled (occupancyWindowMs={}, retentionMs={})",
+                props.getOccupancyWindowMs(), props.getRetentionMs());
+    }
+
+    @Override
+    public boolean accept(Deteccion d) {
+        return true;
+    }
+
+    @Override
+    public void committed(PreparedScan prepared) {
+        long now = System.currentTimeMillis();
+        for (Deteccion d : prepared.reads()) {
+            if (d.lectorId() == null || d.epc() == null) continue;
+            long seenAt = d.createdAt() != null ? millis(d.createdAt()) : now;
+            update(key(d.epc()), d.lectorId(), d.ubicacionId(), seenAt, d.rssi(), now);
+        }
+    }
+
+    public Optional<LastSeen> find(String epc) {
+        if (epc == null) return Optional.empty();
+        String k = key(epc);
+        Entry e = index.get(k);
+        if (e == null) return Optional.empty();
+        return Optional.of(new LastSeen(k, e.lectorId(), e.ubicacionId(), Instant.ofEpochMilli(e.seenAtMillis()), e.rssi()));
+    }
+
+    /** EPC vistos dentro de la ventana de ocupación en la ubicación. */
+    public long occupancy(long ubicacionId) {
+        LongAdder n = occupancy.get(ubicacionId);
+        return n != null ? n.sum() : 0;
+    }
+
+    /** Ocupación de todas las ubicaciones con al menos un EPC. */
+    public Map<Long, Long> occupancy() {
+        Map<Long, Long> out = new HashMap<>();
+        occupancy.forEach((id, n) -> {
+            long v = n.sum();
+            if (v > 0) out.put(id, v);
+        });
+        return out;
+    }
+
+    /** EPC en el índice. */
+    public int tracked() { return index.size(); }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAtStartup() {
+        tryRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.location.sweep-interval-ms:5000}")
+    public void sweep() {
+        if (!rebuilt && dbHealth.isAvailable()) tryRebuild();
+
+        long now = System.currentTimeMillis();
+        long window = props.getOccupancyWindowMs();
+        long retention = props.getRetentionMs();
+        int expired = 0;
+        for (String key : index.keySet()) {
+            boolean[] removed = {false};
+            index.computeIfPresent(key, (k, e) -> {
+                long age = now - e.seenAtMillis();
+                if (age >= retention) {
+                    if (e.counted()) adjust(e.ubicacionId(), -1);
+                    removed[0] = true;
+                    return null;
+                }
+                if (e.counted() && age >= window) {
+                    adjust(e.ubicacionId(), -1);
+                    return new Entry(e.lectorId(), e.ubicacionId(), e.seenAtMillis(), e.rssi(), false);
+                }
+                return e;
+            });
+            if (removed[0]) expired++;
+        }
+        long over = overflow.sumThenReset();
+        if (over > 0) {
+            log.warn("Last-seen index at max-entries={}; {} reads of new EPCs not tracked", props.getMaxEntries(), over);
+        }
+        if (expired > 0) {
+            log.debug("Last-seen sweep: {} EPCs expired ({} tracked)", expired, index.size());
+        }
+    }
+
+    private synchronized void tryRebuild() {
+        if (rebuilt) return;
+        try {
+            long started = System.nanoTime();
+            long now = System.currentTimeMillis();
+            Timestamp from = new Timestamp(now - TimeUnit.MINUTES.toMillis(props.getRebuildWindowMinutes()));
+            int[] rows = {0};
+            jdbc.query(REBUILD_SQL, rs -> {
+                String epc = rs.getString("epc");
+                if (epc == null) epc = EpcCodec.decode(rs.getBytes("epc_bin"));
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                if (epc == null || createdAt == null) return;
+                long ubicacionId = rs.getLong("ubicacion_id");
+                Long ubicacion = rs.wasNull() ? null : ubicacionId;
+                int rssiValue = rs.getInt("rssi");
+                Integer rssi = rs.wasNull() ? null : rssiValue;
+                update(key(epc), rs.getLong("lector_id"), ubicacion, createdAt.getTime(), rssi, now);
+                rows[0]++;
+            }, from, props.getRebuildMaxRows());
+            rebuilt = true;
+            log.info("Last-seen index rebuilt from {} rows: {} EPCs in {} ms", rows[0], index.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception e) {
+            log.warn("Last-seen index rebuild failed (will retry on sweep): {}", e.getMessage());
+        }
+    }
+
+    private void update(String key, long lectorId, Long ubicacionId, long seenAt, Integer rssi, long now) {
+        boolean counted = now - seenAt < props.getOccupancyWindowMs();
+        index.compute(key, (k, prev) -> {
+            if (prev == null && index.size() >= props.getMaxEntries()) {
+                overflow.increment();
+                return null;
+            }
+            if (prev != null && prev.seenAtMillis() > seenAt) return prev;
+            if (prev != null && prev.counted()) adjust(prev.ubicacionId(), -1);
+            if (counted) adjust(ubicacionId, 1);
+            return new Entry(lectorId, ubicacionId, seenAt, rssi, counted);
+        });
+    }
+
+    private void adjust(Long ubicacionId, int delta) {
+        if (ubicacionId == null) return;
+        occupancy.computeIfAbsent(ubicacionId, id -> new LongAdder()).add(delta);
+    }
+
+    /** El EPC en mayúsculas (EpcCodec.decode lo devuelve así); sin copia si ya lo está. */
+    private static String key(String epc) {
+        for (int i = 0, n = epc.length(); i < n; i++) {
+            char c = epc.charAt(i);
+            if (c >= 'a' && c <= 'z') return epc.toUpperCase(Locale.ROOT);
+        }
+        return epc;
+    }
+
+    private static long millis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.mdt.infrastructure.adapter.location;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.location")
+public class LastSeenProperties {
+    private boolean enabled = false;
+    /** Un EPC cuenta en la ocupación de su ubicación si se vio dentro de esta ventana. */
+    private long occupancyWindowMs = 300_000;
+    /** EPC sin lecturas durante este tiempo salen del índice. */
+    private long retentionMs = 86_400_000;
+    /** Tope de EPC en el índice; por encima, los EPC nuevos no se registran. */
+    private int maxEntries = 2_000_000;
+    /** Al arrancar se reconstruye desde detecciones_tags de los últimos N minutos... */
+    private long rebuildWindowMinutes = 60;
+    /** ...leyendo como máximo estas filas (las más recientes). */
+    private int rebuildMaxRows = 2_000_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getOccupancyWindowMs() { return occupancyWindowMs; }
+    public void setOccupancyWindowMs(long occupancyWindowMs) { this.occupancyWindowMs = occupancyWindowMs; }
+
+    public long getRetentionMs() { return retentionMs; }
+    public void setRetentionMs(long retentionMs) { this.retentionMs = retentionMs; }
+
+    public int getMaxEntries() { return maxEntries; }
+    public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+    public long getRebuildWindowMinutes() { return rebuildWindowMinutes; }
+    public void setRebuildWindowMinutes(long rebuildWindowMinutes) { this.rebuildWindowMinutes = rebuildWindowMinutes; }
+
+    public int getRebuildMaxRows() { return rebuildMaxRows; }
+    public void setRebuildMaxRows(int rebuildMaxRows) { this.rebuildMaxRows = rebuildMaxRows; }
+}
@@ -0,0 +1,44 @@
+package com.example.mdt.infrastructure.adapter.location;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Consultas de ubicación servidas desde {@link LastSeenIndex}, sin tocar la DB.
+ *
+ * GET /api/locations/{epc}                   → última lectura del EPC (404 si no está)
+ * GET /api/locations/occupancy               → {ubicacion_id: EPC presentes}
+ * GET /api/locations/occupancy/{ubicacionId} → EPC presentes en la ubicación
+ */
+@RestController
+@RequestMapping("/api/locations")
+@ConditionalOnProperty(prefix = "ingest.location", name = "enabled", havingValue = "true")
+public class LocationController {
+
+    private final LastSeenIndex index;
+
+    public LocationController(LastSeenIndex index) {
+        this.index = index;
+    }
+
+    @GetMapping("/{epc}")
+    public ResponseEntity<LastSeen> lastSeen(@PathVariable String epc) {
+        return ResponseEntity.of(index.find(epc));
+    }
+
+    @GetMapping("/occupancy")
+    public Map<Long, Long> occupancy() {
+        return index.occupancy();
+    }
+
+    @GetMapping("/occupancy/{ubicacionId}")
+    public long occupancy(@PathVariable long ubicacionId) {
+        return index.occupancy(ubicacionId);
+    }
+}
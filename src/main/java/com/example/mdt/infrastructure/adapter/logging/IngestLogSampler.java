@@ -0,0 +1,131 @@
+package com.example.mdt.infrastructure.adapter.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logging del camino caliente de la ingesta sin una línea por mensaje.
+ *
+ * Las líneas por mensaje (payload, "Processed SCAN", avisos de NACK/backlog)
+ * se muestrean con {@code payload-sample-rate} / {@code detail-sample-rate} y
+ * además se limitan a {@code max-lines-per-key-per-minute} por DEVICE (o por
+ * motivo). Lo que no se escribe queda en los contadores de la línea de
+ * resumen periódica.
+ */
+@Component
+public class IngestLogSampler {
+    private static final Logger log = LoggerFactory.getLogger(IngestLogSampler.class);
+
+    /** Tope de claves con ventana propia; al superarlo se vacía (DEVICE aleatorios). */
+    private static final int MAX_KEYS = 10_000;
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final IngestLoggingProperties props;
+
+    /** Por clave: {inicio de la ventana (nanos), líneas en la ventana}. */
+    private final Map<String, long[]> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder detections = new LongAdder();
+    private final LongAdder backlogged = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final Map<String, LongAdder> nacks = new ConcurrentHashMap<>();
+    private long lastSummaryNanos = System.nanoTime();
+
+    public IngestLogSampler(IngestLoggingProperties props) {
+        this.props = props;
+    }
+
+    // ---- decisiones de muestreo (el llamador ya comprobó el nivel de log) ----
+
+    /** ¿Registrar el payload de este mensaje? */
+    public boolean samplePayload(String device) {
+        return sample(props.getPayloadSampleRate(), device);
+    }
+
+    /** ¿Línea propia para este mensaje procesado? */
+    public boolean sampleDetail(String device) {
+        return sample(props.getDetailSampleRate(), device);
+    }
+
+    /** ¿Escribir este aviso? Limitado por motivo, no muestreado. */
+    public boolean allowWarn(String reason) {
+        return allow("warn:" + reason);
+    }
+
+    // ---- contadores del resumen ----
+
+    public void message() { messages.increment(); }
+
+    public void acked(int inserted) {
+        acked.increment();
+        if (inserted > 0) detections.add(inserted);
+    }
+
+    public void nack(String reason) {
+        nacks.computeIfAbsent(reason == null ? "unknown" : reason, r -> new LongAdder()).increment();
+    }
+
+    public void backlogged() { backlogged.increment(); }
+
+    @Scheduled(fixedDelayString = "${ingest.logging.summary-interval-ms:60000}")
+    public void summary() {
+        if (props.getSummaryIntervalMs() <= 0) return;
+        long now = System.nanoTime();
+        long secs = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(now - lastSummaryNanos));
+        lastSummaryNanos = now;
+
+        long m = messages.sumThenReset();
+        long a = acked.sumThenReset();
+        long d = detections.sumThenReset();
+        long b = backlogged.sumThenReset();
+        long s = suppressed.sumThenReset();
+        Map<String, Long> n = new TreeMap<>();
+        nacks.forEach((reason, count) -> {
+            long c = count.sumThenReset();
+            if (c > 0) n.put(reason, c);
+        });
+        if (m == 0 && a == 0 && b == 0 && n.isEmpty()) return;
+        log.info("Ingest summary ({}s): messages={} ({}/s) acked={} detections={} nacks={} backlogged={} suppressedLogLines={}",
+                secs, m, m / secs, a, d, n, b, s);
+    }
+
+    private boolean sample(double rate, String device) {
+        if (rate <= 0) return false;
+        if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) return false;
+        return allow(device == null ? "" : device);
+    }
+
+    private boolean allow(String key) {
+        int max = props.getMaxLinesPerKeyPerMinute();
+        if (max <= 0) {
+            suppressed.increment();
+            return false;
+        }
+        if (windows.size() > MAX_KEYS) windows.clear();
+        long now = System.nanoTime();
+        long[] w = windows.computeIfAbsent(key, k -> new long[]{now, 0});
+        synchronized (w) {
+            if (now - w[0] >= MINUTE_NANOS) {
+                w[0] = now;
+                w[1] = 0;
+            }
+            if (w[1] < max) {
+                w[1]++;
+                return true;
+            }
+        }
+        suppressed.increment();
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mdt.infrastructure.adapter.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.logging")
+public class IngestLoggingProperties {
+    /** Fracción (0..1) de mensajes cuyo payload se registra en DEBUG. */
+    private double payloadSampleRate = 0.01;
+    /** Fracción (0..1) de mensajes procesados con línea propia ("Processed SCAN"). */
+    private double detailSampleRate = 0.0;
+    /** Tope de líneas por mensaje por DEVICE (o por motivo en los avisos) y minuto. */
+    private int maxLinesPerKeyPerMinute = 6;
+    /** Línea de resumen con contadores cada este intervalo; 0 = sin resumen. */
+    private long summaryIntervalMs = 60000;
+
+    public double getPayloadSampleRate() { return payloadSampleRate; }
+    public void setPayloadSampleRate(double payloadSampleRate) { this.payloadSampleRate = payloadSampleRate; }
+
+    public double getDetailSampleRate() { return detailSampleRate; }
+    public void setDetailSampleRate(double detailSampleRate) { this.detailSampleRate = detailSampleRate; }
+
+    public int getMaxLinesPerKeyPerMinute() { return maxLinesPerKeyPerMinute; }
+    public void setMaxLinesPerKeyPerMinute(int maxLinesPerKeyPerMinute) { this.maxLinesPerKeyPerMinute = maxLinesPerKeyPerMinute; }
+
+    public long getSummaryIntervalMs() { return summaryIntervalMs; }
+    public void setSummaryIntervalMs(long summaryIntervalMs) { this.summaryIntervalMs = summaryIntervalMs; }
+}
@@ -0,0 +1,151 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.gateway.MetadataGateway;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorador de {@link MetadataGatewayJpaAdapter} que responde desde un snapshot
+ * inmutable en memoria (codigo → id de lectores_uhf, ids de ubicaciones).
+ *
+ * - El snapshot se carga al arrancar y se refresca cada {@code refresh-interval-ms}
+ *   (solo si la DB está disponible, para no bloquear el scheduler).
+ * - Un fallo de lookup consulta la DB para ese valor puntual y, si existe,
+ *   lo agrega al snapshot.
+ * - Los valores inexistentes se recuerdan {@code negative-ttl-ms} para que un
+ *   lector desconocido no genere una consulta por mensaje.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "metadata.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachingMetadataGateway implements MetadataGateway {
+    private static final Logger log = LoggerFactory.getLogger(CachingMetadataGateway.class);
+
+    /** Tope de entradas negativas; al superarlo se vacía (protege de DEVICE aleatorios). */
+    private static final int MAX_NEGATIVE_ENTRIES = 10_000;
+
+    private record Snapshot(Map<String, Long> lectores, Set<Long> ubicaciones) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Set.of());
+    }
+
+    private final MetadataGatewayJpaAdapter delegate;
+    private final DbHealthService dbHealth;
+    private final long negativeTtlMs;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final Map<String, Long> unknownLectores = new ConcurrentHashMap<>();
+    private final Map<Long, Long> unknownUbicaciones = new ConcurrentHashMap<>();
+
+    public CachingMetadataGateway(
+            MetadataGatewayJpaAdapter delegate,
+            DbHealthService dbHealth,
+            @Value("${metadata.cache.negative-ttl-ms:30000}") long negativeTtlMs
+    ) {
+        this.delegate = delegate;
+        this.dbHealth = dbHealth;
+        this.negativeTtlMs = negativeTtlMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Metadata cache initial load failed (will retry on refresh): {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${metadata.cache.refresh-interval-ms:60000}",
+               fixedDelayString = "${metadata.cache.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!dbHealth.isAvailable()) return;
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Metadata cache refresh failed, keeping previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    public void reload() {
+        Snapshot next = new Snapshot(Map.copyOf(delegate.loadLectorIds()), Set.copyOf(delegate.loadUbicacionIds()));
+        synchronized (this) {
+            snapshot = next;
+            unknownLectores.clear();
+            unknownUbicaciones.clear();
+        }
+        log.debug("Metadata cache loaded: {} lectores, {} ubicaciones", next.lectores().size(), next.ubicaciones().size());
+    }
+
+    @Override
+    public Optional<Long> findLectorIdByCodigo(String codigo) {
+        Long id = snapshot.lectores().get(codigo);
+        if (id != null) return Optional.of(id);
+        if (isNegative(unknownLectores, codigo)) return Optional.empty();
+
+        Optional<Long> found = delegate.findLectorIdByCodigo(codigo);
+        if (found.isPresent()) {
+            addLector(codigo, found.get());
+        } else {
+            markNegative(unknownLectores, codigo);
+        }
+        return found;
+    }
+
+    @Override
+    public boolean existsUbicacionId(Long id) {
+        if (snapshot.ubicaciones().contains(id)) return true;
+        if (isNegative(unknownUbicaciones, id)) return false;
+
+        boolean exists = delegate.existsUbicacionId(id);
+        if (exists) {
+            addUbicacion(id);
+        } else {
+            markNegative(unknownUbicaciones, id);
+        }
+        return exists;
+    }
+
+    private synchronized void addLector(String codigo, Long id) {
+        Snapshot cur = snapshot;
+        Map<String, Long> lectores = new HashMap<>(cur.lectores());
+        lectores.put(codigo, id);
+        snapshot = new Snapshot(Map.copyOf(lectores), cur.ubicaciones());
+    }
+
+    private synchronized void addUbicacion(Long id) {
+        Snapshot cur = snapshot;
+        Set<Long> ubicaciones = new HashSet<>(cur.ubicaciones());
+        ubicaciones.add(id);
+        snapshot = new Snapshot(cur.lectores(), Set.copyOf(ubicaciones));
+    }
+
+    private <K> boolean isNegative(Map<K, Long> negatives, K key) {
+        Long expiresAt = negatives.get(key);
+        if (expiresAt == null) return false;
+        if (System.currentTimeMillis() < expiresAt) return true;
+        negatives.remove(key, expiresAt);
+        return false;
+    }
+
+    private <K> void markNegative(Map<K, Long> negatives, K key) {
+        if (negatives.size() >= MAX_NEGATIVE_ENTRIES) {
+            negatives.clear();
+        }
+        negatives.put(key, System.currentTimeMillis() + negativeTtlMs);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.infrastructure.adapter.db.DbCircuitBreaker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Decorador del adapter de detecciones activo (JPA o JDBC) que informa cada
+ * escritura al {@link DbCircuitBreaker}: filas, duración, éxito o error. Así todos
+ * los caminos (insert sincrónico, flush write-behind, backlog, catch-up)
+ * alimentan el breaker sin tocar el caso de uso.
+ */
+@Component
+@Primary
+public class CircuitBreakingDeteccionesGateway implements DeteccionesGateway {
+
+    private final DeteccionesGateway delegate;
+    private final DbCircuitBreaker breaker;
+
+    public CircuitBreakingDeteccionesGateway(ObjectProvider<DeteccionesGatewayJdbcAdapter> jdbc,
+                                             ObjectProvider<DeteccionesGatewayJpaAdapter> jpa,
+                                             DbCircuitBreaker breaker) {
+        DeteccionesGateway active = jdbc.getIfAvailable();
+        this.delegate = active != null ? active : jpa.getObject();
+        this.breaker = breaker;
+    }
+
+    @Override
+    public void save(Deteccion d) {
+        long call = breaker.start();
+        try {
+            delegate.save(d);
+            breaker.onSuccess(call);
+        } catch (RuntimeException | Error e) {
+            breaker.onFailure(call, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int saveAll(List<Deteccion> detecciones) {
+        if (detecciones.isEmpty()) return 0;
+        long call = breaker.start(detecciones.size());
+        try {
+            int n = delegate.saveAll(detecciones);
+            breaker.onSuccess(call);
+            return n;
+        } catch (RuntimeException | Error e) {
+            breaker.onFailure(call, e);
+            throw e;
+        }
+    }
+}
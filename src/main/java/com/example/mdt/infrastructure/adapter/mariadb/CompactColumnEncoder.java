@@ -0,0 +1,158 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.infrastructure.adapter.codec.EpcCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Valores de columna de una detección para el esquema compacto (V4).
+ *
+ * Con {@code ingest.compact.enabled} el EPC va a {@code epc_bin} vía
+ * {@link EpcCodec} y machine/version a ids de {@code maquinas}/{@code versiones},
+ * resueltos desde un diccionario en memoria. Lo que no se puede codificar
+ * (EPC que no es hex en mayúsculas, diccionario lleno, espacios finales que la
+ * collation ignoraría) se escribe en la columna de texto, igual que sin esquema
+ * compacto.
+ *
+ * {@link #encode} solo consulta el diccionario. Los valores nuevos se dan de
+ * alta con {@link #resolve} antes de abrir la transacción del insert (en
+ * autocommit, sin segunda conexión con la primera tomada): el id cacheado
+ * nunca apunta a una fila que un rollback del insert haya deshecho. Un valor
+ * que no se pudo resolver se escribe como texto.
+ */
+@Component
+public class CompactColumnEncoder {
+    private static final Logger log = LoggerFactory.getLogger(CompactColumnEncoder.class);
+
+    /** Columnas de detecciones_tags; en cada par solo uno de los dos es no nulo. */
+    public record Columns(String epc, byte[] epcBin, String machine, Integer machineId,
+                          String version, Integer versionId) {}
+
+    private final CompactSchemaProperties props;
+    private final Dictionary maquinas;
+    private final Dictionary versiones;
+
+    public CompactColumnEncoder(CompactSchemaProperties props, JdbcTemplate jdbc) {
+        this.props = props;
+        this.maquinas = new Dictionary("maquinas", 100, props.getDictionaryMaxEntries(), jdbc);
+        this.versiones = new Dictionary("versiones", 20, props.getDictionaryMaxEntries(), jdbc);
+    }
+
+    public boolean isEnabled() { return props.isEnabled(); }
+
+    /** Precarga ambos diccionarios para que las altas durante la ingesta sean solo valores nuevos. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        if (!props.isEnabled()) return;
+        try {
+            maquinas.load();
+            versiones.load();
+            log.info("Compact schema dictionaries loaded: {} machines, {} versions", maquinas.size(), versiones.size());
+        } catch (Exception e) {
+            log.warn("Compact schema dictionaries not loaded (values resolve on first use): {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Da de alta los machine/version que aún no están en los diccionarios.
+     * Fuera de cualquier transacción: cada alta hace commit por su cuenta.
+     */
+    public void resolve(List<Deteccion> detecciones) {
+        if (!props.isEnabled()) return;
+        for (Deteccion d : detecciones) {
+            resolve(d.machine(), d.version());
+        }
+    }
+
+    /** Igual que {@link #resolve(List)} para un solo par; un fallo deja el valor como texto. */
+    public void resolve(String machine, String version) {
+        if (!props.isEnabled()) return;
+        maquinas.resolve(machine);
+        versiones.resolve(version);
+    }
+
+    public Columns encode(Deteccion d) {
+        return encode(d.epc(), d.machine(), d.version());
+    }
+
+    public Columns encode(String epc, String machine, String version) {
+        if (!props.isEnabled()) {
+            return new Columns(epc, null, machine, null, version, null);
+        }
+        byte[] epcBin = EpcCodec.encode(epc);
+        Integer machineId = maquinas.idOf(machine);
+        Integer versionId = versiones.idOf(version);
+        return new Columns(
+                epcBin == null ? epc : null, epcBin,
+                machineId == null ? machine : null, machineId,
+                versionId == null ? version : null, versionId);
+    }
+
+    /** Diccionario nombre → id de una tabla de lookup, solo crece. */
+    private static final class Dictionary {
+        private final String table;
+        private final int maxLength;
+        private final int maxEntries;
+        private final JdbcTemplate jdbc;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        /** Serializa las altas; no es un monitor para no fijar hilos virtuales durante el round trip. */
+        private final ReentrantLock inserting = new ReentrantLock();
+        private volatile boolean fullLogged;
+        private volatile boolean failureLogged;
+
+        Dictionary(String table, int maxLength, int maxEntries, JdbcTemplate jdbc) {
+            this.table = table;
+            this.maxLength = maxLength;
+            this.maxEntries = maxEntries;
+            this.jdbc = jdbc;
+        }
+
+        void load() {
+            jdbc.query("SELECT id, nombre FROM " + table + " ORDER BY id LIMIT " + maxEntries,
+                    rs -> { ids.putIfAbsent(rs.getString(2), rs.getInt(1)); });
+        }
+
+        int size() { return ids.size(); }
+
+        /** Solo memoria: null si el valor no está dado de alta. */
+        Integer idOf(String name) {
+            return name == null ? null : ids.get(name);
+        }
+
+        void resolve(String name) {
+            if (name == null || ids.containsKey(name)) return;
+            if (name.isEmpty() || name.length() > maxLength || name.charAt(name.length() - 1) == ' ') return;
+            if (ids.size() >= maxEntries) {
+                if (!fullLogged) {
+                    fullLogged = true;
+                    log.warn("Dictionary {} reached {} entries; new values are stored as text", table, maxEntries);
+                }
+                return;
+            }
+            inserting.lock();
+            try {
+                if (ids.containsKey(name)) return;
+                jdbc.update("INSERT IGNORE INTO " + table + " (nombre) VALUES (?)", name);
+                List<Integer> found = jdbc.queryForList("SELECT id FROM " + table + " WHERE nombre = ?", Integer.class, name);
+                if (!found.isEmpty()) ids.put(name, found.get(0));
+            } catch (Exception e) {
+                if (!failureLogged) {
+                    failureLogged = true;
+                    log.warn("Could not add '{}' to dictionary {} (stored as text): {}", name, table, e.getMessage());
+                }
+            } finally {
+                inserting.unlock();
+            }
+        }
+    }
+}
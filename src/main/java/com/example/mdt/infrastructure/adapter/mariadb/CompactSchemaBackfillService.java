@@ -0,0 +1,102 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import com.example.mdt.infrastructure.adapter.ingest.IngestScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Convierte al esquema compacto las filas de detecciones_tags escritas en texto.
+ *
+ * Recorre la tabla por id en lotes de {@code backfill-batch-rows} y, en cada
+ * fila con algo codificable, llena epc_bin / machine_id / version_id y pone a
+ * NULL la columna de texto correspondiente (ver {@link CompactColumnEncoder}).
+ * Cada lote pide permiso al {@link IngestScheduler} como el replay del backlog:
+ * si la ingesta en vivo va lenta, el backfill espera. El cursor vive en memoria;
+ * tras un reinicio recorre de nuevo desde el principio saltando lo ya convertido.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ingest.compact", name = "backfill-enabled", havingValue = "true")
+public class CompactSchemaBackfillService {
+    private static final Logger log = LoggerFactory.getLogger(CompactSchemaBackfillService.class);
+
+    private static final String SELECT_SQL =
+            "SELECT id, created_at, epc, machine, version FROM detecciones_tags WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL =
+            "UPDATE detecciones_tags SET epc = ?, epc_bin = ?, machine = ?, machine_id = ?, version = ?, version_id = ? "
+            + "WHERE id = ? AND created_at = ?";
+
+    private record Row(long id, Timestamp createdAt, String epc, String machine, String version) {}
+
+    private final CompactSchemaProperties props;
+    private final CompactColumnEncoder columns;
+    private final JdbcTemplate jdbc;
+    private final DbHealthService dbHealth;
+    private final IngestScheduler scheduler;
+
+    private long cursor;
+    private long converted;
+    private boolean done;
+
+    public CompactSchemaBackfillService(CompactSchemaProperties props, CompactColumnEncoder columns, JdbcTemplate jdbc,
+                                        DbHealthService dbHealth, IngestScheduler scheduler) {
+        this.props = props;
+        this.columns = columns;
+        this.jdbc = jdbc;
+        this.dbHealth = dbHealth;
+        this.scheduler = scheduler;
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.compact.backfill-interval-ms:1000}")
+    public void backfill() {
+        if (done || !dbHealth.isAvailable()) return;
+        if (!columns.isEnabled()) {
+            log.warn("ingest.compact.backfill-enabled requires ingest.compact.enabled=true; backfill not started");
+            done = true;
+            return;
+        }
+        int batch = Math.max(1, props.getBackfillBatchRows());
+        if (!scheduler.tryAcquireReplay(batch)) return;
+        try {
+            List<Row> rows = jdbc.query(SELECT_SQL, (rs, i) -> new Row(
+                    rs.getLong(1), rs.getTimestamp(2), rs.getString(3), rs.getString(4), rs.getString(5)),
+                    cursor, batch);
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Row r : rows) {
+                if (r.epc() == null && r.machine() == null && r.version() == null) continue;
+                columns.resolve(r.machine(), r.version());
+                CompactColumnEncoder.Columns c = columns.encode(r.epc(), r.machine(), r.version());
+                if (c.epcBin() == null && c.machineId() == null && c.versionId() == null) continue;
+                updates.add(new Object[]{c.epc(), c.epcBin(), c.machine(), c.machineId(),
+                        c.version(), c.versionId(), r.id(), r.createdAt()});
+            }
+            if (!updates.isEmpty()) {
+                int[] types = {Types.VARCHAR, Types.VARBINARY, Types.VARCHAR, Types.INTEGER,
+                        Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.TIMESTAMP};
+                jdbc.batchUpdate(UPDATE_SQL, updates, types);
+                converted += updates.size();
+            }
+            if (!rows.isEmpty()) {
+                cursor = rows.get(rows.size() - 1).id();
+            }
+            if (rows.size() < batch) {
+                done = true;
+                log.info("Compact schema backfill finished: {} rows converted (last id {})", converted, cursor);
+            } else if (log.isDebugEnabled()) {
+                log.debug("Compact schema backfill: {} rows converted so far (id {})", converted, cursor);
+            }
+        } catch (Exception e) {
+            log.warn("Compact schema backfill batch failed at id {} (will retry): {}", cursor, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.compact")
+public class CompactSchemaProperties {
+    /** Escribir epc_bin / machine_id / version_id (V4) en lugar de las columnas de texto. */
+    private boolean enabled = false;
+    /** Tope de valores distintos por diccionario; por encima el valor se guarda como texto. */
+    private int dictionaryMaxEntries = 4096;
+    /** Convierte en segundo plano las filas antiguas al formato compacto. */
+    private boolean backfillEnabled = false;
+    /** Filas leídas por pasada del backfill. */
+    private int backfillBatchRows = 2000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getDictionaryMaxEntries() { return dictionaryMaxEntries; }
+    public void setDictionaryMaxEntries(int dictionaryMaxEntries) { this.dictionaryMaxEntries = dictionaryMaxEntries; }
+
+    public boolean isBackfillEnabled() { return backfillEnabled; }
+    public void setBackfillEnabled(boolean backfillEnabled) { this.backfillEnabled = backfillEnabled; }
+
+    public int getBackfillBatchRows() { return backfillBatchRows; }
+    public void setBackfillBatchRows(int backfillBatchRows) { this.backfillBatchRows = backfillBatchRows; }
+}
@@ -0,0 +1,247 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Escribe detecciones con INSERT multi-fila sobre JDBC.
+ * Un SCAN completo (o un lote de varios) va en una sola transacción y en
+ * ceil(n / rowsPerStatement) round trips, en lugar de uno por CSN.
+ *
+ * Lotes de {@code load-data-threshold-rows} filas o más (flush write-behind
+ * grande, catch-up del backlog) van por {@code LOAD DATA LOCAL INFILE} con las
+ * filas servidas desde un {@link DeteccionesLoadDataStream} en memoria. Si el
+ * driver o el servidor no lo permiten (no es MariaDB, {@code local_infile=OFF},
+ * {@code allowLocalInfile=false}) se avisa una vez y se sigue con INSERT.
+ * Como LOCAL implica IGNORE, cualquier warning de la carga (valor truncado,
+ * conversión fallida) se trata como violación de integridad y revierte el lote,
+ * igual que fallaría el INSERT. Si la carga termina sin warnings pero con
+ * menos filas de las enviadas, se revierte y el lote se repite con INSERT,
+ * que sí informa la fila rechazada.
+ *
+ * Los valores nuevos del esquema compacto se dan de alta antes de abrir la
+ * transacción ({@link CompactColumnEncoder#resolve}).
+ *
+ * Se activa con {@code ingest.gateway=jdbc}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ingest", name = "gateway", havingValue = "jdbc")
+public class DeteccionesGatewayJdbcAdapter implements DeteccionesGateway {
+    private static final Logger log = LoggerFactory.getLogger(DeteccionesGatewayJdbcAdapter.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO detecciones_tags (lector_id, ubicacion_id, epc, epc_bin, rssi, machine, machine_id, version, version_id, "
+            + "tag_id, tag_tipo, owner_id, created_at, updated_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    /** El nombre de archivo no se usa: el driver lee del InputStream asignado al statement. */
+    static final String LOAD_DATA_SQL =
+            "LOAD DATA LOCAL INFILE 'detecciones.tsv' INTO TABLE detecciones_tags CHARACTER SET utf8mb4 "
+            + "(lector_id, ubicacion_id, epc, @epc_bin, rssi, machine, machine_id, version, version_id, "
+            + "tag_id, tag_tipo, owner_id, created_at, updated_at) "
+            + "SET epc_bin = UNHEX(@epc_bin)";
+
+    private static final int MAX_REPORTED_WARNINGS = 3;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final CompactColumnEncoder columns;
+    private final int rowsPerStatement;
+    /** 0 = nunca LOAD DATA. */
+    private final int loadDataThresholdRows;
+    private volatile boolean loadDataAvailable = true;
+    /** SQL precalculado para un chunk completo; el último chunk (parcial) arma el suyo. */
+    private final String fullChunkSql;
+
+    public DeteccionesGatewayJdbcAdapter(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            CompactColumnEncoder columns,
+            @Value("${ingest.jdbc.rows-per-statement:500}") int rowsPerStatement,
+            @Value("${ingest.jdbc.load-data-threshold-rows:5000}") int loadDataThresholdRows
+    ) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.columns = columns;
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        this.loadDataThresholdRows = Math.max(0, loadDataThresholdRows);
+        this.fullChunkSql = insertSql(this.rowsPerStatement);
+    }
+
+    @Override
+    public void save(Deteccion d) {
+        saveAll(List.of(d));
+    }
+
+    @Override
+    public int saveAll(List<Deteccion> detecciones) {
+        if (detecciones.isEmpty()) return 0;
+        columns.resolve(detecciones);
+        try {
+            return inTransaction(detecciones, true);
+        } catch (RowCountMismatch e) {
+            log.warn("{}; retrying the batch with multi-row INSERT", e.getMessage());
+            return inTransaction(detecciones, false);
+        }
+    }
+
+    private int inTransaction(List<Deteccion> detecciones, boolean allowLoadData) {
+        Integer written = tx.execute(status -> write(detecciones, allowLoadData));
+        return written != null ? written : 0;
+    }
+
+    private int write(List<Deteccion> detecciones, boolean allowLoadData) {
+        int total = detecciones.size();
+        LocalDateTime nowLocal = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(nowLocal);
+        List<CompactColumnEncoder.Columns> encoded = new ArrayList<>(total);
+        for (Deteccion d : detecciones) {
+            encoded.add(columns.encode(d));
+        }
+
+        if (allowLoadData && loadDataAvailable && loadDataThresholdRows > 0 && total >= loadDataThresholdRows) {
+            Integer loaded = loadData(detecciones, encoded, nowLocal);
+            if (loaded != null) {
+                log.debug("Persisted {} detections via LOAD DATA", loaded);
+                return loaded;
+            }
+        }
+
+        int written = 0;
+        for (int from = 0; from < total; from += rowsPerStatement) {
+            int to = Math.min(total, from + rowsPerStatement);
+            List<Deteccion> chunk = detecciones.subList(from, to);
+            List<CompactColumnEncoder.Columns> chunkColumns = encoded.subList(from, to);
+            String sql = chunk.size() == rowsPerStatement ? fullChunkSql : insertSql(chunk.size());
+            written += jdbc.update(sql, ps -> bind(ps, chunk, chunkColumns, now));
+        }
+        log.debug("Persisted {} detections via multi-row insert", written);
+        return written;
+    }
+
+    /** @return filas cargadas, o null si LOAD DATA no está disponible (el llamador usa INSERT) */
+    private Integer loadData(List<Deteccion> detecciones, List<CompactColumnEncoder.Columns> encoded, LocalDateTime now) {
+        try {
+            Integer loaded = jdbc.execute((ConnectionCallback<Integer>) con -> {
+                try (Statement st = con.createStatement()) {
+                    if (!st.isWrapperFor(org.mariadb.jdbc.Statement.class)) return null;
+                    st.unwrap(org.mariadb.jdbc.Statement.class)
+                            .setLocalInfileInputStream(new DeteccionesLoadDataStream(detecciones, encoded, now));
+                    int rows = st.executeUpdate(LOAD_DATA_SQL);
+                    // LOCAL implica IGNORE: truncados y conversiones fallidas solo llegan como warnings
+                    SQLWarning warning = st.getWarnings();
+                    if (warning != null) {
+                        throw new DataIntegrityViolationException("LOAD DATA rejected: " + describe(warning));
+                    }
+                    return rows;
+                }
+            });
+            if (loaded == null) {
+                disableLoadData("JDBC driver is not MariaDB Connector/J");
+                return null;
+            }
+            // una fila duplicada/descartada no siempre deja warning: también se verifica el total
+            if (loaded != detecciones.size()) {
+                throw new RowCountMismatch("LOAD DATA loaded " + loaded + " of " + detecciones.size() + " rows");
+            }
+            return loaded;
+        } catch (DataAccessException e) {
+            if (!isLocalInfileRejected(e)) throw e;
+            disableLoadData(e.getMostSpecificCause().getMessage());
+            return null;
+        }
+    }
+
+    /** Los primeros warnings del statement, para el mensaje de error. */
+    private static String describe(SQLWarning warning) {
+        StringBuilder sb = new StringBuilder();
+        int n = 0;
+        for (SQLWarning w = warning; w != null; w = w.getNextWarning()) {
+            if (n++ < MAX_REPORTED_WARNINGS) {
+                if (sb.length() > 0) sb.append("; ");
+                sb.append(w.getMessage());
+            }
+        }
+        if (n > MAX_REPORTED_WARNINGS) sb.append("; ... (").append(n).append(" warnings)");
+        return sb.toString();
+    }
+
+    private void disableLoadData(String reason) {
+        loadDataAvailable = false;
+        log.warn("LOAD DATA LOCAL INFILE unavailable ({}); large batches will use multi-row INSERT. "
+                + "Enable it with allowLocalInfile=true in DB_URL and local_infile=ON on the server", reason);
+    }
+
+    /** Error 1148 (comando no permitido), 3948 (local infile deshabilitado) o rechazo del propio driver. */
+    private static boolean isLocalInfileRejected(DataAccessException e) {
+        Throwable cause = e.getMostSpecificCause();
+        if (cause instanceof SQLException sql) {
+            int code = sql.getErrorCode();
+            if (code == 1148 || code == 3948) return true;
+        }
+        String msg = cause.getMessage();
+        return msg != null && msg.toLowerCase(Locale.ROOT).contains("local infile");
+    }
+
+    private static void bind(PreparedStatement ps, List<Deteccion> chunk,
+                             List<CompactColumnEncoder.Columns> chunkColumns, Timestamp now) throws SQLException {
+        int i = 1;
+        for (int r = 0; r < chunk.size(); r++) {
+            Deteccion d = chunk.get(r);
+            CompactColumnEncoder.Columns c = chunkColumns.get(r);
+            ps.setLong(i++, d.lectorId());
+            if (d.ubicacionId() != null) ps.setLong(i++, d.ubicacionId()); else ps.setNull(i++, Types.BIGINT);
+            ps.setString(i++, c.epc());
+            ps.setBytes(i++, c.epcBin());
+            if (d.rssi() != null) ps.setInt(i++, d.rssi()); else ps.setNull(i++, Types.INTEGER);
+            ps.setString(i++, c.machine());
+            if (c.machineId() != null) ps.setInt(i++, c.machineId()); else ps.setNull(i++, Types.INTEGER);
+            ps.setString(i++, c.version());
+            if (c.versionId() != null) ps.setInt(i++, c.versionId()); else ps.setNull(i++, Types.INTEGER);
+            if (d.tagId() != null) ps.setLong(i++, d.tagId()); else ps.setNull(i++, Types.BIGINT);
+            ps.setString(i++, d.tagTipo() != null ? d.tagTipo().name() : null);
+            if (d.ownerId() != null) ps.setLong(i++, d.ownerId()); else ps.setNull(i++, Types.BIGINT);
+            ps.setTimestamp(i++, d.createdAt() != null ? Timestamp.valueOf(d.createdAt()) : now);
+            ps.setTimestamp(i++, now);
+        }
+    }
+
+    /** Revierte la transacción de la carga; {@link #saveAll} repite el lote con INSERT. */
+    private static final class RowCountMismatch extends DataIntegrityViolationException {
+        RowCountMismatch(String msg) {
+            super(msg);
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 1));
+        sb.append(INSERT_PREFIX);
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(',');
+            sb.append(ROW_PLACEHOLDERS);
+        }
+        return sb.toString();
+    }
+}
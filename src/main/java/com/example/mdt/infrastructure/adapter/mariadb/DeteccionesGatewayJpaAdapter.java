@@ -6,29 +6,65 @@ import com.example.mdt.infrastructure.adapter.mariadb.entity.DeteccionTagEntity;
 import com.example.mdt.infrastructure.adapter.mariadb.repository.DeteccionTagJpaRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escribe detecciones con Spring Data JPA. Sin transacción propia: cada
+ * llamada al repositorio es una (el lote completo en {@code saveAll}), y los
+ * valores nuevos del esquema compacto se dan de alta antes, fuera de ella.
+ */
 @Component
+@ConditionalOnProperty(prefix = "ingest", name = "gateway", havingValue = "jpa", matchIfMissing = true)
 public class DeteccionesGatewayJpaAdapter implements DeteccionesGateway {
     private static final Logger log = LoggerFactory.getLogger(DeteccionesGatewayJpaAdapter.class);
     private final DeteccionTagJpaRepository repo;
+    private final CompactColumnEncoder columns;
 
-    public DeteccionesGatewayJpaAdapter(DeteccionTagJpaRepository repo) {
+    public DeteccionesGatewayJpaAdapter(DeteccionTagJpaRepository repo, CompactColumnEncoder columns) {
         this.repo = repo;
+        this.columns = columns;
     }
 
     @Override
-    @Transactional
     public void save(Deteccion d) {
+        columns.resolve(d.machine(), d.version());
+        repo.save(toEntity(d));
+        log.trace("Persisted detection epc={} lector_id={} ubicacion_id={}", d.epc(), d.lectorId(), d.ubicacionId());
+    }
+
+    @Override
+    public int saveAll(List<Deteccion> detecciones) {
+        if (detecciones.isEmpty()) return 0;
+        columns.resolve(detecciones);
+        List<DeteccionTagEntity> entities = new ArrayList<>(detecciones.size());
+        for (Deteccion d : detecciones) {
+            entities.add(toEntity(d));
+        }
+        repo.saveAll(entities);
+        log.debug("Persisted {} detections", entities.size());
+        return entities.size();
+    }
+
+    private DeteccionTagEntity toEntity(Deteccion d) {
+        var c = columns.encode(d);
         var e = new DeteccionTagEntity();
         e.setLectorId(d.lectorId());
         e.setUbicacionId(d.ubicacionId());
-        e.setEpc(d.epc());
+        e.setEpc(c.epc());
+        e.setEpcBin(c.epcBin());
         e.setRssi(d.rssi());
-        e.setMachine(d.machine());
+        e.setMachine(c.machine());
+        e.setMachineId(c.machineId());
+        e.setVersion(c.version());
+        e.setVersionId(c.versionId());
+        e.setTagId(d.tagId());
+        e.setTagTipo(d.tagTipo() != null ? d.tagTipo().name() : null);
+        e.setOwnerId(d.ownerId());
         e.setCreatedAt(d.createdAt());
-        repo.save(e);
-        log.debug("Persisted detection epc={} lector_id={} ubicacion_id={}", d.epc(), d.lectorId(), d.ubicacionId());
+        return e;
     }
 }
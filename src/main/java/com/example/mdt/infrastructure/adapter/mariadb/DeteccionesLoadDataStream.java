@@ -0,0 +1,113 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.infrastructure.adapter.codec.EpcCodec;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Filas de detecciones_tags en el formato por defecto de LOAD DATA (campos
+ * separados por tab, líneas por \n, escape con \, NULL = \N), generadas fila a
+ * fila mientras el driver lee: nunca se materializa el lote completo ni se
+ * escribe a disco.
+ *
+ * Orden de campos: ver {@link DeteccionesGatewayJdbcAdapter#LOAD_DATA_SQL};
+ * epc_bin va en hex y el SQL lo convierte con UNHEX.
+ */
+final class DeteccionesLoadDataStream extends InputStream {
+
+    /** DATETIME sin fracción, como la columna. */
+    private static final DateTimeFormatter DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final List<Deteccion> rows;
+    private final List<CompactColumnEncoder.Columns> columns;
+    private final String now;
+    private final StringBuilder line = new StringBuilder(192);
+    private byte[] buf = new byte[0];
+    private int pos;
+    private int next;
+
+    DeteccionesLoadDataStream(List<Deteccion> rows, List<CompactColumnEncoder.Columns> columns, LocalDateTime now) {
+        this.rows = rows;
+        this.columns = columns;
+        this.now = datetime(now);
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) return 0;
+        int total = 0;
+        while (total < len && fill()) {
+            int n = Math.min(len - total, buf.length - pos);
+            System.arraycopy(buf, pos, b, off + total, n);
+            pos += n;
+            total += n;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    /** true si hay bytes pendientes; codifica la siguiente fila cuando el buffer se agota. */
+    private boolean fill() {
+        while (pos >= buf.length) {
+            if (next >= rows.size()) return false;
+            encode(rows.get(next), columns.get(next));
+            next++;
+            buf = line.toString().getBytes(StandardCharsets.UTF_8);
+            pos = 0;
+        }
+        return true;
+    }
+
+    private void encode(Deteccion d, CompactColumnEncoder.Columns c) {
+        line.setLength(0);
+        field(d.lectorId());
+        field(d.ubicacionId());
+        field(c.epc());
+        field(c.epcBin() != null ? EpcCodec.decode(c.epcBin()) : null);
+        field(d.rssi());
+        field(c.machine());
+        field(c.machineId());
+        field(c.version());
+        field(c.versionId());
+        field(d.tagId());
+        field(d.tagTipo() != null ? d.tagTipo().name() : null);
+        field(d.ownerId());
+        field(d.createdAt() != null ? datetime(d.createdAt()) : now);
+        field(now);
+        line.setCharAt(line.length() - 1, '\n');
+    }
+
+    private void field(Object value) {
+        if (value == null) {
+            line.append("\\N");
+        } else {
+            String s = value.toString();
+            for (int i = 0, n = s.length(); i < n; i++) {
+                char ch = s.charAt(i);
+                switch (ch) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\0' -> line.append("\\0");
+                    default -> line.append(ch);
+                }
+            }
+        }
+        line.append('\t');
+    }
+
+    private static String datetime(LocalDateTime t) {
+        return DATETIME.format(t);
+    }
+}
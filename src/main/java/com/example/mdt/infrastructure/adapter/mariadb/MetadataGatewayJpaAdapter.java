@@ -6,7 +6,11 @@ import com.example.mdt.infrastructure.adapter.mariadb.repository.LectorUhfJpaRep
 import com.example.mdt.infrastructure.adapter.mariadb.repository.UbicacionJpaRepository;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class MetadataGatewayJpaAdapter implements MetadataGateway {
@@ -28,4 +32,18 @@ public class MetadataGatewayJpaAdapter implements MetadataGateway {
     public boolean existsUbicacionId(Long id) {
         return ubicRepo.existsById(id);
     }
-}
\ No newline at end of file
+
+    /** Todos los lectores (codigo → id); usado para armar el snapshot del cache. */
+    public Map<String, Long> loadLectorIds() {
+        Map<String, Long> out = new HashMap<>();
+        for (LectorUhfJpaRepository.CodigoId row : lectorRepo.findAllCodigoIds()) {
+            out.put(row.getCodigo(), row.getId());
+        }
+        return out;
+    }
+
+    /** Todos los ids de ubicaciones; usado para armar el snapshot del cache. */
+    public Set<Long> loadUbicacionIds() {
+        return new HashSet<>(ubicRepo.findAllIds());
+    }
+}
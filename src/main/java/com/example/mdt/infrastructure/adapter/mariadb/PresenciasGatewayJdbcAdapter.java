@@ -0,0 +1,41 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.gateway.PresenciasGateway;
+import com.example.mdt.domain.model.Presencia;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@Component
+public class PresenciasGatewayJdbcAdapter implements PresenciasGateway {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO presencias_tags (lector_id, ubicacion_id, epc, first_seen, last_seen, read_count, max_rssi) "
+            + "VALUES (?,?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbc;
+
+    public PresenciasGatewayJdbcAdapter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    @Transactional
+    public int saveAll(List<Presencia> presencias) {
+        if (presencias.isEmpty()) return 0;
+        jdbc.batchUpdate(INSERT_SQL, presencias, 500, (ps, p) -> {
+            ps.setLong(1, p.lectorId());
+            if (p.ubicacionId() != null) ps.setLong(2, p.ubicacionId()); else ps.setNull(2, Types.BIGINT);
+            ps.setString(3, p.epc());
+            ps.setTimestamp(4, Timestamp.valueOf(p.firstSeen()));
+            ps.setTimestamp(5, Timestamp.valueOf(p.lastSeen()));
+            ps.setInt(6, p.readCount());
+            if (p.maxRssi() != null) ps.setInt(7, p.maxRssi()); else ps.setNull(7, Types.INTEGER);
+        });
+        return presencias.size();
+    }
+}
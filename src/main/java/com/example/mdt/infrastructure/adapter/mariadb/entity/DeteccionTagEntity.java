@@ -5,9 +5,16 @@ public class DeteccionTagEntity {
     @Id @GeneratedValue(strategy=GenerationType.IDENTITY) private Long id;
     @Column(name="lector_id", nullable=false) private Long lectorId;
     @Column(name="ubicacion_id") private Long ubicacionId;
-    @Column(name="epc", nullable=false, length=64) private String epc;
+    @Column(name="epc", length=64) private String epc;
+    @Column(name="epc_bin", length=32) private byte[] epcBin;
     @Column(name="rssi") private Integer rssi;
     @Column(name="machine", length=100) private String machine;
+    @Column(name="machine_id") private Integer machineId;
+    @Column(name="version", length=20) private String version;
+    @Column(name="version_id") private Integer versionId;
+    @Column(name="tag_id") private Long tagId;
+    @Column(name="tag_tipo", length=20) private String tagTipo;
+    @Column(name="owner_id") private Long ownerId;
     @Column(name="created_at", nullable=false) private LocalDateTime createdAt;
     @Column(name="updated_at", nullable=false) private LocalDateTime updatedAt;
     @PrePersist public void onPersist(){ var now = LocalDateTime.now(); if (createdAt==null) createdAt=now; updatedAt=now; }
@@ -17,7 +24,14 @@ public class DeteccionTagEntity {
     public Long getUbicacionId(){ return ubicacionId; } public void setUbicacionId(Long v){ ubicacionId=v; }
     public String getEpc(){ return epc; } public void setEpc(String v){ epc=v; }
     public Integer getRssi(){ return rssi; } public void setRssi(Integer v){ rssi=v; }
+    public byte[] getEpcBin(){ return epcBin; } public void setEpcBin(byte[] v){ epcBin=v; }
     public String getMachine(){ return machine; } public void setMachine(String v){ machine=v; }
+    public Integer getMachineId(){ return machineId; } public void setMachineId(Integer v){ machineId=v; }
+    public String getVersion(){ return version; } public void setVersion(String v){ version=v; }
+    public Integer getVersionId(){ return versionId; } public void setVersionId(Integer v){ versionId=v; }
+    public Long getTagId(){ return tagId; } public void setTagId(Long v){ tagId=v; }
+    public String getTagTipo(){ return tagTipo; } public void setTagTipo(String v){ tagTipo=v; }
+    public Long getOwnerId(){ return ownerId; } public void setOwnerId(Long v){ ownerId=v; }
     public LocalDateTime getCreatedAt(){ return createdAt; } public void setCreatedAt(LocalDateTime v){ createdAt=v; }
     public LocalDateTime getUpdatedAt(){ return updatedAt; } public void setUpdatedAt(LocalDateTime v){ updatedAt=v; }
 }
@@ -2,9 +2,20 @@ package com.example.mdt.infrastructure.adapter.mariadb.repository;
 
 import com.example.mdt.infrastructure.adapter.mariadb.entity.UHFReaderEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface LectorUhfJpaRepository extends JpaRepository<UHFReaderEntity, Long> {
     Optional<UHFReaderEntity> findByCodigo(String codigo);
+
+    /** Proyección liviana codigo → id para el cache de metadatos. */
+    interface CodigoId {
+        String getCodigo();
+        Long getId();
+    }
+
+    @Query("select l.codigo as codigo, l.id as id from UHFReaderEntity l")
+    List<CodigoId> findAllCodigoIds();
 }
@@ -2,5 +2,11 @@ package com.example.mdt.infrastructure.adapter.mariadb.repository;
 
 import com.example.mdt.infrastructure.adapter.mariadb.entity.LocationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface UbicacionJpaRepository extends JpaRepository<LocationEntity, Long> { }
+import java.util.List;
+
+public interface UbicacionJpaRepository extends JpaRepository<LocationEntity, Long> {
+    @Query("select u.id from LocationEntity u")
+    List<Long> findAllIds();
+}
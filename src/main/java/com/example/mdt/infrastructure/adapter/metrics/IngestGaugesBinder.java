@@ -0,0 +1,144 @@
+package com.example.mdt.infrastructure.adapter.metrics;
+
+import com.example.mdt.infrastructure.adapter.backlog.BacklogDrainService;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogStore;
+import com.example.mdt.infrastructure.adapter.db.DbCircuitBreaker;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import com.example.mdt.infrastructure.adapter.debounce.ReadDebounceFilter;
+import com.example.mdt.infrastructure.adapter.ingest.IngestScheduler;
+import com.example.mdt.infrastructure.adapter.ingest.ShardedIngestExecutor;
+import com.example.mdt.infrastructure.adapter.ingest.WriteBehindBatcher;
+import com.example.mdt.infrastructure.adapter.live.LiveDetectionBuffer;
+import com.example.mdt.infrastructure.adapter.location.LastSeenIndex;
+import com.example.mdt.infrastructure.adapter.mqtt.MqttListenerService;
+import com.example.mdt.infrastructure.adapter.presence.PresenceSessionAggregator;
+import com.example.mdt.infrastructure.adapter.tags.TagRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges del estado interno de la ingesta. Las métricas del pool Hikari
+ * ({@code hikaricp.connections.*}) las registra Spring Boot Actuator.
+ */
+@Component
+public class IngestGaugesBinder implements MeterBinder {
+
+    private final BacklogStore backlog;
+    private final BacklogDrainService drain;
+    private final DbHealthService dbHealth;
+    private final DbCircuitBreaker breaker;
+    private final WriteBehindBatcher writeBehind;
+    private final ShardedIngestExecutor dispatcher;
+    private final IngestScheduler scheduler;
+    private final MqttListenerService listener;
+    private final ObjectProvider<ReadDebounceFilter> debounce;
+    private final ObjectProvider<PresenceSessionAggregator> presence;
+    private final ObjectProvider<TagRegistry> tags;
+    private final ObjectProvider<LastSeenIndex> lastSeen;
+    private final ObjectProvider<LiveDetectionBuffer> live;
+
+    public IngestGaugesBinder(BacklogStore backlog, BacklogDrainService drain, DbHealthService dbHealth,
+                              DbCircuitBreaker breaker, WriteBehindBatcher writeBehind, ShardedIngestExecutor dispatcher,
+                              IngestScheduler scheduler, MqttListenerService listener,
+                              ObjectProvider<ReadDebounceFilter> debounce,
+                              ObjectProvider<PresenceSessionAggregator> presence,
+                              ObjectProvider<TagRegistry> tags,
+                              ObjectProvider<LastSeenIndex> lastSeen,
+                              ObjectProvider<LiveDetectionBuffer> live) {
+        this.backlog = backlog;
+        this.drain = drain;
+        this.dbHealth = dbHealth;
+        this.breaker = breaker;
+        this.writeBehind = writeBehind;
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.debounce = debounce;
+        this.presence = presence;
+        this.tags = tags;
+        this.lastSeen = lastSeen;
+        this.live = live;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mdt.db.available", dbHealth, h -> h.isAvailable() ? 1 : 0)
+                .description("1 con el esquema migrado y el circuit breaker sin abrir")
+                .register(registry);
+        Gauge.builder("mdt.db.circuit_state", breaker, b -> b.state().ordinal())
+                .description("Circuit breaker de escritura: 0 CLOSED, 1 HALF_OPEN, 2 OPEN")
+                .register(registry);
+
+        Gauge.builder("mdt.backlog.depth", backlog, BacklogStore::depth)
+                .description("Mensajes pendientes en el backlog local")
+                .register(registry);
+        FunctionCounter.builder("mdt.backlog.quarantined", backlog, BacklogStore::quarantinedTotal)
+                .description("Registros dañados del backlog saltados y copiados a quarantine/")
+                .register(registry);
+        Gauge.builder("mdt.backlog.catch_up", drain, d -> d.isCatchUpRunning() ? 1 : 0)
+                .description("1 mientras el backlog se drena en modo catch-up")
+                .register(registry);
+        Gauge.builder("mdt.backlog.replay_rate", scheduler, IngestScheduler::replayRate)
+                .description("Ritmo de replay del backlog permitido (registros/s)")
+                .register(registry);
+
+        Gauge.builder("mdt.ingest.write_behind.queue", writeBehind, WriteBehindBatcher::queueDepth)
+                .description("Mensajes esperando al flusher write-behind")
+                .register(registry);
+        Gauge.builder("mdt.ingest.in_flight", dispatcher, ShardedIngestExecutor::inFlight)
+                .description("Mensajes despachados a shards y aún no terminados")
+                .register(registry);
+        for (int i = 0; i < dispatcher.shardCount(); i++) {
+            final int shard = i;
+            Gauge.builder("mdt.ingest.shard.queue", dispatcher, d -> d.shardQueueDepth(shard))
+                    .description("Mensajes en cola por shard de DEVICE")
+                    .tag("shard", Integer.toString(shard))
+                    .register(registry);
+        }
+
+        Gauge.builder("mdt.mqtt.ack.queue", listener, MqttListenerService::ackQueueDepth)
+                .description("ACK/NACK esperando publicación")
+                .register(registry);
+        Gauge.builder("mdt.mqtt.unacked", listener, MqttListenerService::unackedInbound)
+                .description("Mensajes entrantes QoS>0 aún sin PUBACK")
+                .register(registry);
+
+        debounce.ifAvailable(f -> FunctionCounter.builder("mdt.ingest.debounce.suppressed", f,
+                        ReadDebounceFilter::suppressedTotal)
+                .description("Lecturas suprimidas por el debounce")
+                .register(registry));
+        presence.ifAvailable(p -> Gauge.builder("mdt.presence.open_sessions", p,
+                        PresenceSessionAggregator::openSessions)
+                .description("Sesiones de presencia abiertas")
+                .register(registry));
+        tags.ifAvailable(t -> {
+            Gauge.builder("mdt.tags.registry.size", t, TagRegistry::size)
+                    .description("Tags de tags_uhf en el registro en memoria")
+                    .register(registry);
+            FunctionCounter.builder("mdt.tags.unknown", t, TagRegistry::unknownTotal)
+                    .description("Lecturas de EPC no registrados en tags_uhf")
+                    .register(registry);
+            FunctionCounter.builder("mdt.tags.inactive", t, TagRegistry::inactiveTotal)
+                    .description("Lecturas de tags desactivados")
+                    .register(registry);
+        });
+        lastSeen.ifAvailable(l -> Gauge.builder("mdt.location.tracked", l, LastSeenIndex::tracked)
+                .description("EPC en el índice de última ubicación")
+                .register(registry));
+        live.ifAvailable(b -> {
+            Gauge.builder("mdt.live.subscribers", b, LiveDetectionBuffer::subscribers)
+                    .description("Conexiones SSE del stream en vivo")
+                    .register(registry);
+            FunctionCounter.builder("mdt.live.published", b, LiveDetectionBuffer::publishedTotal)
+                    .description("Detecciones publicadas al ring buffer del stream en vivo")
+                    .register(registry);
+            FunctionCounter.builder("mdt.live.skipped", b, LiveDetectionBuffer::skippedTotal)
+                    .description("Eventos que suscriptores lentos saltaron")
+                    .register(registry);
+        });
+    }
+}
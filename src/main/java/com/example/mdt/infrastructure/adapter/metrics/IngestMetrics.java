@@ -0,0 +1,106 @@
+package com.example.mdt.infrastructure.adapter.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers y contadores del pipeline de ingesta.
+ *
+ * <ul>
+ *   <li>{@code mdt.ingest.stage{stage=decode|validate|insert|ack_publish}}: duración por etapa.</li>
+ *   <li>{@code mdt.ingest.latency{outcome=ack|nack}}: de la llegada del mensaje a su ACK/NACK.</li>
+ *   <li>{@code mdt.ingest.messages}, {@code mdt.ingest.detections}: mensajes recibidos y filas escritas.</li>
+ *   <li>{@code mdt.ingest.nacks{reason}}: NACK por motivo.</li>
+ * </ul>
+ * Los timers publican histograma para calcular percentiles en Prometheus.
+ */
+@Component
+public class IngestMetrics {
+
+    /** Tope de motivos de NACK distintos; el resto se cuenta como "other". */
+    private static final int MAX_NACK_REASONS = 32;
+
+    private final MeterRegistry registry;
+
+    private final Timer decode;
+    private final Timer validate;
+    private final Timer insert;
+    private final Timer ackPublish;
+    private final Timer latencyAck;
+    private final Timer latencyNack;
+    private final Counter messages;
+    private final Counter detections;
+    private final Map<String, Counter> nacks = new ConcurrentHashMap<>();
+
+    public IngestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.decode = stage("decode");
+        this.validate = stage("validate");
+        this.insert = stage("insert");
+        this.ackPublish = stage("ack_publish");
+        this.latencyAck = latency("ack");
+        this.latencyNack = latency("nack");
+        this.messages = Counter.builder("mdt.ingest.messages")
+                .description("Mensajes MQTT recibidos en el topic PASS")
+                .register(registry);
+        this.detections = Counter.builder("mdt.ingest.detections")
+                .description("Detecciones escritas en detecciones_tags")
+                .register(registry);
+    }
+
+    public void recordDecode(long nanos) { decode.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public void recordValidate(long nanos) { validate.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public void recordInsert(long nanos) { insert.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public void recordAckPublish(long nanos) { ackPublish.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public void recordLatency(long nanos, boolean ok) {
+        (ok ? latencyAck : latencyNack).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void message() { messages.increment(); }
+
+    public void detections(int rows) {
+        if (rows > 0) detections.increment(rows);
+    }
+
+    public void nack(String reason) {
+        String key = reason == null || reason.isBlank() ? "unknown" : reason;
+        Counter c = nacks.get(key);
+        if (c == null) {
+            if (nacks.size() >= MAX_NACK_REASONS) key = "other";
+            c = nacks.computeIfAbsent(key, r -> Counter.builder("mdt.ingest.nacks")
+                    .description("NACK publicados por motivo")
+                    .tag("reason", r)
+                    .register(registry));
+        }
+        c.increment();
+    }
+
+    private Timer stage(String name) {
+        return Timer.builder("mdt.ingest.stage")
+                .description("Duración de cada etapa del pipeline de ingesta")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private Timer latency(String outcome) {
+        return Timer.builder("mdt.ingest.latency")
+                .description("Llegada del mensaje MQTT hasta su ACK/NACK")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry);
+    }
+}
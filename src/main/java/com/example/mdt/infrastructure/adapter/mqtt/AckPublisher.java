@@ -0,0 +1,194 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import com.example.mdt.infrastructure.adapter.metrics.IngestMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publica ACK/NACK fuera del hilo de ingesta.
+ *
+ * {@link #submit} solo encola (si la cola está llena la respuesta se descarta
+ * y se cuenta). Un hilo dedicado vacía la cola en tandas y, dentro de cada
+ * tanda, junta los ACK positivos sin correlation data que van al mismo topic
+ * de dispositivo en un solo mensaje con {@code inserted} sumado y
+ * {@code count} mensajes. Los NACK y las respuestas con correlation data
+ * (request/response MQTT5) se publican siempre una a una.
+ *
+ * Solo se juntan ACK consecutivos de un mismo topic: antes de publicar un NACK
+ * se publica el grupo abierto de su topic, así que en cada topic las
+ * respuestas salen en el orden en que se encolaron.
+ */
+final class AckPublisher {
+    private static final Logger log = LoggerFactory.getLogger(AckPublisher.class);
+
+    private static final int MAX_DRAIN = 1024;
+    private static final int INFLIGHT_RETRIES = 20;
+    private static final long DROP_REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /** Respuesta pendiente; {@code coalesce} = topic propio del dispositivo (se puede agrupar). */
+    record Reply(MqttConnection connection, String topic, byte[] correlationData,
+                 boolean coalesce, boolean ok, int inserted, String reason) {}
+
+    private record GroupKey(MqttConnection connection, String topic) {}
+
+    private final int qos;
+    private final ObjectMapper mapper;
+    private final IngestMetrics metrics;
+    private final BlockingQueue<Reply> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long lastDropReport = System.nanoTime();
+
+    AckPublisher(int qos, int capacity, ObjectMapper mapper, IngestMetrics metrics) {
+        this.qos = qos;
+        this.mapper = mapper;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.worker = Thread.ofPlatform().name("mqtt-ack-publisher").daemon(true).unstarted(this::run);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    /** Nunca bloquea; false si la cola está llena y la respuesta se descartó. */
+    boolean submit(Reply reply) {
+        if (queue.offer(reply)) return true;
+        dropped.increment();
+        return false;
+    }
+
+    int queueDepth() { return queue.size(); }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Reply> batch = new ArrayList<>(MAX_DRAIN);
+        while (running || !queue.isEmpty()) {
+            try {
+                Reply first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_DRAIN - 1);
+                    publishBatch(batch);
+                }
+                reportDropped();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    // último vaciado sin esperar: lo que quede se publica una vez
+                    queue.drainTo(batch);
+                    publishBatch(batch);
+                    break;
+                }
+            } catch (Exception e) {
+                log.warn("Unexpected error publishing ACKs: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publishBatch(List<Reply> batch) {
+        Map<GroupKey, int[]> coalesced = new LinkedHashMap<>();
+        for (Reply r : batch) {
+            GroupKey key = new GroupKey(r.connection(), r.topic());
+            if (r.ok() && r.coalesce() && r.correlationData() == null) {
+                int[] acc = coalesced.computeIfAbsent(key, k -> new int[2]);
+                acc[0] += r.inserted();
+                acc[1]++;
+            } else {
+                // los ACK ya agrupados de este topic salen antes que esta respuesta
+                int[] open = coalesced.remove(key);
+                if (open != null) publishGroup(key, open);
+                publish(r.connection(), r.topic(), r.correlationData(), r.ok(), r.inserted(), 1, r.reason());
+            }
+        }
+        for (Map.Entry<GroupKey, int[]> e : coalesced.entrySet()) {
+            publishGroup(e.getKey(), e.getValue());
+        }
+    }
+
+    private void publishGroup(GroupKey key, int[] acc) {
+        publish(key.connection(), key.topic(), null, true, acc[0], acc[1], null);
+    }
+
+    private void publish(MqttConnection connection, String topic, byte[] correlationData,
+                         boolean ok, int inserted, int count, String reason) {
+        try {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("ok", ok);
+            if (ok) {
+                node.put("inserted", inserted);
+                if (count > 1) node.put("count", count);
+            } else {
+                node.put("reason", reason);
+            }
+            byte[] payload = mapper.writeValueAsBytes(node);
+
+            MqttMessage msg = new MqttMessage(payload);
+            msg.setQos(qos);
+            if (correlationData != null) {
+                MqttProperties p = new MqttProperties();
+                p.setCorrelationData(correlationData);
+                msg.setProperties(p);
+            }
+            long t0 = System.nanoTime();
+            publishWithRetry(connection, topic, msg);
+            metrics.recordAckPublish(System.nanoTime() - t0);
+            if (log.isDebugEnabled()) {
+                log.debug("Published {} to {}: {}", ok ? "ACK" : "negative ACK", topic, node);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to publish {}: {}", ok ? "ACK" : "negative ACK", e.getMessage());
+        }
+    }
+
+    /** Con la ventana de publicaciones QoS>0 llena, espera un poco en este hilo (nunca en el de ingesta). */
+    private void publishWithRetry(MqttConnection connection, String topic, MqttMessage msg) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                connection.publish(topic, msg);
+                return;
+            } catch (MqttException e) {
+                if (e.getReasonCode() != MqttClientException.REASON_CODE_MAX_INFLIGHT || attempt >= INFLIGHT_RETRIES) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long now = System.nanoTime();
+        if (now - lastDropReport < DROP_REPORT_NANOS) return;
+        lastDropReport = now;
+        long n = dropped.sumThenReset();
+        if (n > 0) {
+            log.warn("ACK queue full: dropped {} ACK/NACK replies", n);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+
+/**
+ * PUBACK manual de los mensajes QoS1/2 entrantes.
+ *
+ * Cada mensaje recibe un {@link Ticket} al llegar y se completa cuando su
+ * destino es definitivo: detecciones con commit, registro en el backlog o
+ * rechazo con NACK. MQTT exige enviar los PUBACK en el orden en que llegaron
+ * los PUBLISH, y con shards o write-behind los mensajes terminan desordenados:
+ * el ack de un ticket se retiene hasta que todos los anteriores terminaron.
+ *
+ * Los ids de paquete solo valen dentro de una conexión: {@link #reset()} al
+ * reconectar descarta los tickets pendientes (el broker reenvía esos mensajes
+ * si la sesión sobrevivió).
+ */
+final class InboundAckTracker {
+    private static final Logger log = LoggerFactory.getLogger(InboundAckTracker.class);
+
+    @FunctionalInterface
+    interface Acker {
+        void ack(int messageId, int qos) throws Exception;
+    }
+
+    interface Ticket {
+        void complete();
+    }
+
+    private static final Ticket NOOP = () -> {};
+
+    private final class Pending implements Ticket {
+        final long generation;
+        final int messageId;
+        final int qos;
+        boolean done;
+
+        Pending(long generation, int messageId, int qos) {
+            this.generation = generation;
+            this.messageId = messageId;
+            this.qos = qos;
+        }
+
+        @Override
+        public void complete() {
+            InboundAckTracker.this.complete(this);
+        }
+    }
+
+    private final boolean enabled;
+    private final Acker acker;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private long generation;
+
+    InboundAckTracker(boolean enabled, Acker acker) {
+        this.enabled = enabled;
+        this.acker = acker;
+    }
+
+    Ticket register(int messageId, int qos) {
+        if (!enabled || qos == 0) return NOOP;
+        synchronized (this) {
+            Pending p = new Pending(generation, messageId, qos);
+            pending.addLast(p);
+            return p;
+        }
+    }
+
+    synchronized int unacked() { return pending.size(); }
+
+    /** Nueva conexión: los tickets anteriores ya no se pueden confirmar. */
+    synchronized void reset() {
+        generation++;
+        if (!pending.isEmpty()) {
+            log.info("Discarding {} unacked inbound messages from previous MQTT connection", pending.size());
+            pending.clear();
+        }
+    }
+
+    private synchronized void complete(Pending p) {
+        if (p.done) return;
+        p.done = true;
+        if (p.generation != generation) return;
+        while (!pending.isEmpty() && pending.peekFirst().done) {
+            Pending head = pending.pollFirst();
+            try {
+                acker.ack(head.messageId, head.qos);
+            } catch (Exception e) {
+                log.warn("Failed to ack inbound message {}: {}", head.messageId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Una conexión MQTT del consumidor: cliente Paho, suscripción a PASS y PUBACK
+ * manual de sus mensajes. {@link MqttListenerService} abre una o varias
+ * (mqtt.connections) y procesa lo que llega por todas.
+ */
+final class MqttConnection implements MqttCallback {
+
+    private static final Logger log = LoggerFactory.getLogger(MqttConnection.class);
+
+    @FunctionalInterface
+    interface MessageHandler {
+        void onMessage(MqttConnection connection, String topic, MqttMessage message);
+    }
+
+    private final MqttProps props;
+    private final String clientId;
+    private final String subscription;
+    private final MessageHandler handler;
+    private final InboundAckTracker acks;
+
+    private MqttAsyncClient client;
+
+    /**
+     * true once we've had at least one successful connection.
+     * After that, Paho's automatic reconnect takes over; we don't
+     * keep doing manual reconnect attempts from the @Scheduled task.
+     */
+    private final AtomicBoolean everConnected = new AtomicBoolean(false);
+
+    /**
+     * Prevents "connect already in progress" by ensuring only one
+     * explicit connect() attempt at a time (before the first successful connect).
+     */
+    private final AtomicBoolean connecting = new AtomicBoolean(false);
+
+    MqttConnection(MqttProps props, String clientId, String subscription, MessageHandler handler) {
+        this.props = props;
+        this.clientId = clientId;
+        this.subscription = subscription;
+        this.handler = handler;
+        this.acks = new InboundAckTracker(Boolean.TRUE.equals(props.manualAcks()),
+                (id, qos) -> client.messageArrivedComplete(id, qos));
+    }
+
+    String clientId() { return clientId; }
+
+    boolean everConnected() { return everConnected.get(); }
+
+    int unacked() { return acks.unacked(); }
+
+    boolean isConnected() { return client != null && client.isConnected(); }
+
+    InboundAckTracker.Ticket register(MqttMessage message) {
+        return acks.register(message.getId(), message.getQos());
+    }
+
+    IMqttToken publish(String topic, MqttMessage message) throws MqttException {
+        return client.publish(topic, message);
+    }
+
+    // -------------------------------------------------------------------------
+    // Connection / subscription
+    // -------------------------------------------------------------------------
+
+    synchronized void connectAndSubscribe() throws Exception {
+        if (client != null && client.isConnected()) {
+            everConnected.set(true);
+            log.debug("MQTT already connected, skipping connectAndSubscribe");
+            return;
+        }
+
+        if (connecting.get()) {
+            log.debug("MQTT connect already in progress, skipping connectAndSubscribe");
+            return;
+        }
+
+        // Lazily create client if needed
+        if (client == null) {
+            client = new MqttAsyncClient(props.brokerUrl(), clientId, new MemoryPersistence());
+            client.setCallback(this);
+            client.setManualAcks(Boolean.TRUE.equals(props.manualAcks()));
+            log.info("Created MQTT client with clientId={}", clientId);
+        }
+
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setCleanStart(props.cleanStart());
+        options.setAutomaticReconnect(true);   // let Paho handle reconnects after first success
+        options.setSessionExpiryInterval(props.sessionExpirySeconds());
+        options.setReceiveMaximum(props.receiveMaximum()); // mensajes sin ack que el broker nos puede enviar
+        options.setKeepAliveInterval(30);      // seconds; tune if needed
+
+        if (props.username() != null && !props.username().isBlank()) {
+            options.setUserName(props.username());
+        }
+        if (props.password() != null && !props.password().isBlank()) {
+            options.setPassword(props.password().getBytes(StandardCharsets.UTF_8));
+        }
+
+        connecting.set(true);
+        try {
+            log.info("Connecting to MQTT broker {} as {} ...", props.brokerUrl(), clientId);
+            // Async connect; success/failure will be reported via callbacks.
+            client.connect(options);
+        } catch (Exception e) {
+            connecting.set(false);
+            log.warn("MQTT connect() call failed: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private void subscribeAll() throws Exception {
+        if (client == null || !client.isConnected()) {
+            log.warn("Cannot subscribe: MQTT client is not connected");
+            return;
+        }
+
+        if (subscription != null && !subscription.isBlank()) {
+            client.subscribe(subscription, props.qos());
+            log.info("Subscribed to PASS topic '{}', qos={}", subscription, props.qos());
+        } else {
+            log.warn("MQTT PASS topic is not configured; no subscriptions performed");
+        }
+    }
+
+    void close() {
+        try {
+            if (client != null) {
+                log.info("Disconnecting MQTT client {}...", clientId);
+                client.disconnect();
+                client.close();
+            }
+        } catch (Exception e) {
+            log.warn("Error while disconnecting MQTT client: {}", e.getMessage(), e);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // MQTT Callback
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void disconnected(MqttDisconnectResponse disconnectResponse) {
+        Integer code = disconnectResponse != null ? disconnectResponse.getReturnCode() : null;
+        String msg = disconnectResponse != null ? disconnectResponse.getReasonString() : null;
+
+        log.warn("MQTT disconnected: clientId={} code={} msg={}", clientId, code, msg);
+
+        // 142 = Session taken over (duplicate ClientID)
+        if (Integer.valueOf(142).equals(code)) {
+            log.warn("MQTT disconnect reason 142 (Session taken over). " +
+                     "Another client likely connected using the same base ClientID='{}'. " +
+                     "If you are running multiple instances, ensure their MQTT_CLIENT_ID " +
+                     "values are not identical, or rely on the unique-suffix behavior.",
+                     props.clientId());
+        }
+
+        // We do NOT trigger manual reconnect here; Paho automatic reconnect handles it
+        connecting.set(false);
+    }
+
+    @Override
+    public void mqttErrorOccurred(MqttException e) {
+        log.error("MQTT error occurred", e);
+    }
+
+    @Override
+    public void connectComplete(boolean reconnect, String serverURI) {
+        connecting.set(false);
+        everConnected.set(true);
+        acks.reset();
+
+        log.info("MQTT connectComplete: clientId={} reconnect={} serverURI={}", clientId, reconnect, serverURI);
+        try {
+            if (client != null && client.isConnected()) {
+                subscribeAll();
+                log.info("Re-subscribed after connectComplete");
+            }
+        } catch (Exception e) {
+            log.error("Failed to subscribe after connectComplete", e);
+        }
+    }
+
+    @Override
+    public void authPacketArrived(int reasonCode, MqttProperties properties) {
+        // Optional: implement if you use enhanced auth.
+        log.debug("MQTT authPacketArrived: reasonCode={}", reasonCode);
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        handler.onMessage(this, topic, message);
+    }
+
+    @Override
+    public void deliveryComplete(IMqttToken token) {
+        log.debug("MQTT deliveryComplete: {}", token.getMessageId());
+    }
+}
@@ -1,20 +1,20 @@
 package com.example.mdt.infrastructure.adapter.mqtt;
 
+import com.example.mdt.domain.model.PreparedScan;
 import com.example.mdt.domain.model.Scan;
 import com.example.mdt.domain.usecase.ProcessScanUseCase;
 import com.example.mdt.infrastructure.adapter.backlog.BacklogStore;
+import com.example.mdt.infrastructure.adapter.codec.ScanPayloadDecoder;
+import com.example.mdt.infrastructure.adapter.db.DbCircuitBreaker;
 import com.example.mdt.infrastructure.adapter.db.DbHealthService;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.mdt.infrastructure.adapter.ingest.IngestScheduler;
+import com.example.mdt.infrastructure.adapter.ingest.ShardedIngestExecutor;
+import com.example.mdt.infrastructure.adapter.ingest.WriteBehindBatcher;
+import com.example.mdt.infrastructure.adapter.logging.IngestLogSampler;
+import com.example.mdt.infrastructure.adapter.metrics.IngestMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
-import org.eclipse.paho.mqttv5.client.MqttCallback;
-import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
-import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
-import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
-import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
 import org.slf4j.Logger;
@@ -26,45 +26,91 @@ import org.springframework.stereotype.Component;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Component
-public class MqttListenerService implements MqttCallback {
+public class MqttListenerService {
 
     private static final Logger log = LoggerFactory.getLogger(MqttListenerService.class);
 
     private final MqttProps props;
     private final ProcessScanUseCase useCase;
     private final DbHealthService dbHealth;
+    private final DbCircuitBreaker breaker;
     private final BacklogStore backlogStore;
+    private final WriteBehindBatcher writeBehind;
+    private final ShardedIngestExecutor dispatcher;
+    private final ScanPayloadDecoder decoder;
+    private final IngestScheduler scheduler;
+    private final IngestMetrics metrics;
+    private final IngestLogSampler logSampler;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    private MqttAsyncClient client;
+    /** Una o varias conexiones (mqtt.connections); todas entregan en {@link #onMessage}. */
+    private final List<MqttConnection> connections = new ArrayList<>();
 
-    /**
-     * true once we've had at least one successful connection.
-     * After that, Paho's automatic reconnect takes over; we don't
-     * keep doing manual reconnect attempts from the @Scheduled task.
-     */
-    private final AtomicBoolean everConnected = new AtomicBoolean(false);
+    /** Publicación de ACK/NACK fuera del hilo de ingesta. */
+    private AckPublisher ackPublisher;
 
     /**
-     * Prevents "connect already in progress" by ensuring only one
-     * explicit connect() attempt at a time (before the first successful connect).
+     * Mensaje en curso: conexión por la que llegó, su PUBACK pendiente y a dónde
+     * responder (Response Topic / Correlation Data MQTT5 y DEVICE una vez decodificado).
      */
-    private final AtomicBoolean connecting = new AtomicBoolean(false);
+    private static final class Inbound {
+        final MqttConnection connection;
+        final InboundAckTracker.Ticket ack;
+        /** Para el backlog si la DB falla después de aceptar el mensaje. */
+        final byte[] payload;
+        final String responseTopic;
+        final byte[] correlationData;
+        final long arrivedNanos = System.nanoTime();
+        /** Hora de lectura de sus detecciones; el backlog la conserva para el replay. */
+        final long receivedAtMillis = System.currentTimeMillis();
+        String device;
+
+        Inbound(MqttConnection connection, InboundAckTracker.Ticket ack, MqttMessage message) {
+            this.connection = connection;
+            this.ack = ack;
+            this.payload = message.getPayload();
+            MqttProperties p = message.getProperties();
+            this.responseTopic = p != null ? p.getResponseTopic() : null;
+            this.correlationData = p != null ? p.getCorrelationData() : null;
+        }
+
+        LocalDateTime readAt() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(receivedAtMillis), ZoneId.systemDefault());
+        }
+    }
 
     public MqttListenerService(MqttProps props,
                                ProcessScanUseCase useCase,
                                DbHealthService dbHealth,
-                               BacklogStore backlogStore) {
+                               DbCircuitBreaker breaker,
+                               BacklogStore backlogStore,
+                               WriteBehindBatcher writeBehind,
+                               ShardedIngestExecutor dispatcher,
+                               ScanPayloadDecoder decoder,
+                               IngestScheduler scheduler,
+                               IngestMetrics metrics,
+                               IngestLogSampler logSampler) {
         this.props = props;
         this.useCase = useCase;
         this.dbHealth = dbHealth;
+        this.breaker = breaker;
         this.backlogStore = backlogStore;
+        this.writeBehind = writeBehind;
+        this.dispatcher = dispatcher;
+        this.decoder = decoder;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.logSampler = logSampler;
     }
 
     // -------------------------------------------------------------------------
@@ -73,265 +119,292 @@ public class MqttListenerService implements MqttCallback {
 
     @PostConstruct
     public void start() {
-        try {
-            connectAndSubscribe();
-        } catch (Exception e) {
-            log.warn("Initial MQTT connect failed: {}", e.getMessage(), e);
+        ackPublisher = new AckPublisher(props.qos(), props.ackQueueCapacity(), mapper, metrics);
+        ackPublisher.start();
+
+        String subscription = subscriptionTopic(props);
+        int n = Math.max(1, props.connections());
+        if (n > 1 && !isShared(subscription)) {
+            // sin grupo compartido cada conexión recibiría todos los mensajes
+            log.warn("mqtt.connections={} requires mqtt.shared-group; using a single connection", n);
+            n = 1;
+        }
+        for (int i = 0; i < n; i++) {
+            connections.add(new MqttConnection(props, buildClientId(props, i), subscription, this::onMessage));
+        }
+        for (MqttConnection c : connections) {
+            try {
+                c.connectAndSubscribe();
+            } catch (Exception e) {
+                log.warn("Initial MQTT connect failed: {}", e.getMessage(), e);
+            }
         }
     }
 
     @PreDestroy
     public void stop() {
-        try {
-            if (client != null) {
-                log.info("Disconnecting MQTT client...");
-                client.disconnect();
-                client.close();
-            }
-        } catch (Exception e) {
-            log.warn("Error while disconnecting MQTT client: {}", e.getMessage(), e);
+        for (MqttConnection c : connections) {
+            c.close();
         }
+        if (ackPublisher != null) ackPublisher.stop();
     }
 
     /**
-     * Startup helper: while we have NEVER connected, periodically try to connect.
-     * Once a connection succeeds, {@link #everConnected} becomes true in connectComplete()
-     * and this task effectively becomes a no-op.
+     * Startup helper: while a connection has NEVER connected, periodically try to connect it.
+     * Once a connection succeeds it is marked in connectComplete() and this task
+     * effectively becomes a no-op for it.
      *
      * Important: we only use this for the first connection; reconnections after
      * that are handled by Paho's automatic reconnect.
      */
     @Scheduled(fixedDelayString = "${mqtt.initial-connect.check-interval-ms:5000}")
     public void ensureInitialConnection() {
-        if (everConnected.get()) {
-            return; // we've connected at least once; auto-reconnect handles the rest
-        }
-
-        try {
-            if (client != null && client.isConnected()) {
-                everConnected.set(true);
-                return;
+        for (MqttConnection c : connections) {
+            if (c.everConnected()) {
+                continue; // we've connected at least once; auto-reconnect handles the rest
+            }
+            try {
+                log.info("MQTT not yet connected, attempting initial connect ({})...", c.clientId());
+                c.connectAndSubscribe();
+            } catch (Exception e) {
+                log.warn("Initial connect retry failed: {}", e.getMessage());
             }
-            log.info("MQTT not yet connected, attempting initial connect...");
-            connectAndSubscribe();
-        } catch (Exception e) {
-            log.warn("Initial connect retry failed: {}", e.getMessage());
         }
     }
 
-    // -------------------------------------------------------------------------
-    // Connection / subscription
-    // -------------------------------------------------------------------------
-
-    private synchronized void connectAndSubscribe() throws Exception {
-        if (client != null && client.isConnected()) {
-            log.debug("MQTT already connected, skipping connectAndSubscribe");
-            return;
-        }
-
-        if (connecting.get()) {
-            log.debug("MQTT connect already in progress, skipping connectAndSubscribe");
-            return;
-        }
-
-        // Lazily create client if needed
-        if (client == null) {
-            String clientId = buildClientId(props);
-            client = new MqttAsyncClient(props.brokerUrl(), clientId, new MemoryPersistence());
-            client.setCallback(this);
-            log.info("Created MQTT client with clientId={}", clientId);
-        }
-
-        MqttConnectionOptions options = new MqttConnectionOptions();
-        options.setCleanStart(props.cleanStart());
-        options.setAutomaticReconnect(true);   // let Paho handle reconnects after first success
-        options.setSessionExpiryInterval(0L);  // no server-side session persistence
-        options.setKeepAliveInterval(30);      // seconds; tune if needed
-
-        if (props.username() != null && !props.username().isBlank()) {
-            options.setUserName(props.username());
-        }
-        if (props.password() != null && !props.password().isBlank()) {
-            options.setPassword(props.password().getBytes(StandardCharsets.UTF_8));
-        }
-
-        connecting.set(true);
-        try {
-            log.info("Connecting to MQTT broker {} ...", props.brokerUrl());
-            // Async connect; success/failure will be reported via callbacks.
-            client.connect(options);
-        } catch (Exception e) {
-            connecting.set(false);
-            log.warn("MQTT connect() call failed: {}", e.getMessage());
-            throw e;
+    /**
+     * Topic de suscripción: con mqtt.shared-group se usa la suscripción compartida
+     * MQTT5 {@code $share/<grupo>/<topicPass>} y el broker reparte los mensajes
+     * entre todas las conexiones del grupo (réplicas y conexiones de esta JVM).
+     */
+    static String subscriptionTopic(MqttProps props) {
+        String topic = props.topicPass();
+        String group = props.sharedGroup();
+        if (topic == null || topic.isBlank() || group == null || group.isBlank() || isShared(topic)) {
+            return topic;
         }
+        return "$share/" + group + "/" + topic;
     }
 
-    private void subscribeAll() throws Exception {
-        if (client == null || !client.isConnected()) {
-            log.warn("Cannot subscribe: MQTT client is not connected");
-            return;
-        }
-
-        if (props.topicPass() != null && !props.topicPass().isBlank()) {
-            client.subscribe(props.topicPass(), props.qos());
-            log.info("Subscribed to PASS topic '{}', qos={}", props.topicPass(), props.qos());
-        } else {
-            log.warn("MQTT PASS topic is not configured; no subscriptions performed");
-        }
+    private static boolean isShared(String topic) {
+        return topic != null && topic.startsWith("$share/");
     }
 
     // -------------------------------------------------------------------------
-    // MQTT Callback
+    // Inbound messages
     // -------------------------------------------------------------------------
 
-    @Override
-    public void disconnected(MqttDisconnectResponse disconnectResponse) {
-        Integer code = disconnectResponse != null ? disconnectResponse.getReturnCode() : null;
-        String msg = disconnectResponse != null ? disconnectResponse.getReasonString() : null;
-
-        log.warn("MQTT disconnected: code={} msg={}", code, msg);
-
-        // 142 = Session taken over (duplicate ClientID)
-        if (Integer.valueOf(142).equals(code)) {
-            log.warn("MQTT disconnect reason 142 (Session taken over). " +
-                     "Another client likely connected using the same base ClientID='{}'. " +
-                     "If you are running multiple instances, ensure their MQTT_CLIENT_ID " +
-                     "values are not identical, or rely on the unique-suffix behavior.",
-                     props.clientId());
-        }
-
-        // We do NOT trigger manual reconnect here; Paho automatic reconnect handles it
-        connecting.set(false);
-    }
-
-    @Override
-    public void mqttErrorOccurred(MqttException e) {
-        log.error("MQTT error occurred", e);
-    }
-
-    @Override
-    public void connectComplete(boolean reconnect, String serverURI) {
-        connecting.set(false);
-        everConnected.set(true);
-
-        log.info("MQTT connectComplete: reconnect={} serverURI={}", reconnect, serverURI);
+    private void onMessage(MqttConnection connection, String topic, MqttMessage message) {
+        final byte[] payload = message.getPayload();
+        final Inbound in = new Inbound(connection, connection.register(message), message);
+        metrics.message();
+        logSampler.message();
+        boolean handedOff = false;
         try {
-            if (client != null && client.isConnected()) {
-                subscribeAll();
-                log.info("Re-subscribed after connectComplete");
+            Scan scan = decoder.decode(payload);
+            metrics.recordDecode(System.nanoTime() - in.arrivedNanos);
+            in.device = scan.device();
+            // payload muestreado y limitado por DEVICE (ingest.logging.*)
+            if (log.isDebugEnabled() && logSampler.samplePayload(in.device)) {
+                log.debug("Message arrived on {}: {}", topic, new String(payload, StandardCharsets.UTF_8));
             }
+            String datatype = scan.datatype();
+            if (datatype == null || !"SCAN".equalsIgnoreCase(datatype)) {
+                if (logSampler.allowWarn("bad_datatype")) {
+                    log.warn("Ignoring message: unsupported DATATYPE='{}' on topic={}", datatype, topic);
+                }
+                publishNegativeAck(in, "bad_datatype");
+                return;
+            }
+
+            if (dispatcher.isEnabled()) {
+                // Validación + insert + ACK en el shard del DEVICE (orden por lector)
+                dispatcher.dispatch(scan.device(), () -> handleScan(topic, scan, in));
+            } else {
+                handleScan(topic, scan, in);
+            }
+            handedOff = true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while dispatching message from {}", topic);
+            enqueueBacklog(in, "interrupted");
+            publishNegativeAck(in, "processing_error");
         } catch (Exception e) {
-            log.error("Failed to subscribe after connectComplete", e);
+            handleProcessingError(in, e);
+        } finally {
+            if (!handedOff) in.ack.complete();
         }
     }
 
-    @Override
-    public void authPacketArrived(int reasonCode, MqttProperties properties) {
-        // Optional: implement if you use enhanced auth.
-        log.debug("MQTT authPacketArrived: reasonCode={}", reasonCode);
-    }
-
-    @Override
-    public void messageArrived(String topic, MqttMessage message) {
-        final String body = new String(message.getPayload(), StandardCharsets.UTF_8);
-        log.info("Message arrived on {}: {}", topic, body);
+    /** Termina el mensaje; su PUBACK se completa cuando el destino es definitivo. */
+    private void handleScan(String topic, Scan scan, Inbound in) {
+        boolean pendingCommit = false;
         try {
-            JsonNode root = mapper.readTree(body);
-            String datatype = root.path("DATATYPE").asText(null);
-            if (datatype == null || !"SCAN".equalsIgnoreCase(datatype)) {
-                log.warn("Ignoring message: unsupported DATATYPE='{}' on topic={}", datatype, topic);
-                publishNegativeAck("bad_datatype");
-                return;
-            }
-            JsonNode obj = root.path("OBJECT");
-
-            List<String> csnList = new ArrayList<>();
-            if (obj.has("CSN") && obj.get("CSN").isArray()) {
-                for (JsonNode n : obj.get("CSN")) {
-                    csnList.add(n.asText());
+            // DB caída (sin migrar aún o circuito abierto): al backlog sin esperar al pool
+            if (!dbHealth.isMigrated() || !breaker.tryAcquire()) {
+                if (logSampler.allowWarn("db_unavailable")) {
+                    log.warn("DB unavailable (circuit {}), enqueuing backlog and NACK (topic={})", breaker.state(), topic);
                 }
+                enqueueBacklog(in, "db_unavailable");
+                publishNegativeAck(in, "db_unavailable");
+                return;
             }
 
-            // If DB is down, enqueue to backlog and NACK
-            if (!dbHealth.isAvailable()) {
-                log.warn("DB unavailable, enqueuing backlog and NACK (topic={})", topic);
-                try {
-                    if (backlogStore.isEnabled()) {
-                        backlogStore.enqueue(body, "db_unavailable");
+            if (writeBehind.isEnabled()) {
+                // Valida aquí; el insert y el ACK ocurren cuando el lote hace commit
+                PreparedScan prepared = prepare(scan, in);
+                writeBehind.submit(prepared.rows()).whenComplete((inserted, err) -> {
+                    try {
+                        if (err == null) {
+                            useCase.committed(prepared);
+                            publishAck(in, inserted);
+                        } else {
+                            handleProcessingError(in, err instanceof CompletionException && err.getCause() != null
+                                    ? err.getCause() : err);
+                        }
+                    } finally {
+                        in.ack.complete();
                     }
-                } catch (Exception ignored) {
-                }
-                publishNegativeAck("db_unavailable");
+                });
+                pendingCommit = true;
                 return;
             }
 
-            Scan scan = new Scan(
-                    root.path("DATATYPE").asText(null),
-                    obj.path("STAGE").asText(null),
-                    obj.path("DEVICE").asText(null),
-                    obj.path("MACHINE").asText(null),
-                    obj.path("VERSION").asText(null),
-                    csnList
-            );
-
-            int inserted = useCase.process(scan);
-            log.info("Processed SCAN: {} detections inserted", inserted);
-
-            if (props.topicAck() != null && !props.topicAck().isBlank()) {
-                ObjectNode ackNode = mapper.createObjectNode();
-                ackNode.put("ok", true);
-                ackNode.put("inserted", inserted);
-                String ack = mapper.writeValueAsString(ackNode);
-
-                MqttMessage ackMsg = new MqttMessage(ack.getBytes(StandardCharsets.UTF_8));
-                ackMsg.setQos(props.qos());
-                client.publish(props.topicAck(), ackMsg);
-                log.debug("Published ACK to {}: {}", props.topicAck(), ack);
+            PreparedScan prepared = prepare(scan, in);
+            long t0 = System.nanoTime();
+            int inserted = useCase.persist(prepared);
+            long insertNanos = System.nanoTime() - t0;
+            scheduler.recordLiveInsert(insertNanos);
+            metrics.recordInsert(insertNanos);
+            publishAck(in, inserted);
+        } catch (RejectedExecutionException rex) {
+            // Cola write-behind llena: no bloqueamos el callback, el mensaje va al backlog
+            if (logSampler.allowWarn("ingest_queue_full")) {
+                log.warn("Write-behind queue full, enqueuing backlog and NACK (topic={})", topic);
             }
-        } catch (DataIntegrityViolationException ex) {
+            enqueueBacklog(in, "ingest_queue_full");
+            publishNegativeAck(in, "ingest_queue_full");
+        } catch (Exception e) {
+            handleProcessingError(in, e);
+        } finally {
+            if (!pendingCommit) in.ack.complete();
+        }
+    }
+
+    /** Validación de metadata (DEVICE/STAGE) y construcción de detecciones. */
+    private PreparedScan prepare(Scan scan, Inbound in) {
+        long t0 = System.nanoTime();
+        try {
+            return useCase.prepare(scan, in.readAt());
+        } finally {
+            metrics.recordValidate(System.nanoTime() - t0);
+        }
+    }
+
+    private void handleProcessingError(Inbound in, Throwable e) {
+        if (DbCircuitBreaker.isUnavailable(e)) {
+            // Conexión/timeout: el insert no se hizo; el mensaje se conserva en el backlog
+            if (logSampler.allowWarn("db_write_failed")) {
+                log.warn("DB write failed, enqueuing backlog and NACK: {}", e.getMessage());
+            }
+            enqueueBacklog(in, "db_unavailable");
+            publishNegativeAck(in, "db_unavailable");
+        } else if (e instanceof DataIntegrityViolationException ex) {
             // FK/NOT NULL/etc violations → explicit NACK
             String detail = (ex.getMostSpecificCause() != null)
                     ? ex.getMostSpecificCause().getMessage()
                     : ex.getMessage();
-            log.warn("Data integrity error while processing SCAN: {}", detail);
-            publishNegativeAck("fk_violation_or_constraint");
-        } catch (IllegalArgumentException iae) {
+            if (logSampler.allowWarn("constraint")) {
+                log.warn("Data integrity error while processing SCAN: {}", detail);
+            }
+            publishNegativeAck(in, "fk_violation_or_constraint");
+        } else if (e instanceof IllegalArgumentException iae) {
             // Validation from use case (e.g., unknown_device / unknown_stage)
-            log.warn("Validation failed: {}", iae.getMessage());
-            publishNegativeAck(iae.getMessage()); // e.g. "unknown_device"
-        } catch (Exception e) {
+            if (logSampler.allowWarn("validation")) {
+                log.warn("Validation failed: {} (DEVICE={})", iae.getMessage(), in.device);
+            }
+            publishNegativeAck(in, iae.getMessage()); // e.g. "unknown_device"
+        } else {
             log.error("Failed to process message", e);
-            publishNegativeAck("processing_error");
+            publishNegativeAck(in, "processing_error");
         }
     }
 
-    @Override
-    public void deliveryComplete(org.eclipse.paho.mqttv5.client.IMqttToken token) {
-        log.debug("MQTT deliveryComplete: {}", token.getMessageId());
+    /** Con la hora de llegada del mensaje: el replay usa la misma hora de lectura. */
+    private void enqueueBacklog(Inbound in, String reason) {
+        try {
+            if (backlogStore.isEnabled()) {
+                backlogStore.enqueue(in.payload, reason, in.receivedAtMillis);
+                logSampler.backlogged();
+            }
+        } catch (Exception ignored) {
+        }
     }
 
     // -------------------------------------------------------------------------
     // ACK / NACK helpers
     // -------------------------------------------------------------------------
 
-    private void publishNegativeAck(String reason) {
-        try {
-            if (props.topicAck() == null || props.topicAck().isBlank()) {
-                return;
+    private void publishAck(Inbound in, int inserted) {
+        if (log.isInfoEnabled() && logSampler.sampleDetail(in.device)) {
+            log.info("Processed SCAN from {}: {} detections inserted", in.device, inserted);
+        }
+        metrics.detections(inserted);
+        logSampler.acked(inserted);
+        reply(in, true, inserted, null);
+    }
+
+    private void publishNegativeAck(Inbound in, String reason) {
+        metrics.nack(reason);
+        logSampler.nack(reason);
+        reply(in, false, 0, reason);
+    }
+
+    public int ackQueueDepth() {
+        return ackPublisher != null ? ackPublisher.queueDepth() : 0;
+    }
+
+    public int unackedInbound() {
+        int n = 0;
+        for (MqttConnection c : connections) n += c.unacked();
+        return n;
+    }
+
+    /**
+     * Encola la respuesta sin bloquear. Destino, por orden: Response Topic del
+     * mensaje (con su Correlation Data), mqtt.ack-topic-template con el DEVICE,
+     * y por último el topicAck compartido.
+     */
+    private void reply(Inbound in, boolean ok, int inserted, String reason) {
+        metrics.recordLatency(System.nanoTime() - in.arrivedNanos, ok);
+        String topic;
+        boolean perDevice = true;
+        if (in.responseTopic != null && !in.responseTopic.isBlank()) {
+            topic = in.responseTopic;
+        } else if (props.ackTopicTemplate() != null && !props.ackTopicTemplate().isBlank()
+                && in.device != null && !in.device.isBlank()) {
+            topic = props.ackTopicTemplate().replace("{DEVICE}", topicLevel(in.device));
+        } else if (props.topicAck() != null && !props.topicAck().isBlank()) {
+            topic = props.topicAck();
+            perDevice = false;
+        } else {
+            return;
+        }
+        ackPublisher.submit(new AckPublisher.Reply(in.connection, topic, in.correlationData,
+                perDevice, ok, inserted, reason));
+    }
+
+    /** DEVICE como nivel de topic: sin separadores ni comodines MQTT. */
+    private static String topicLevel(String device) {
+        StringBuilder sb = null;
+        for (int i = 0; i < device.length(); i++) {
+            char c = device.charAt(i);
+            if (c == '/' || c == '+' || c == '#') {
+                if (sb == null) sb = new StringBuilder(device);
+                sb.setCharAt(i, '_');
             }
-            ObjectNode ack = mapper.createObjectNode();
-            ack.put("ok", false);
-            ack.put("reason", reason);
-            String payload = mapper.writeValueAsString(ack);
-
-            MqttMessage msg = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
-            msg.setQos(props.qos());
-            client.publish(props.topicAck(), msg);
-            log.debug("Published negative ACK to {}: {}", props.topicAck(), payload);
-        } catch (Exception e) {
-            log.warn("Failed to publish negative ACK: {}", e.getMessage());
         }
+        return sb != null ? sb.toString() : device;
     }
 
     // -------------------------------------------------------------------------
@@ -339,11 +412,17 @@ public class MqttListenerService implements MqttCallback {
     // -------------------------------------------------------------------------
 
     /**
-     * Build a unique clientId derived from the configured base clientId.
-     * This avoids "Session taken over" (142) when running multiple instances
+     * Build the clientId of connection {@code index} from the configured base clientId.
+     *
+     * With a persistent session ({@code session-expiry-seconds > 0}) the id is
+     * stable across restarts ({@code <base>-<host>-<index>}): the restarted
+     * process resumes its session and the broker redelivers the messages that
+     * were received but not yet PUBACKed. Each replica then needs its own
+     * host name or base clientId. Otherwise the id is unique per process,
+     * which avoids "Session taken over" (142) when running multiple instances
      * with the same configuration.
      */
-    private static String buildClientId(MqttProps props) {
+    static String buildClientId(MqttProps props, int index) {
         String base = props.clientId();
         if (base == null || base.isBlank()) {
             base = "mdt-client";
@@ -355,6 +434,10 @@ public class MqttListenerService implements MqttCallback {
         } catch (Exception ignored) {
         }
 
+        if (props.sessionExpirySeconds() != null && props.sessionExpirySeconds() > 0) {
+            return base + "-" + host + "-" + index;
+        }
+
         String pid = "unknown";
         try {
             pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
@@ -40,6 +40,36 @@ public class MqttProps {
     @NotBlank(groups = ProdGroup.class)
     private String topicAck;
 
+    /** PUBACK solo cuando el mensaje tiene destino definitivo (commit, backlog o NACK). */
+    @NotNull
+    private Boolean manualAcks = Boolean.TRUE;
+
+    /** MQTT5 Receive Maximum: mensajes QoS1/2 sin ack que el broker puede tenernos en vuelo. */
+    @NotNull
+    @Min(1) @Max(65535)
+    private Integer receiveMaximum = 1000;
+
+    /** 0 = la sesión muere con la conexión; con >0 (y clean-start=false) el broker reenvía lo no confirmado. */
+    @NotNull
+    @Min(0)
+    private Long sessionExpirySeconds = 0L;
+
+    /** Grupo de suscripción compartida MQTT5 ($share/<grupo>/topicPass); vacío = suscripción normal. */
+    private String sharedGroup;
+
+    /** Conexiones MQTT en esta JVM; >1 solo con shared-group. */
+    @NotNull
+    @Min(1)
+    private Integer connections = 1;
+
+    /** Topic de ACK por dispositivo, p.ej. mdt/ack/{DEVICE}; vacío = topicAck compartido. */
+    private String ackTopicTemplate;
+
+    /** Respuestas ACK/NACK en cola para el publicador; llena = se descartan. */
+    @NotNull
+    @Min(1)
+    private Integer ackQueueCapacity = 10000;
+
     // ---- getters usados por el código existente ----
     public Integer qos() { return qos; }
     public Boolean cleanStart() { return cleanStart; }
@@ -49,6 +79,13 @@ public class MqttProps {
     public String password() { return password; }
     public String topicPass() { return topicPass; }
     public String topicAck() { return topicAck; }
+    public Boolean manualAcks() { return manualAcks; }
+    public Integer receiveMaximum() { return receiveMaximum; }
+    public Long sessionExpirySeconds() { return sessionExpirySeconds; }
+    public String sharedGroup() { return sharedGroup; }
+    public Integer connections() { return connections; }
+    public String ackTopicTemplate() { return ackTopicTemplate; }
+    public Integer ackQueueCapacity() { return ackQueueCapacity; }
 
     // setters para binding de ConfigurationProperties
     public void setQos(Integer qos) { this.qos = qos; }
@@ -59,4 +96,11 @@ public class MqttProps {
     public void setPassword(String password) { this.password = password; }
     public void setTopicPass(String topicPass) { this.topicPass = topicPass; }
     public void setTopicAck(String topicAck) { this.topicAck = topicAck; }
+    public void setManualAcks(Boolean manualAcks) { this.manualAcks = manualAcks; }
+    public void setReceiveMaximum(Integer receiveMaximum) { this.receiveMaximum = receiveMaximum; }
+    public void setSessionExpirySeconds(Long sessionExpirySeconds) { this.sessionExpirySeconds = sessionExpirySeconds; }
+    public void setSharedGroup(String sharedGroup) { this.sharedGroup = sharedGroup; }
+    public void setConnections(Integer connections) { this.connections = connections; }
+    public void setAckTopicTemplate(String ackTopicTemplate) { this.ackTopicTemplate = ackTopicTemplate; }
+    public void setAckQueueCapacity(Integer ackQueueCapacity) { this.ackQueueCapacity = ackQueueCapacity; }
 }
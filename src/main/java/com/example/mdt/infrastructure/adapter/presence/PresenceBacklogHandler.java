@@ -0,0 +1,82 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import com.example.mdt.domain.gateway.PresenciasGateway;
+import com.example.mdt.domain.model.Presencia;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogRecord;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogRecordHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presencias cerradas que superaron {@code max-pending-writes} mientras la DB
+ * no aceptaba escrituras: {@link PresenceSessionAggregator} las pasa al
+ * backlog como un lote JSON y este handler las escribe al drenarlo.
+ *
+ * Siempre activo, para drenar lo que quedó en el backlog aunque la
+ * agregación de presencias se haya desactivado después.
+ */
+@Component
+public class PresenceBacklogHandler implements BacklogRecordHandler {
+    private static final Logger log = LoggerFactory.getLogger(PresenceBacklogHandler.class);
+
+    static final String REASON = "presence_overflow";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Presencia tal como va al backlog; horas en epoch millis. */
+    private record Row(Long lectorId, Long ubicacionId, String epc, long firstSeen, long lastSeen,
+                       int readCount, Integer maxRssi) {}
+
+    private final PresenciasGateway gateway;
+
+    public PresenceBacklogHandler(PresenciasGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    @Override
+    public String reason() { return REASON; }
+
+    @Override
+    public void replay(BacklogRecord rec) throws IOException {
+        List<Presencia> presencias = decode(rec.payload());
+        int written = presencias.isEmpty() ? 0 : gateway.saveAll(presencias);
+        log.debug("Backlog drained: {} presence sessions from {}", written, rec.position());
+    }
+
+    static byte[] encode(List<Presencia> presencias) throws JsonProcessingException {
+        List<Row> rows = new ArrayList<>(presencias.size());
+        for (Presencia p : presencias) {
+            rows.add(new Row(p.lectorId(), p.ubicacionId(), p.epc(), millis(p.firstSeen()), millis(p.lastSeen()),
+                    p.readCount(), p.maxRssi()));
+        }
+        return mapper.writeValueAsBytes(rows);
+    }
+
+    static List<Presencia> decode(byte[] payload) throws IOException {
+        Row[] rows = mapper.readValue(payload, Row[].class);
+        List<Presencia> out = new ArrayList<>(rows.length);
+        for (Row r : rows) {
+            out.add(new Presencia(r.lectorId(), r.ubicacionId(), r.epc(), time(r.firstSeen()), time(r.lastSeen()),
+                    r.readCount(), r.maxRssi()));
+        }
+        return out;
+    }
+
+    static long millis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime time(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal local de las sesiones de presencia con {@code raw-detections=false},
+ * donde las lecturas no quedan en detecciones_tags y una sesión abierta solo
+ * existiría en memoria.
+ *
+ * Mismo formato de registro que el backlog ({@code [len:int][crc32:int][body]})
+ * en segmentos {@code <id>.wal}. Cada mensaje añade sus lecturas antes de
+ * tocar las sesiones (y por lo tanto antes de su PUBACK); cada presencia
+ * escrita o pasada al backlog añade una marca de cierre. En cada checkpoint se
+ * abre un segmento nuevo y se guarda una foto de todas las sesiones en
+ * {@code <id>.snap}: al arrancar se carga la última foto y se reaplican los
+ * segmentos desde ella. Los segmentos anteriores a la foto se borran.
+ */
+final class PresenceJournal {
+    private static final Logger log = LoggerFactory.getLogger(PresenceJournal.class);
+
+    static final byte READ = 1;
+    static final byte CLOSED = 2;
+    static final byte SESSION = 3;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int HEADER_BYTES = 8;                 // len + crc
+    private static final int BODY_FIXED_BYTES = 1 + 8 + 8 + 8 + 8 + 4 + 4 + 1 + 2;
+
+    /**
+     * Registro del journal. READ: una lectura ({@code firstSeen = lastSeen}),
+     * {@code flag} = sin fila cruda. CLOSED: sesión ya persistida, identificada
+     * por (lector, epc, firstSeen). SESSION: sesión de la foto, {@code flag} =
+     * cerrada y pendiente de escribir.
+     */
+    record Entry(byte type, long lectorId, String epc, Long ubicacionId,
+                 long firstSeen, long lastSeen, int reads, Integer maxRssi, boolean flag) {}
+
+    private final Path dir;
+    private final boolean fsync;
+
+    private FileChannel writer;
+    private long activeSegment;
+
+    PresenceJournal(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+    }
+
+    /** true si {@code dir} contiene segmentos o fotos de una ejecución anterior. */
+    static boolean hasState(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return false;
+        try (Stream<Path> st = Files.list(dir)) {
+            return st.map(p -> p.getFileName().toString())
+                     .anyMatch(n -> n.endsWith(SEGMENT_SUFFIX) || n.endsWith(SNAPSHOT_SUFFIX));
+        }
+    }
+
+    /**
+     * Entrega en orden la última foto y los registros posteriores, y abre un
+     * segmento nuevo para escribir. Una cola truncada o corrupta se ignora.
+     */
+    synchronized void recover(Consumer<Entry> sink) throws IOException {
+        TreeSet<Long> segments = list(SEGMENT_SUFFIX);
+        TreeSet<Long> snapshots = list(SNAPSHOT_SUFFIX);
+        long snapshot = snapshots.isEmpty() ? 0 : snapshots.last();
+        long entries = 0;
+        if (snapshot > 0) {
+            entries += read(path(snapshot, SNAPSHOT_SUFFIX), sink);
+        }
+        for (long seg : segments.tailSet(snapshot, true)) {
+            entries += read(path(seg, SEGMENT_SUFFIX), sink);
+        }
+        long last = Math.max(snapshot, segments.isEmpty() ? 0 : segments.last());
+        activeSegment = last + 1;
+        writer = FileChannel.open(path(activeSegment, SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        log.info("Presence journal opened: dir={} snapshot={} segments={} replayed={} entries",
+                dir, snapshot, segments.tailSet(snapshot, true).size(), entries);
+    }
+
+    /** Añade los registros con una sola escritura (y un fsync si está configurado). */
+    synchronized void append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        if (writer == null) throw new IOException("presence journal is closed");
+        writeAll(writer, encode(entries));
+        if (fsync) writer.force(false);
+    }
+
+    /** Cierra el segmento activo y abre el siguiente; devuelve su id. */
+    synchronized long roll() throws IOException {
+        if (writer == null) throw new IOException("presence journal is closed");
+        writer.force(false);
+        writer.close();
+        activeSegment++;
+        writer = FileChannel.open(path(activeSegment, SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return activeSegment;
+    }
+
+    /**
+     * Guarda la foto de las sesiones al inicio de {@code segment} (ya abierto
+     * con {@link #roll}) y borra los segmentos y fotos anteriores.
+     */
+    void writeSnapshot(long segment, List<Entry> sessions) throws IOException {
+        Path tmp = dir.resolve(String.format("%020d%s.tmp", segment, SNAPSHOT_SUFFIX));
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int chunk = 4096;
+            for (int from = 0; from < sessions.size(); from += chunk) {
+                writeAll(ch, encode(sessions.subList(from, Math.min(sessions.size(), from + chunk))));
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, path(segment, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        for (long seg : list(SEGMENT_SUFFIX).headSet(segment)) {
+            Files.deleteIfExists(path(seg, SEGMENT_SUFFIX));
+        }
+        for (long snap : list(SNAPSHOT_SUFFIX).headSet(segment)) {
+            Files.deleteIfExists(path(snap, SNAPSHOT_SUFFIX));
+        }
+    }
+
+    synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.force(false);
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close presence journal: {}", e.getMessage());
+        }
+        writer = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Formato de registro
+    // -------------------------------------------------------------------------
+
+    private static ByteBuffer encode(List<Entry> entries) {
+        byte[][] epcs = new byte[entries.size()][];
+        int size = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            epcs[i] = entries.get(i).epc().getBytes(StandardCharsets.UTF_8);
+            size += HEADER_BYTES + BODY_FIXED_BYTES + epcs[i].length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            int start = buf.position();
+            int bodyLen = BODY_FIXED_BYTES + epcs[i].length;
+            buf.putInt(bodyLen).putInt(0)
+               .put(e.type())
+               .putLong(e.lectorId())
+               .putLong(e.ubicacionId() != null ? e.ubicacionId() : Long.MIN_VALUE)
+               .putLong(e.firstSeen())
+               .putLong(e.lastSeen())
+               .putInt(e.reads())
+               .putInt(e.maxRssi() != null ? e.maxRssi() : Integer.MIN_VALUE)
+               .put((byte) (e.flag() ? 1 : 0))
+               .putShort((short) epcs[i].length)
+               .put(epcs[i]);
+            crc.reset();
+            crc.update(buf.array(), start + HEADER_BYTES, bodyLen);
+            buf.putInt(start + 4, (int) crc.getValue());
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /** @return registros válidos leídos; se detiene en el primero incompleto o corrupto */
+    private static long read(Path file, Consumer<Entry> sink) throws IOException {
+        long count = 0;
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int bodyLen;
+                int expectedCrc;
+                byte[] body;
+                try {
+                    bodyLen = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (bodyLen < BODY_FIXED_BYTES || bodyLen > BODY_FIXED_BYTES + 0xFFFF) break;
+                    body = new byte[bodyLen];
+                    in.readFully(body);
+                } catch (EOFException eof) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, bodyLen);
+                if ((int) crc.getValue() != expectedCrc) break;
+
+                ByteBuffer b = ByteBuffer.wrap(body);
+                byte type = b.get();
+                long lectorId = b.getLong();
+                long ubicacion = b.getLong();
+                long firstSeen = b.getLong();
+                long lastSeen = b.getLong();
+                int reads = b.getInt();
+                int maxRssi = b.getInt();
+                boolean flag = b.get() != 0;
+                int epcLen = b.getShort() & 0xFFFF;
+                if (epcLen != b.remaining()) break;
+                String epc = new String(body, b.position(), epcLen, StandardCharsets.UTF_8);
+                sink.accept(new Entry(type, lectorId, epc, ubicacion == Long.MIN_VALUE ? null : ubicacion,
+                        firstSeen, lastSeen, reads, maxRssi == Integer.MIN_VALUE ? null : maxRssi, flag));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writeAll(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Archivos
+    // -------------------------------------------------------------------------
+
+    private TreeSet<Long> list(String suffix) throws IOException {
+        TreeSet<Long> ids = new TreeSet<>();
+        try (Stream<Path> st = Files.list(dir)) {
+            st.map(p -> p.getFileName().toString())
+              .filter(n -> n.endsWith(suffix))
+              .forEach(n -> {
+                  try {
+                      ids.add(Long.parseLong(n.substring(0, n.length() - suffix.length())));
+                  } catch (NumberFormatException ignored) {
+                  }
+              });
+        }
+        return ids;
+    }
+
+    private Path path(long id, String suffix) {
+        return dir.resolve(String.format("%020d%s", id, suffix));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.presence")
+public class PresenceProperties {
+    private boolean enabled = false;
+    /** Una sesión se cierra tras este tiempo sin lecturas del par (epc, lector). */
+    private long idleGapMs = 30000;
+    /** Si es false, solo se escriben presencias y no filas en detecciones_tags. */
+    private boolean rawDetections = true;
+    /** Tope de sesiones abiertas; por encima, la lectura solo se guarda como fila cruda. */
+    private int maxOpenSessions = 500_000;
+    /** Sesiones cerradas retenidas en memoria mientras la DB no acepta escrituras; el resto va al backlog. */
+    private int maxPendingWrites = 100_000;
+    /** Journal de lecturas y sesiones (solo con raw-detections=false). */
+    private String journalDir = "data/presence";
+    /** fsync tras cada append al journal (más durable, más lento). */
+    private boolean journalFsync = false;
+    /** Cada cuánto se guarda una foto de las sesiones y se recorta el journal. */
+    private long checkpointIntervalMs = 60000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getIdleGapMs() { return idleGapMs; }
+    public void setIdleGapMs(long idleGapMs) { this.idleGapMs = idleGapMs; }
+
+    public boolean isRawDetections() { return rawDetections; }
+    public void setRawDetections(boolean rawDetections) { this.rawDetections = rawDetections; }
+
+    public int getMaxOpenSessions() { return maxOpenSessions; }
+    public void setMaxOpenSessions(int maxOpenSessions) { this.maxOpenSessions = maxOpenSessions; }
+
+    public int getMaxPendingWrites() { return maxPendingWrites; }
+    public void setMaxPendingWrites(int maxPendingWrites) { this.maxPendingWrites = maxPendingWrites; }
+
+    public String getJournalDir() { return journalDir; }
+    public void setJournalDir(String journalDir) { this.journalDir = journalDir; }
+
+    public boolean isJournalFsync() { return journalFsync; }
+    public void setJournalFsync(boolean journalFsync) { this.journalFsync = journalFsync; }
+
+    public long getCheckpointIntervalMs() { return checkpointIntervalMs; }
+    public void setCheckpointIntervalMs(long checkpointIntervalMs) { this.checkpointIntervalMs = checkpointIntervalMs; }
+}
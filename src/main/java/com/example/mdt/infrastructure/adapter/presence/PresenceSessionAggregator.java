@@ -0,0 +1,435 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.gateway.PresenciasGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import com.example.mdt.domain.model.Presencia;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogStore;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo de ingesta por sesiones de presencia.
+ *
+ * Cada lectura actualiza la sesión abierta de su par (epc, lector): primera y
+ * última vez visto, número de lecturas y RSSI máximo. Una lectura a más de
+ * {@code idle-gap-ms} de la última abre una sesión nueva, y un barrido
+ * periódico cierra las sesiones sin lecturas durante {@code idle-gap-ms}; las
+ * cerradas se escriben como una fila en {@code presencias_tags}.
+ *
+ * Se engancha como {@link DeteccionFilter}. {@link #accept} no cambia estado:
+ * devuelve {@code raw-detections} (con false, las lecturas ya no generan filas
+ * en detecciones_tags). Las sesiones se actualizan en {@link #committed}, una
+ * vez por mensaje y solo si su escritura hizo commit.
+ *
+ * Con {@code raw-detections=false} una lectura solo existe en su sesión, así
+ * que antes de aplicarla (y antes del PUBACK) se añade a
+ * {@link PresenceJournal}; al arrancar, las sesiones abiertas y las cerradas
+ * sin escribir se recuperan desde él. Las cerradas que superan
+ * {@code max-pending-writes} mientras la DB no acepta escrituras pasan al
+ * backlog ({@link PresenceBacklogHandler}) en lugar de descartarse.
+ */
+@Component
+@Order(100)
+@ConditionalOnProperty(prefix = "ingest.presence", name = "enabled", havingValue = "true")
+public class PresenceSessionAggregator implements DeteccionFilter {
+    private static final Logger log = LoggerFactory.getLogger(PresenceSessionAggregator.class);
+
+    private static final int WRITE_CHUNK = 1000;
+
+    private record Key(long lectorId, String epc) {}
+
+    /** Horas en epoch millis (hora de lectura, no de llegada al barrido). */
+    private static final class Session {
+        Long ubicacionId;
+        long firstSeen;
+        long lastSeen;
+        int reads;
+        Integer maxRssi;
+
+        Session(Long ubicacionId, long firstSeen, long lastSeen, int reads, Integer maxRssi) {
+            this.ubicacionId = ubicacionId;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+            this.reads = reads;
+            this.maxRssi = maxRssi;
+        }
+
+        void update(Long ubicacion, long readAt, Integer rssi) {
+            if (readAt < firstSeen) firstSeen = readAt;
+            if (readAt >= lastSeen) {
+                lastSeen = readAt;
+                if (ubicacion != null) ubicacionId = ubicacion;
+            }
+            reads++;
+            if (rssi != null && (maxRssi == null || rssi > maxRssi)) maxRssi = rssi;
+        }
+    }
+
+    /** Sesión cerrada; ya no cambia. */
+    private record Closed(Key key, Session session) {
+        Presencia presencia() {
+            return new Presencia(key.lectorId(), session.ubicacionId, key.epc(),
+                    PresenceBacklogHandler.time(session.firstSeen), PresenceBacklogHandler.time(session.lastSeen),
+                    session.reads, session.maxRssi);
+        }
+    }
+
+    private record ClosedId(Key key, long firstSeen) {}
+
+    private final PresenceProperties props;
+    private final PresenciasGateway gateway;
+    private final DbHealthService dbHealth;
+    private final BacklogStore backlog;
+    private final long idleGapMs;
+
+    private final Map<Key, Session> sessions = new ConcurrentHashMap<>();
+    /** Sesiones que una lectura cerró por inactividad; sweep() las pasa a pending. */
+    private final Queue<Closed> closedInline = new ConcurrentLinkedQueue<>();
+    /** Sesiones cerradas aún no escritas; solo se toca desde sweep()/close() (synchronized). */
+    private final ArrayDeque<Closed> pending = new ArrayDeque<>();
+    private final LongAdder overflow = new LongAdder();
+
+    /** null con raw-detections=true (salvo que quede estado de una ejecución anterior). */
+    private final PresenceJournal journal;
+    /** Orden entre append al journal y aplicación a las sesiones, y entre ambos y el checkpoint. */
+    private final Object journalLock = new Object();
+    private long lastCheckpoint = System.currentTimeMillis();
+
+    public PresenceSessionAggregator(PresenceProperties props, PresenciasGateway gateway, DbHealthService dbHealth,
+                                     BacklogStore backlog) {
+        this.props = props;
+        this.gateway = gateway;
+        this.dbHealth = dbHealth;
+        this.backlog = backlog;
+        this.idleGapMs = Math.max(1, props.getIdleGapMs());
+        this.journal = openJournal();
+        log.info("Presence sessions enabled (idleGapMs={}, rawDetections={}, journal={})",
+                props.getIdleGapMs(), props.isRawDetections(), journal != null ? props.getJournalDir() : "off");
+    }
+
+    @Override
+    public boolean accept(Deteccion d) {
+        if (props.isRawDetections() || d.lectorId() == null || d.epc() == null) return true;
+        // sin sitio para una sesión nueva no hay otra forma de conservar la lectura: va como fila cruda
+        return sessions.size() >= props.getMaxOpenSessions()
+                && !sessions.containsKey(new Key(d.lectorId(), d.epc()));
+    }
+
+    @Override
+    public void committed(PreparedScan prepared) {
+        List<Deteccion> rows = prepared.rows();
+        long now = System.currentTimeMillis();
+        List<PresenceJournal.Entry> reads = new ArrayList<>(prepared.reads().size());
+        int row = 0;
+        for (Deteccion d : prepared.reads()) {
+            // rows es una subsecuencia (por identidad) de reads
+            boolean written = row < rows.size() && rows.get(row) == d;
+            if (written) row++;
+            if (d.lectorId() == null || d.epc() == null) continue;
+            if (written && !props.isRawDetections()) {
+                // ya quedó como fila cruda por falta de sitio al preparar
+                overflow.increment();
+                continue;
+            }
+            long readAt = d.createdAt() != null ? PresenceBacklogHandler.millis(d.createdAt()) : now;
+            reads.add(new PresenceJournal.Entry(PresenceJournal.READ, d.lectorId(), d.epc(), d.ubicacionId(),
+                    readAt, readAt, 1, d.rssi(), !written));
+        }
+        if (reads.isEmpty()) return;
+
+        if (journal == null) {
+            applyAll(reads);
+            return;
+        }
+        synchronized (journalLock) {
+            if (!props.isRawDetections()) {
+                try {
+                    journal.append(reads);
+                } catch (IOException e) {
+                    log.error("Failed to journal {} presence reads; they are kept only in memory: {}",
+                            reads.size(), e.getMessage());
+                }
+            }
+            applyAll(reads);
+        }
+    }
+
+    public int openSessions() { return sessions.size(); }
+
+    @Scheduled(fixedDelayString = "${ingest.presence.sweep-interval-ms:5000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        int closed = 0;
+        for (Key key : sessions.keySet()) {
+            Session[] idle = new Session[1];
+            sessions.computeIfPresent(key, (k, s) -> {
+                if (now - s.lastSeen < idleGapMs) return s;
+                idle[0] = s;
+                return null;
+            });
+            if (idle[0] != null) {
+                pending.addLast(new Closed(key, idle[0]));
+                closed++;
+            }
+        }
+        drainClosedInline();
+        long over = overflow.sumThenReset();
+        if (over > 0) {
+            log.warn("Presence sessions at max-open-sessions={}; {} reads kept only as raw rows",
+                    props.getMaxOpenSessions(), over);
+        }
+        if (closed > 0) {
+            log.debug("Presence sweep: closed {} sessions ({} still open)", closed, sessions.size());
+        }
+        flushPending();
+        if (journal != null && now - lastCheckpoint >= props.getCheckpointIntervalMs()) {
+            checkpoint();
+            lastCheckpoint = now;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (journal != null) {
+            // las sesiones abiertas siguen en el journal y continúan al arrancar
+            drainClosedInline();
+            flushPending();
+            checkpoint();
+            journal.close();
+            log.info("Presence journal closed: {} open and {} unpersisted closed sessions kept",
+                    sessions.size(), pending.size());
+            return;
+        }
+        for (Key key : sessions.keySet()) {
+            Session s = sessions.remove(key);
+            if (s != null) pending.addLast(new Closed(key, s));
+        }
+        drainClosedInline();
+        flushPending();
+        if (!pending.isEmpty()) spill(pending.size());
+        if (!pending.isEmpty()) {
+            log.warn("Shutting down with {} presence sessions not persisted", pending.size());
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Sesiones
+    // -------------------------------------------------------------------------
+
+    private void applyAll(List<PresenceJournal.Entry> reads) {
+        for (PresenceJournal.Entry r : reads) {
+            Closed closed = apply(new Key(r.lectorId(), r.epc()), r.ubicacionId(), r.lastSeen(), r.maxRssi(), r.flag());
+            if (closed != null) closedInline.add(closed);
+        }
+    }
+
+    /**
+     * @param force la lectura no tiene fila cruda: abre sesión aunque se haya
+     *              llegado a {@code max-open-sessions}
+     * @return la sesión anterior del par si esta lectura la cerró por inactividad
+     */
+    private Closed apply(Key key, Long ubicacionId, long readAt, Integer rssi, boolean force) {
+        Closed[] closed = {null};
+        boolean[] tracked = {true};
+        sessions.compute(key, (k, s) -> {
+            if (s != null && readAt - s.lastSeen < idleGapMs) {
+                s.update(ubicacionId, readAt, rssi);
+                return s;
+            }
+            if (s != null) {
+                closed[0] = new Closed(k, s);
+            } else if (!force && sessions.size() >= props.getMaxOpenSessions()) {
+                tracked[0] = false;
+                return null;
+            }
+            return new Session(ubicacionId, readAt, readAt, 1, rssi);
+        });
+        if (!tracked[0]) overflow.increment();
+        return closed[0];
+    }
+
+    private void drainClosedInline() {
+        for (Closed c; (c = closedInline.poll()) != null; ) {
+            pending.addLast(c);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Escritura de sesiones cerradas
+    // -------------------------------------------------------------------------
+
+    private void flushPending() {
+        int excess = pending.size() - props.getMaxPendingWrites();
+        if (excess > 0) spill(excess);
+        if (pending.isEmpty() || !dbHealth.isAvailable()) return;
+
+        while (!pending.isEmpty()) {
+            List<Closed> chunk = take(WRITE_CHUNK);
+            try {
+                gateway.saveAll(presencias(chunk));
+            } catch (Exception e) {
+                // devolver en el mismo orden y reintentar en el próximo barrido
+                putBack(chunk);
+                log.warn("Failed to persist {} presence sessions (will retry): {}", chunk.size(), e.getMessage());
+                return;
+            }
+            markClosed(chunk);
+        }
+    }
+
+    /** Pasa al backlog las {@code count} sesiones pendientes más antiguas; lo que no entra sigue en memoria. */
+    private void spill(int count) {
+        int spilled = 0;
+        while (spilled < count && !pending.isEmpty() && backlog.isEnabled()) {
+            List<Closed> chunk = take(Math.min(WRITE_CHUNK, count - spilled));
+            boolean queued;
+            try {
+                queued = backlog.enqueue(PresenceBacklogHandler.encode(presencias(chunk)), PresenceBacklogHandler.REASON);
+            } catch (Exception e) {
+                queued = false;
+            }
+            if (!queued) {
+                putBack(chunk);
+                break;
+            }
+            markClosed(chunk);
+            spilled += chunk.size();
+        }
+        if (spilled > 0) {
+            log.warn("Moved {} unpersisted presence sessions to the backlog (max-pending-writes={})",
+                    spilled, props.getMaxPendingWrites());
+        }
+        if (spilled < count && !pending.isEmpty()) {
+            log.warn("Backlog unavailable; keeping {} extra presence sessions in memory (max-pending-writes={})",
+                    Math.min(count - spilled, pending.size()), props.getMaxPendingWrites());
+        }
+    }
+
+    private List<Closed> take(int max) {
+        List<Closed> chunk = new ArrayList<>(Math.min(max, pending.size()));
+        while (chunk.size() < max && !pending.isEmpty()) {
+            chunk.add(pending.pollFirst());
+        }
+        return chunk;
+    }
+
+    private void putBack(List<Closed> chunk) {
+        for (int i = chunk.size() - 1; i >= 0; i--) pending.addFirst(chunk.get(i));
+    }
+
+    private static List<Presencia> presencias(List<Closed> chunk) {
+        List<Presencia> out = new ArrayList<>(chunk.size());
+        for (Closed c : chunk) out.add(c.presencia());
+        return out;
+    }
+
+    // -------------------------------------------------------------------------
+    // Journal
+    // -------------------------------------------------------------------------
+
+    private PresenceJournal openJournal() {
+        Path dir = Path.of(props.getJournalDir());
+        try {
+            // con raw-detections=true solo se abre para recuperar lo que dejó una ejecución anterior
+            if (props.isRawDetections() && !PresenceJournal.hasState(dir)) return null;
+            PresenceJournal j = new PresenceJournal(dir, props.isJournalFsync());
+            Map<ClosedId, Closed> recovered = new LinkedHashMap<>();
+            j.recover(e -> recover(e, recovered));
+            pending.addAll(recovered.values());
+            if (!sessions.isEmpty() || !pending.isEmpty()) {
+                log.info("Presence sessions recovered: {} open, {} closed not yet persisted",
+                        sessions.size(), pending.size());
+            }
+            return j;
+        } catch (IOException e) {
+            log.error("Presence journal unavailable at {}; sessions are kept only in memory", dir, e);
+            return null;
+        }
+    }
+
+    private void recover(PresenceJournal.Entry e, Map<ClosedId, Closed> recovered) {
+        Key key = new Key(e.lectorId(), e.epc());
+        switch (e.type()) {
+            case PresenceJournal.READ -> {
+                Closed c = apply(key, e.ubicacionId(), e.lastSeen(), e.maxRssi(), e.flag());
+                if (c != null) recovered.put(new ClosedId(key, c.session().firstSeen), c);
+            }
+            case PresenceJournal.SESSION -> {
+                Session s = new Session(e.ubicacionId(), e.firstSeen(), e.lastSeen(), e.reads(), e.maxRssi());
+                if (e.flag()) recovered.put(new ClosedId(key, s.firstSeen), new Closed(key, s));
+                else sessions.put(key, s);
+            }
+            case PresenceJournal.CLOSED -> {
+                // escrita en presencias_tags o en el backlog: cerrada por una lectura o por el barrido
+                if (recovered.remove(new ClosedId(key, e.firstSeen())) == null) {
+                    sessions.computeIfPresent(key, (k, s) -> s.firstSeen == e.firstSeen() ? null : s);
+                }
+            }
+            default -> log.warn("Unknown presence journal entry type {}", e.type());
+        }
+    }
+
+    /** Las presencias ya escritas no se recuperan al arrancar. */
+    private void markClosed(List<Closed> chunk) {
+        if (journal == null) return;
+        List<PresenceJournal.Entry> marks = new ArrayList<>(chunk.size());
+        for (Closed c : chunk) {
+            marks.add(new PresenceJournal.Entry(PresenceJournal.CLOSED, c.key().lectorId(), c.key().epc(), null,
+                    c.session().firstSeen, c.session().lastSeen, c.session().reads, null, false));
+        }
+        try {
+            journal.append(marks);
+        } catch (IOException e) {
+            log.warn("Failed to journal {} persisted presence sessions; they may be written again after a restart: {}",
+                    chunk.size(), e.getMessage());
+        }
+    }
+
+    /** Foto de todas las sesiones al inicio de un segmento nuevo; recorta el journal. */
+    private void checkpoint() {
+        long segment;
+        List<PresenceJournal.Entry> snapshot;
+        synchronized (journalLock) {
+            try {
+                segment = journal.roll();
+            } catch (IOException e) {
+                log.warn("Presence journal checkpoint failed: {}", e.getMessage());
+                return;
+            }
+            drainClosedInline();
+            snapshot = new ArrayList<>(sessions.size() + pending.size());
+            sessions.forEach((k, s) -> snapshot.add(snapshotEntry(k, s, false)));
+            for (Closed c : pending) snapshot.add(snapshotEntry(c.key(), c.session(), true));
+        }
+        try {
+            journal.writeSnapshot(segment, snapshot);
+        } catch (IOException e) {
+            log.warn("Presence journal checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    private static PresenceJournal.Entry snapshotEntry(Key k, Session s, boolean closed) {
+        return new PresenceJournal.Entry(PresenceJournal.SESSION, k.lectorId(), k.epc(), s.ubicacionId,
+                s.firstSeen, s.lastSeen, s.reads, s.maxRssi, closed);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.mdt.infrastructure.adapter.tags;
+
+import com.example.mdt.domain.gateway.TagGateway;
+import com.example.mdt.domain.model.TagInfo;
+import com.example.mdt.domain.model.TagTipo;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro en memoria de tags_uhf con el dueño de cada tag (empleados /
+ * equipment), para que la ingesta guarde tag_id, tag_tipo y owner_id en cada
+ * detección sin que los consumidores tengan que unir por epc.
+ *
+ * - Al arrancar se carga completo en una {@link TagTable} (EPC empaquetado en
+ *   dos long, sin objetos por entrada).
+ * - Cada {@code refresh-interval-ms} se leen solo los tags cuyo tags_uhf,
+ *   empleados o equipment cambió desde la pasada anterior ({@code updated_at},
+ *   migración V5) y se aplican sobre la tabla viva.
+ * - Cada {@code full-reload-interval-ms} se arma una tabla nueva y se
+ *   reemplaza: recoge lo que el incremental no ve (tags borrados, EPC
+ *   cambiados, el tag que un empleado dejó al pasar a otro).
+ *
+ * Hasta la primera carga correcta {@link #isReady()} es false y la ingesta no
+ * descarta nada por tag desconocido.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ingest.tags", name = "enabled", havingValue = "true")
+public class TagRegistry implements TagGateway {
+    private static final Logger log = LoggerFactory.getLogger(TagRegistry.class);
+
+    private static final String SELECT_TAGS =
+            "SELECT t.id, t.epc, t.tipo, t.activo, e.id AS empleado_id, q.id AS equipment_id "
+            + "FROM tags_uhf t "
+            + "LEFT JOIN empleados e ON e.tag_id = t.id "
+            + "LEFT JOIN equipment q ON q.tag_id = t.id";
+    private static final String SELECT_CHANGED = SELECT_TAGS
+            + " JOIN (SELECT id AS tag_id FROM tags_uhf WHERE updated_at >= ?"
+            + " UNION SELECT tag_id FROM empleados WHERE updated_at >= ? AND tag_id IS NOT NULL"
+            + " UNION SELECT tag_id FROM equipment WHERE updated_at >= ? AND tag_id IS NOT NULL) c"
+            + " ON c.tag_id = t.id";
+
+    private final JdbcTemplate jdbc;
+    private final DbHealthService dbHealth;
+    private final TagRegistryProperties props;
+    private final long fullReloadNanos;
+
+    private volatile TagTable table;
+    private volatile boolean ready;
+    /** Hora de la DB al empezar la última pasada; la siguiente lee updated_at >= since. */
+    private Timestamp since;
+    private long lastFullReload;
+
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder inactive = new LongAdder();
+
+    public TagRegistry(JdbcTemplate jdbc, DbHealthService dbHealth, TagRegistryProperties props) {
+        this.jdbc = jdbc;
+        this.dbHealth = dbHealth;
+        this.props = props;
+        this.fullReloadNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, props.getFullReloadIntervalMs()));
+        this.table = TagTable.forTags(props.getInitialCapacity());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Tag registry initial load failed (will retry on refresh): {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ingest.tags.refresh-interval-ms:30000}",
+               fixedDelayString = "${ingest.tags.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!dbHealth.isAvailable()) return;
+        try {
+            if (!ready || System.nanoTime() - lastFullReload >= fullReloadNanos) {
+                reload();
+            } else {
+                refreshChanged();
+            }
+        } catch (Exception e) {
+            log.warn("Tag registry refresh failed, keeping previous table: {}", e.getMessage());
+        }
+    }
+
+    /** Carga completa en una tabla nueva que reemplaza a la actual. */
+    public synchronized void reload() {
+        long started = System.nanoTime();
+        Timestamp dbNow = dbNow();
+        TagTable next = load(TagTable.forTags(Math.max(props.getInitialCapacity(), table.size())), SELECT_TAGS);
+        table = next;
+        since = dbNow;
+        lastFullReload = started;
+        ready = true;
+        log.info("Tag registry loaded: {} tags in {} ms", next.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /** Aplica sobre la tabla viva los tags cuyo registro o dueño cambió desde la última pasada. */
+    synchronized void refreshChanged() {
+        Timestamp dbNow = dbNow();
+        TagTable cur = table;
+        TagTable next = load(cur, SELECT_CHANGED, since, since, since);
+        if (next != cur) table = next;
+        since = dbNow;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Optional<TagInfo> findByEpc(String epc) {
+        TagInfo tag = table.find(epc);
+        if (tag == null) {
+            unknown.increment();
+            return Optional.empty();
+        }
+        if (!tag.activo()) inactive.increment();
+        return Optional.of(tag);
+    }
+
+    /** Tags en memoria. */
+    public int size() { return table.size(); }
+
+    /** Lecturas de EPC no registrados desde el arranque. */
+    public long unknownTotal() { return unknown.sum(); }
+
+    /** Lecturas de tags desactivados desde el arranque. */
+    public long inactiveTotal() { return inactive.sum(); }
+
+    /** Vuelca las filas en {@code into}; si se llena sigue en una copia más grande, que devuelve. */
+    private TagTable load(TagTable into, String sql, Object... args) {
+        TagTable[] out = {into};
+        jdbc.query(sql, rs -> {
+            String epc = rs.getString("epc");
+            if (epc == null) return;
+            TagInfo tag = toTag(rs);
+            if (!out[0].put(epc, tag)) {
+                out[0] = out[0].grow();
+                out[0].put(epc, tag);
+            }
+        }, args);
+        return out[0];
+    }
+
+    private static TagInfo toTag(ResultSet rs) throws SQLException {
+        TagTipo tipo = tipo(rs.getString("tipo"));
+        long ownerId = rs.getLong(tipo == TagTipo.EQUIPMENT ? "equipment_id" : "empleado_id");
+        return new TagInfo(rs.getLong("id"), tipo, rs.wasNull() ? null : ownerId, rs.getBoolean("activo"));
+    }
+
+    private static TagTipo tipo(String value) {
+        if (value == null) return null;
+        try {
+            return TagTipo.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Timestamp dbNow() {
+        return jdbc.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+    }
+}
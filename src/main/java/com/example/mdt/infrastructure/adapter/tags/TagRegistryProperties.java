@@ -0,0 +1,39 @@
+package com.example.mdt.infrastructure.adapter.tags;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "ingest.tags")
+public class TagRegistryProperties {
+    /** Completar tag_id / tag_tipo / owner_id (V5) desde el registro en memoria. */
+    private boolean enabled = false;
+    /** No persistir lecturas de EPC que no están en tags_uhf. */
+    private boolean dropUnknown = false;
+    /** No persistir lecturas de tags con activo = 0; con false se guardan enriquecidas como las demás. */
+    private boolean dropInactive = false;
+    /** Cada cuánto se leen los tags/dueños modificados (updated_at). */
+    private long refreshIntervalMs = 30_000;
+    /** Cada cuánto se recarga todo (recoge borrados, cambios de EPC y reasignaciones). */
+    private long fullReloadIntervalMs = 3_600_000;
+    /** Tamaño inicial de la tabla antes de la primera carga. */
+    private int initialCapacity = 1 << 16;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public boolean isDropUnknown() { return dropUnknown; }
+    public void setDropUnknown(boolean dropUnknown) { this.dropUnknown = dropUnknown; }
+
+    public boolean isDropInactive() { return dropInactive; }
+    public void setDropInactive(boolean dropInactive) { this.dropInactive = dropInactive; }
+
+    public long getRefreshIntervalMs() { return refreshIntervalMs; }
+    public void setRefreshIntervalMs(long refreshIntervalMs) { this.refreshIntervalMs = refreshIntervalMs; }
+
+    public long getFullReloadIntervalMs() { return fullReloadIntervalMs; }
+    public void setFullReloadIntervalMs(long fullReloadIntervalMs) { this.fullReloadIntervalMs = fullReloadIntervalMs; }
+
+    public int getInitialCapacity() { return initialCapacity; }
+    public void setInitialCapacity(int initialCapacity) { this.initialCapacity = initialCapacity; }
+}
@@ -0,0 +1,210 @@
+package com.example.mdt.infrastructure.adapter.tags;
+
+import com.example.mdt.domain.model.TagInfo;
+import com.example.mdt.domain.model.TagTipo;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tabla hash de direccionamiento abierto EPC → tag sobre arreglos primitivos.
+ *
+ * Un EPC hex de hasta {@link #MAX_PACKED_HEX} caracteres se empaqueta en dos
+ * {@code long}: {@code lo} con los últimos 16 dígitos y {@code hi} con el resto
+ * más la longitud en el byte alto (así "0A" y "000A" no colisionan, y
+ * {@code hi} nunca es 0, que marca hueco vacío). Cada hueco ocupa 33 bytes
+ * (hi, lo, id, dueño, tipo/activo) sin objetos por entrada: un millón de tags
+ * son entre 35 y 70 MB según el factor de carga. Los EPC que no se pueden
+ * empaquetar (no hex o más largos) van a un mapa aparte, en mayúsculas.
+ *
+ * Un solo escritor ({@link TagRegistry}, sincronizado); las lecturas son
+ * optimistas con {@link StampedLock} y solo toman el lock de lectura si
+ * coincidieron con una escritura. No hay borrado: una recarga completa arma
+ * una tabla nueva. Si {@link #put} devuelve false la tabla está llena y el
+ * escritor copia a una {@link #grow() más grande}.
+ */
+final class TagTable {
+
+    static final int MAX_PACKED_HEX = 30;
+
+    private static final float MAX_LOAD = 0.75f;
+    /** Sin dueño: los ids AUTO_INCREMENT empiezan en 1. */
+    private static final long NO_OWNER = 0;
+    private static final byte ACTIVE = 0x4;
+    private static final TagTipo[] TIPOS = TagTipo.values();
+
+    private final long[] his;
+    private final long[] los;
+    private final long[] ids;
+    private final long[] owners;
+    /** bits 0-1: ordinal de TagTipo + 1; bit 2: activo. */
+    private final byte[] meta;
+    private final int mask;
+    private final int maxSize;
+    private final Map<String, TagInfo> unpacked = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+    private int size;
+
+    /** Tabla vacía con huecos para {@code expectedTags} sin crecer. */
+    static TagTable forTags(int expectedTags) {
+        long needed = Math.min(1 << 30, (long) (expectedTags / MAX_LOAD) + 1);
+        return new TagTable(Integer.highestOneBit((int) Math.max(16, needed) - 1) << 1);
+    }
+
+    private TagTable(int slots) {
+        his = new long[slots];
+        los = new long[slots];
+        ids = new long[slots];
+        owners = new long[slots];
+        meta = new byte[slots];
+        mask = slots - 1;
+        maxSize = (int) (slots * MAX_LOAD);
+    }
+
+    /** Tags registrados (empaquetados y no empaquetados). */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size + unpacked.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    TagInfo find(String epc) {
+        long hi = packHi(epc);
+        if (hi == 0) {
+            return unpacked.isEmpty() || epc == null ? null : unpacked.get(epc.toUpperCase(Locale.ROOT));
+        }
+        long lo = packLo(epc);
+        long stamp = lock.tryOptimisticRead();
+        TagInfo found = lookup(hi, lo);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = lookup(hi, lo);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /** Inserta o reemplaza; false si la tabla está llena y el EPC no estaba. */
+    boolean put(String epc, TagInfo tag) {
+        long hi = packHi(epc);
+        if (hi == 0) {
+            unpacked.put(epc.toUpperCase(Locale.ROOT), tag);
+            return true;
+        }
+        long lo = packLo(epc);
+        long stamp = lock.writeLock();
+        try {
+            int idx = slot(hi, lo);
+            while (his[idx] != 0 && (his[idx] != hi || los[idx] != lo)) {
+                idx = (idx + 1) & mask;
+            }
+            if (his[idx] == 0) {
+                if (size >= maxSize) return false;
+                his[idx] = hi;
+                los[idx] = lo;
+                size++;
+            }
+            ids[idx] = tag.id();
+            owners[idx] = tag.ownerId() != null ? tag.ownerId() : NO_OWNER;
+            meta[idx] = (byte) ((tag.tipo() != null ? tag.tipo().ordinal() + 1 : 0) | (tag.activo() ? ACTIVE : 0));
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Copia con el doble de capacidad. */
+    TagTable grow() {
+        long stamp = lock.readLock();
+        try {
+            TagTable next = new TagTable((mask + 1) << 1);
+            for (int i = 0; i <= mask; i++) {
+                if (his[i] != 0) next.copySlot(this, i);
+            }
+            next.unpacked.putAll(unpacked);
+            return next;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void copySlot(TagTable from, int i) {
+        int idx = slot(from.his[i], from.los[i]);
+        while (his[idx] != 0) {
+            idx = (idx + 1) & mask;
+        }
+        his[idx] = from.his[i];
+        los[idx] = from.los[i];
+        ids[idx] = from.ids[i];
+        owners[idx] = from.owners[i];
+        meta[idx] = from.meta[i];
+        size++;
+    }
+
+    /** Puede leer un hueco a medio escribir: el llamador valida el stamp y descarta el resultado. */
+    private TagInfo lookup(long hi, long lo) {
+        int idx = slot(hi, lo);
+        for (int probe = 0; probe <= mask; probe++, idx = (idx + 1) & mask) {
+            long k = his[idx];
+            if (k == 0) return null;
+            if (k == hi && los[idx] == lo) {
+                int m = meta[idx];
+                int tipo = (m & 0x3) - 1;
+                long owner = owners[idx];
+                return new TagInfo(ids[idx], tipo >= 0 && tipo < TIPOS.length ? TIPOS[tipo] : null,
+                        owner != NO_OWNER ? owner : null, (m & ACTIVE) != 0);
+            }
+        }
+        return null;
+    }
+
+    private int slot(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /** Longitud y dígitos anteriores a los últimos 16; 0 si el EPC no se puede empaquetar. */
+    static long packHi(String epc) {
+        if (epc == null) return 0;
+        int n = epc.length();
+        if (n == 0 || n > MAX_PACKED_HEX) return 0;
+        long v = 0;
+        for (int i = 0; i < n - 16; i++) {
+            int d = hex(epc.charAt(i));
+            if (d < 0) return 0;
+            v = (v << 4) | d;
+        }
+        for (int i = Math.max(0, n - 16); i < n; i++) {
+            if (hex(epc.charAt(i)) < 0) return 0;
+        }
+        return ((long) n << 56) | v;
+    }
+
+    /** Últimos 16 dígitos; solo válido si {@link #packHi} no devolvió 0. */
+    static long packLo(String epc) {
+        int n = epc.length();
+        long v = 0;
+        for (int i = Math.max(0, n - 16); i < n; i++) {
+            v = (v << 4) | hex(epc.charAt(i));
+        }
+        return v;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+}
@@ -0,0 +1,9 @@
+-- Parte del esquema compacto (V4) que solo hace falta con ingest.compact.enabled=true;
+-- FlywayLazyMigrator agrega esta ubicación (y outOfOrder) solo en ese caso.
+--  * epc NULL-able: las filas con epc_bin dejan el texto en NULL (reescribe la tabla);
+--  * índice por epc_bin para buscar por EPC en las filas compactas.
+
+ALTER TABLE detecciones_tags
+  MODIFY epc VARCHAR(64) NULL;
+
+CREATE INDEX idx_detecciones_epcbin_created ON detecciones_tags (epc_bin, created_at);
@@ -0,0 +1,21 @@
+-- Sesiones de presencia: una fila por (epc, lector) mientras el tag permanece
+-- en el campo del lector. La cierra la ingesta tras un hueco sin lecturas.
+CREATE TABLE presencias_tags (
+  id            BIGINT PRIMARY KEY AUTO_INCREMENT,
+  lector_id     BIGINT NOT NULL,
+  ubicacion_id  BIGINT NULL,
+  epc           VARCHAR(64) NOT NULL,
+  first_seen    DATETIME NOT NULL,
+  last_seen     DATETIME NOT NULL,
+  read_count    INT NOT NULL,
+  max_rssi      INT NULL,
+  created_at    DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT fk_presencias_lector
+    FOREIGN KEY (lector_id) REFERENCES lectores_uhf(id) ON DELETE RESTRICT,
+  CONSTRAINT fk_presencias_ubicacion
+    FOREIGN KEY (ubicacion_id) REFERENCES ubicaciones(id) ON DELETE SET NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE INDEX idx_presencias_epc_first         ON presencias_tags (epc, first_seen);
+CREATE INDEX idx_presencias_lector_first      ON presencias_tags (lector_id, first_seen);
+CREATE INDEX idx_presencias_ubicacion_first   ON presencias_tags (ubicacion_id, first_seen);
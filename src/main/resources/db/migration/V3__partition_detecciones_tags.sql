@@ -0,0 +1,32 @@
+-- detecciones_tags particionada por rango de created_at (MariaDB).
+-- La retención borra particiones enteras (DROP PARTITION) en lugar de DELETE y
+-- cada insert solo toca los índices de la partición del día.
+--
+-- Requisitos de MariaDB para particionar:
+--  * toda clave única debe incluir la columna de partición: la PK pasa a (id, created_at);
+--    id sigue siendo AUTO_INCREMENT y único en la práctica.
+--  * las tablas particionadas no admiten claves foráneas: se eliminan las de
+--    lector_id / ubicacion_id (la ingesta ya valida ambos contra la cache de metadata).
+
+ALTER TABLE detecciones_tags DROP FOREIGN KEY fk_detecciones_lector;
+ALTER TABLE detecciones_tags DROP FOREIGN KEY fk_detecciones_ubicacion;
+
+-- Redundante con idx_detecciones_epc_created (mismo prefijo)
+DROP INDEX idx_detecciones_epc ON detecciones_tags;
+
+ALTER TABLE detecciones_tags
+  MODIFY id BIGINT NOT NULL AUTO_INCREMENT,
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (id, created_at);
+
+-- Partición inicial con todo lo existente hasta hoy y pmax vacía para lo futuro.
+-- PartitionMaintenanceService parte pmax en particiones diarias/mensuales por
+-- adelantado y elimina las que superan la retención.
+SET @bound = DATE_FORMAT(CURDATE() + INTERVAL 1 DAY, '%Y-%m-%d');
+SET @ddl = CONCAT(
+  'ALTER TABLE detecciones_tags PARTITION BY RANGE COLUMNS(created_at) (',
+  'PARTITION p', DATE_FORMAT(CURDATE(), '%Y%m%d'), ' VALUES LESS THAN (''', @bound, '''), ',
+  'PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
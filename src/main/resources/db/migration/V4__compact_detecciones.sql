@@ -0,0 +1,42 @@
+-- Esquema compacto opcional de detecciones_tags (ingest.compact.enabled=true):
+--  * epc_bin: el EPC en binario (12 bytes para 96 bits) en lugar de hex utf8mb4;
+--  * machine_id / version_id: ids de tablas de diccionario pequeñas.
+-- Aquí solo lo que el código de escritura y la vista necesitan siempre:
+-- columnas NULL-ables al final de la tabla y diccionarios vacíos. Lo que
+-- reescribe la tabla o agrega un índice (epc NULL-able, índice por epc_bin)
+-- está en db/migration-compact y solo se aplica con el esquema compacto
+-- activo. Las columnas de texto quedan: las filas antiguas y los valores que
+-- no se pueden codificar siguen ahí. CompactSchemaBackfillService convierte
+-- las filas antiguas en segundo plano.
+
+CREATE TABLE maquinas (
+  id      INT PRIMARY KEY AUTO_INCREMENT,
+  nombre  VARCHAR(100) NOT NULL,
+  CONSTRAINT uk_maquinas_nombre UNIQUE (nombre)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
+
+CREATE TABLE versiones (
+  id      INT PRIMARY KEY AUTO_INCREMENT,
+  nombre  VARCHAR(20) NOT NULL,
+  CONSTRAINT uk_versiones_nombre UNIQUE (nombre)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
+
+ALTER TABLE detecciones_tags
+  ADD COLUMN epc_bin VARBINARY(32) NULL,
+  ADD COLUMN machine_id INT NULL,
+  ADD COLUMN version_id INT NULL;
+
+-- Lectura uniforme de ambos formatos para consultas e informes
+CREATE OR REPLACE VIEW v_detecciones_tags AS
+SELECT d.id,
+       d.lector_id,
+       d.ubicacion_id,
+       COALESCE(d.epc, HEX(d.epc_bin)) AS epc,
+       d.rssi,
+       COALESCE(d.machine, m.nombre)   AS machine,
+       COALESCE(d.version, v.nombre)   AS version,
+       d.created_at,
+       d.updated_at
+FROM detecciones_tags d
+LEFT JOIN maquinas m  ON m.id = d.machine_id
+LEFT JOIN versiones v ON v.id = d.version_id;
@@ -0,0 +1,43 @@
+-- Tag y dueño de cada detección (ingest.tags.enabled=true): la ingesta los
+-- resuelve desde el registro en memoria (TagRegistry) y los consumidores ya no
+-- necesitan unir detecciones_tags con tags_uhf por epc.
+--  * tag_id:   tags_uhf.id (sin FK: detecciones_tags está particionada, V3);
+--  * tag_tipo: tags_uhf.tipo al momento de la lectura;
+--  * owner_id: empleados.id o equipment.id según tag_tipo.
+-- NULL en filas antiguas, con el registro apagado o para EPC no registrados.
+
+ALTER TABLE detecciones_tags
+  ADD COLUMN tag_id BIGINT NULL,
+  ADD COLUMN tag_tipo ENUM('EMPLEADO','EQUIPMENT') NULL,
+  ADD COLUMN owner_id BIGINT NULL;
+
+CREATE INDEX idx_detecciones_owner_created ON detecciones_tags (tag_tipo, owner_id, created_at);
+
+-- updated_at para que TagRegistry lea solo los tags y asignaciones que cambiaron
+ALTER TABLE tags_uhf
+  ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+ALTER TABLE empleados
+  ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+ALTER TABLE equipment
+  ADD COLUMN updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_taguhf_updated    ON tags_uhf (updated_at);
+CREATE INDEX idx_empleados_updated ON empleados (updated_at);
+CREATE INDEX idx_equipment_updated ON equipment (updated_at);
+
+CREATE OR REPLACE VIEW v_detecciones_tags AS
+SELECT d.id,
+       d.lector_id,
+       d.ubicacion_id,
+       COALESCE(d.epc, HEX(d.epc_bin)) AS epc,
+       d.rssi,
+       COALESCE(d.machine, m.nombre)   AS machine,
+       COALESCE(d.version, v.nombre)   AS version,
+       d.tag_id,
+       d.tag_tipo,
+       d.owner_id,
+       d.created_at,
+       d.updated_at
+FROM detecciones_tags d
+LEFT JOIN maquinas m  ON m.id = d.machine_id
+LEFT JOIN versiones v ON v.id = d.version_id;
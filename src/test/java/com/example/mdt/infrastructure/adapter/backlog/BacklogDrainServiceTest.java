@@ -0,0 +1,166 @@
+package com.example.mdt.infrastructure.adapter.backlog;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import com.example.mdt.domain.model.Scan;
+import com.example.mdt.domain.usecase.ProcessScanUseCase;
+import com.example.mdt.infrastructure.adapter.codec.ScanPayloadDecoder;
+import com.example.mdt.infrastructure.adapter.db.DbCircuitBreaker;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import com.example.mdt.infrastructure.adapter.ingest.IngestScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BacklogDrainServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final DbHealthService dbHealth = mock(DbHealthService.class);
+    private final DbCircuitBreaker breaker = mock(DbCircuitBreaker.class);
+    private final ProcessScanUseCase useCase = mock(ProcessScanUseCase.class);
+    private final DeteccionesGateway gateway = mock(DeteccionesGateway.class);
+    private final ScanPayloadDecoder decoder = mock(ScanPayloadDecoder.class);
+    private final IngestScheduler scheduler = mock(IngestScheduler.class);
+
+    /** Filas recibidas por cada llamada a {@code saveAll}, en orden. */
+    private final List<List<String>> saved = new ArrayList<>();
+
+    private BacklogStore store;
+    private BacklogDrainService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        BacklogProperties props = new BacklogProperties();
+        props.setDir(dir.toString());
+        props.setCatchUpThreshold(3);
+        props.setCatchUpBatchRecords(100);
+        props.setCatchUpParallelism(2);
+        store = new BacklogStore(props);
+
+        when(dbHealth.isMigrated()).thenReturn(true);
+        when(breaker.tryAcquire()).thenReturn(true);
+        when(breaker.isClosed()).thenReturn(true);
+        when(scheduler.tryAcquireReplay(anyInt())).thenReturn(true);
+        // cada payload es el EPC de su única detección
+        when(decoder.decode(any(byte[].class))).thenAnswer(inv -> new Scan("SCAN", null, "dev", "M1", "1",
+                List.of(new String((byte[]) inv.getArgument(0), StandardCharsets.UTF_8))));
+        when(useCase.prepare(any(Scan.class), any(LocalDateTime.class))).thenAnswer(inv -> {
+            Scan scan = inv.getArgument(0);
+            Deteccion d = new Deteccion(1L, 10L, scan.csn().get(0), -50, scan.machine(), inv.getArgument(1), "1");
+            return new PreparedScan(List.of(d), List.of(d));
+        });
+
+        ObjectProvider<BacklogRecordHandler> handlers = mock(ObjectProvider.class);
+        when(handlers.orderedStream()).thenReturn(Stream.empty());
+        service = new BacklogDrainService(store, props, dbHealth, breaker, useCase, gateway, decoder, scheduler, handlers);
+    }
+
+    private void enqueue(String... epcs) {
+        for (String epc : epcs) {
+            assertThat(store.enqueue(epc, "db_down")).isTrue();
+        }
+    }
+
+    private void onSaveAll(Function<List<String>, Integer> answer) {
+        when(gateway.saveAll(any())).thenAnswer(inv -> {
+            List<Deteccion> rows = inv.getArgument(0);
+            List<String> epcs = rows.stream().map(Deteccion::epc).toList();
+            saved.add(epcs);
+            return answer.apply(epcs);
+        });
+    }
+
+    /** Lanza el drenaje y espera a que termine el catch-up en segundo plano. */
+    private void drainAndWait() throws InterruptedException {
+        service.drain();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (service.isCatchUpRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(service.isCatchUpRunning()).isFalse();
+    }
+
+    @Test
+    void catchUpWritesTheWholeBatchWithOneSaveAll() throws Exception {
+        onSaveAll(List::size);
+        enqueue("E1", "E2", "E3", "E4", "E5");
+
+        drainAndWait();
+
+        assertThat(saved).containsExactly(List.of("E1", "E2", "E3", "E4", "E5"));
+        assertThat(store.depth()).isZero();
+        verify(useCase, times(5)).committed(any());
+        verify(useCase, times(0)).process(any(), any());
+    }
+
+    @Test
+    void constraintViolationIsolatesTheBadRecord() throws Exception {
+        onSaveAll(epcs -> {
+            if (epcs.contains("BAD")) throw new DataIntegrityViolationException("duplicate");
+            return epcs.size();
+        });
+        enqueue("E1", "BAD", "E3");
+
+        drainAndWait();
+
+        assertThat(saved).containsExactly(List.of("E1", "BAD", "E3"), List.of("E1"), List.of("BAD"), List.of("E3"));
+        assertThat(store.depth()).isZero();
+        verify(useCase, times(2)).committed(any());
+    }
+
+    @Test
+    void transientFailureKeepsTheCursorAndReusesThePreparation() throws Exception {
+        boolean[] fail = {true};
+        onSaveAll(epcs -> {
+            if (fail[0]) throw new IllegalStateException("connection reset");
+            return epcs.size();
+        });
+        enqueue("E1", "E2", "E3");
+
+        drainAndWait();
+        assertThat(store.depth()).isEqualTo(3);
+        verify(useCase, times(0)).committed(any());
+
+        fail[0] = false;
+        drainAndWait();
+
+        assertThat(store.depth()).isZero();
+        assertThat(saved).hasSize(2);
+        verify(useCase, times(3)).prepare(any(Scan.class), any(LocalDateTime.class));
+        verify(useCase, times(3)).committed(any());
+    }
+
+    @Test
+    void smallBacklogDrainsRecordByRecord() throws Exception {
+        when(useCase.process(any(Scan.class), any(LocalDateTime.class))).thenReturn(1);
+        enqueue("E1", "E2");
+
+        service.drain();
+
+        assertThat(service.isCatchUpRunning()).isFalse();
+        assertThat(store.depth()).isZero();
+        verify(useCase, times(2)).process(any(Scan.class), any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.mdt.infrastructure.adapter.backlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BacklogStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private BacklogStore open() {
+        return open(64L * 1024 * 1024);
+    }
+
+    private BacklogStore open(long segmentBytes) {
+        BacklogProperties props = new BacklogProperties();
+        props.setDir(dir.toString());
+        props.setSegmentBytes(segmentBytes);
+        return new BacklogStore(props);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> st = Files.list(dir)) {
+            return st.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static void overwrite(Path file, long pos, byte[] bytes) throws IOException {
+        try (RandomAccessFile f = new RandomAccessFile(file.toFile(), "rw")) {
+            f.seek(pos);
+            f.write(bytes);
+        }
+    }
+
+    /** Tamaño en disco de un registro con reason "r" y el payload dado. */
+    private static int recordBytes(String payload) {
+        return 8 + 8 + 2 + 1 + payload.length();
+    }
+
+    private static String payload(BacklogRecord rec) {
+        return new String(rec.payload(), StandardCharsets.UTF_8);
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> st = Files.list(dir)) {
+            return st.filter(p -> p.getFileName().toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void recordsRoundTripWithReasonAndReceivedTime() {
+        BacklogStore store = open();
+        store.enqueue("a".getBytes(StandardCharsets.UTF_8), "db_unavailable", 1234L);
+        store.enqueue("b", "ingest_queue_full");
+
+        List<BacklogRecord> batch = store.readBatch(10);
+
+        assertThat(batch).hasSize(2);
+        assertThat(payload(batch.get(0))).isEqualTo("a");
+        assertThat(batch.get(0).reason()).isEqualTo("db_unavailable");
+        assertThat(batch.get(0).enqueuedAtMillis()).isEqualTo(1234L);
+        assertThat(payload(batch.get(1))).isEqualTo("b");
+        assertThat(store.depth()).isEqualTo(2);
+    }
+
+    @Test
+    void cursorSurvivesRestart() {
+        BacklogStore store = open();
+        store.enqueue("a", "r");
+        store.enqueue("b", "r");
+        store.enqueue("c", "r");
+        store.commit(store.readBatch(1).get(0));
+        store.close();
+
+        BacklogStore reopened = open();
+
+        assertThat(reopened.depth()).isEqualTo(2);
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("b", "c");
+    }
+
+    @Test
+    void commitAllAdvancesPastTheWholeBatch() {
+        BacklogStore store = open();
+        store.enqueue("a", "r");
+        store.enqueue("b", "r");
+        store.enqueue("c", "r");
+
+        store.commitAll(store.readBatch(2));
+
+        assertThat(store.depth()).isEqualTo(1);
+        assertThat(store.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("c");
+    }
+
+    @Test
+    void tornTailIsTruncatedOnOpen() throws IOException {
+        BacklogStore store = open();
+        store.enqueue("a", "r");
+        store.enqueue("b", "r");
+        store.close();
+        long size = Files.size(segment());
+        try (RandomAccessFile f = new RandomAccessFile(segment().toFile(), "rw")) {
+            f.setLength(size - 1);
+        }
+
+        BacklogStore reopened = open();
+
+        assertThat(reopened.depth()).isEqualTo(1);
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("a");
+        reopened.enqueue("c", "r");
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("a", "c");
+    }
+
+    @Test
+    void corruptRecordFailsCrcAndEndsTheLog() throws IOException {
+        BacklogStore store = open();
+        store.enqueue("a", "r");
+        store.enqueue("bbbb", "r");
+        store.close();
+        long size = Files.size(segment());
+        try (RandomAccessFile f = new RandomAccessFile(segment().toFile(), "rw")) {
+            f.seek(size - 1);
+            f.write('x');
+        }
+
+        BacklogStore reopened = open();
+
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("a");
+    }
+
+    @Test
+    void legacyJsonFilesAreMigratedInTimestampOrder() throws IOException {
+        Files.writeString(dir.resolve("2000_db_unavailable_x.json"), "second");
+        Files.writeString(dir.resolve("1000_ingest_queue_full_y.json"), "first");
+
+        BacklogStore store = open();
+        List<BacklogRecord> batch = store.readBatch(10);
+
+        assertThat(batch).extracting(BacklogStoreTest::payload).containsExactly("first", "second");
+        assertThat(batch.get(0).reason()).isEqualTo("ingest_queue_full");
+        assertThat(batch.get(0).enqueuedAtMillis()).isEqualTo(1000L);
+        assertThat(batch.get(1).reason()).isEqualTo("db_unavailable");
+        try (Stream<Path> st = Files.list(dir)) {
+            assertThat(st.filter(p -> p.toString().endsWith(".json"))).isEmpty();
+        }
+    }
+
+    @Test
+    void corruptRecordInTheMiddleIsQuarantinedAndSkipped() throws IOException {
+        BacklogStore store = open();
+        store.enqueue("a", "r");
+        store.enqueue("bbbb", "r");
+        store.enqueue("c", "r");
+        store.close();
+        overwrite(segment(), recordBytes("a") + recordBytes("bbbb") - 2, new byte[]{'x'});
+
+        BacklogStore reopened = open();
+        assertThat(reopened.depth()).isEqualTo(2);
+        List<BacklogRecord> first = reopened.readBatch(10);
+        assertThat(first).extracting(BacklogStoreTest::payload).containsExactly("a");
+        reopened.commitAll(first);
+
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("c");
+        assertThat(reopened.quarantinedTotal()).isEqualTo(1);
+        try (Stream<Path> st = Files.list(dir.resolve("quarantine"))) {
+            assertThat(st.toList()).singleElement()
+                    .satisfies(p -> assertThat(Files.size(p)).isEqualTo(recordBytes("bbbb")));
+        }
+        reopened.enqueue("d", "r");
+        assertThat(reopened.readBatch(10)).extracting(BacklogStoreTest::payload).containsExactly("c", "d");
+    }
+
+    @Test
+    void corruptLengthSkipsTheRestOfASealedSegment() throws IOException {
+        BacklogStore store = open(2L * recordBytes("a"));
+        store.enqueue("a", "r");
+        store.enqueue("b", "r");
+        store.enqueue("c", "r");
+        assertThat(segments()).hasSize(2);
+        overwrite(segments().get(0), 0, new byte[]{0x7f, 0, 0, 0});
+
+        List<BacklogRecord> batch = store.readBatch(10);
+
+        assertThat(batch).extracting(BacklogStoreTest::payload).containsExactly("c");
+        assertThat(store.quarantinedTotal()).isEqualTo(1);
+        store.commitAll(batch);
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    void legacyFileWithoutTimestampUsesItsModificationTime() throws IOException {
+        Path file = dir.resolve("manual_db_unavailable_x.json");
+        Files.writeString(file, "payload");
+        Files.setLastModifiedTime(file, java.nio.file.attribute.FileTime.fromMillis(5000L));
+
+        BacklogStore store = open();
+
+        assertThat(store.readBatch(10)).singleElement()
+                .satisfies(rec -> assertThat(rec.enqueuedAtMillis()).isEqualTo(5000L));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mdt.infrastructure.adapter.codec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EpcCodecTest {
+
+    @Test
+    void uppercaseHexRoundTrips() {
+        String epc = "E2801160600002054C4B1A2F";
+
+        byte[] bin = EpcCodec.encode(epc);
+
+        assertThat(bin).hasSize(12);
+        assertThat(bin[0]).isEqualTo((byte) 0xE2);
+        assertThat(EpcCodec.decode(bin)).isEqualTo(epc);
+    }
+
+    @Test
+    void leadingZerosAreKept() {
+        assertThat(EpcCodec.decode(EpcCodec.encode("000A"))).isEqualTo("000A");
+    }
+
+    @Test
+    void maxLengthIsAccepted() {
+        String epc = "F".repeat(EpcCodec.MAX_BYTES * 2);
+        assertThat(EpcCodec.decode(EpcCodec.encode(epc))).isEqualTo(epc);
+    }
+
+    @Test
+    void valuesThatWouldNotRoundTripStayAsText() {
+        assertThat(EpcCodec.encode(null)).isNull();
+        assertThat(EpcCodec.encode("")).isNull();
+        assertThat(EpcCodec.encode("e2801160")).as("lowercase").isNull();
+        assertThat(EpcCodec.encode("E28011601")).as("odd length").isNull();
+        assertThat(EpcCodec.encode("E280-160")).as("non hex").isNull();
+        assertThat(EpcCodec.encode("F".repeat(EpcCodec.MAX_BYTES * 2 + 2))).as("too long").isNull();
+    }
+
+    @Test
+    void decodeNullIsNull() {
+        assertThat(EpcCodec.decode(null)).isNull();
+    }
+}
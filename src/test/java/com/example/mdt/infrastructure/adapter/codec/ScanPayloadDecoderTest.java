@@ -0,0 +1,65 @@
+package com.example.mdt.infrastructure.adapter.codec;
+
+import com.example.mdt.domain.model.Scan;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScanPayloadDecoderTest {
+
+    private final ScanPayloadDecoder decoder = new ScanPayloadDecoder();
+
+    private Scan decode(String json) throws IOException {
+        return decoder.decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsAllScanFields() throws IOException {
+        Scan scan = decode("""
+                {"DATATYPE":"SCAN","OBJECT":{"STAGE":"ST-2","DEVICE":"LEC-7","MACHINE":"M1",
+                 "VERSION":"1.4","CSN":["E200,-41","E201,-55"]}}""");
+
+        assertThat(scan.datatype()).isEqualTo("SCAN");
+        assertThat(scan.stage()).isEqualTo("ST-2");
+        assertThat(scan.device()).isEqualTo("LEC-7");
+        assertThat(scan.machine()).isEqualTo("M1");
+        assertThat(scan.version()).isEqualTo("1.4");
+        assertThat(scan.csn()).containsExactly("E200,-41", "E201,-55");
+    }
+
+    @Test
+    void unknownFieldsAndNestedValuesAreSkipped() throws IOException {
+        Scan scan = decode("""
+                {"TS":{"a":[1,2,{"b":3}]},"DATATYPE":"SCAN",
+                 "OBJECT":{"EXTRA":[{"x":1}],"DEVICE":{"nested":true},"STAGE":12,"CSN":["E200"]}}""");
+
+        assertThat(scan.device()).as("non-scalar value").isNull();
+        assertThat(scan.stage()).isEqualTo("12");
+        assertThat(scan.csn()).containsExactly("E200");
+    }
+
+    @Test
+    void missingOrNonArrayCsnIsEmpty() throws IOException {
+        assertThat(decode("{\"DATATYPE\":\"SCAN\",\"OBJECT\":{}}").csn()).isEmpty();
+        assertThat(decode("{\"DATATYPE\":\"SCAN\",\"OBJECT\":{\"CSN\":\"E200\"}}").csn()).isEmpty();
+        assertThat(decode("{\"DATATYPE\":\"PING\"}").datatype()).isEqualTo("PING");
+    }
+
+    @Test
+    void decodesASliceOfTheBuffer() throws IOException {
+        byte[] framed = "xx{\"DATATYPE\":\"SCAN\"}yy".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(decoder.decode(framed, 2, framed.length - 4).datatype()).isEqualTo("SCAN");
+    }
+
+    @Test
+    void invalidPayloadsAreRejected() {
+        assertThatThrownBy(() -> decode("[1,2]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("{\"OBJECT\":{\"CSN\":[\"E200\"")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("not json")).isInstanceOf(IOException.class);
+    }
+}
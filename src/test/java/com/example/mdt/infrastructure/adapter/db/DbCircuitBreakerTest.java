@@ -0,0 +1,166 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DbCircuitBreakerTest {
+
+    private static final Exception CONNECTION_LOST = new SQLTransientConnectionException("pool exhausted");
+
+    private static DbCircuitBreakerProperties props() {
+        DbCircuitBreakerProperties p = new DbCircuitBreakerProperties();
+        p.setOpenMs(20);
+        p.setMaxOpenMs(1000);
+        p.setProbeIntervalMs(0);
+        p.setCloseAfterProbes(2);
+        p.setWindowSize(4);
+        p.setMinimumCalls(4);
+        p.setFailureRateThreshold(0.5);
+        return p;
+    }
+
+    private static void awaitHalfOpen(DbCircuitBreaker breaker) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!breaker.tryAcquire()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void connectionErrorOpensImmediately() {
+        DbCircuitBreakerProperties p = props();
+        p.setOpenMs(60_000);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+
+        breaker.onFailure(breaker.start(), CONNECTION_LOST);
+
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void constraintViolationCountsAsSuccess() {
+        DbCircuitBreaker breaker = new DbCircuitBreaker(props());
+
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure(breaker.start(), new DataIntegrityViolationException("duplicate"));
+        }
+
+        assertThat(breaker.isClosed()).isTrue();
+    }
+
+    @Test
+    void isOpenEndsWithTheOpenWaitWithoutTakingTheProbe() throws InterruptedException {
+        DbCircuitBreakerProperties p = props();
+        p.setOpenMs(300);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+        breaker.onFailure(breaker.start(), CONNECTION_LOST);
+        assertThat(breaker.isOpen()).isTrue();
+
+        Thread.sleep(350);
+
+        assertThat(breaker.isOpen()).isFalse();
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).as("probe still available").isTrue();
+    }
+
+    @Test
+    void failureRateOverTheWindowOpens() {
+        DbCircuitBreakerProperties p = props();
+        p.setSlowCallMs(0);
+        p.setSlowCallPerRowUs(0);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(breaker.start());
+        }
+        assertThat(breaker.isClosed()).as("below minimum-calls").isTrue();
+        breaker.onSuccess(breaker.start());
+
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() throws InterruptedException {
+        DbCircuitBreaker breaker = new DbCircuitBreaker(props());
+        breaker.onFailure(breaker.start(), CONNECTION_LOST);
+
+        awaitHalfOpen(breaker);
+        breaker.onSuccess(breaker.start());
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess(breaker.start());
+
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopens() throws InterruptedException {
+        DbCircuitBreaker breaker = new DbCircuitBreaker(props());
+        breaker.onFailure(breaker.start(), CONNECTION_LOST);
+
+        awaitHalfOpen(breaker);
+        breaker.onFailure(breaker.start(), new SQLException("link failure", "08S01"));
+
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void stuckInsertTripsTheBreaker() throws InterruptedException {
+        DbCircuitBreakerProperties p = props();
+        p.setSlowCallMs(10);
+        p.setSlowCallPerRowUs(0);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+
+        breaker.start();
+        Thread.sleep(30);
+
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void slowCallLimitGrowsWithBatchSize() throws InterruptedException {
+        DbCircuitBreakerProperties p = props();
+        p.setSlowCallMs(10);
+        p.setSlowCallPerRowUs(1000);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+
+        long batch = breaker.start(1001);              // 10 ms + 1000 * 1 ms
+        Thread.sleep(30);
+
+        assertThat(breaker.tryAcquire()).as("large batch still within its limit").isTrue();
+        breaker.onSuccess(batch);
+        assertThat(breaker.isClosed()).isTrue();
+
+        breaker.start(1);
+        Thread.sleep(30);
+        assertThat(breaker.tryAcquire()).as("single row over slow-call-ms").isFalse();
+    }
+
+    @Test
+    void disabledBreakerAlwaysAllows() {
+        DbCircuitBreakerProperties p = props();
+        p.setEnabled(false);
+        DbCircuitBreaker breaker = new DbCircuitBreaker(p);
+
+        breaker.onFailure(breaker.start(), CONNECTION_LOST);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.isClosed()).isTrue();
+    }
+
+    @Test
+    void unavailabilityIsFoundInTheCauseChain() {
+        assertThat(DbCircuitBreaker.isUnavailable(new RuntimeException(CONNECTION_LOST))).isTrue();
+        assertThat(DbCircuitBreaker.isUnavailable(new SQLException("x", "08001"))).isTrue();
+        assertThat(DbCircuitBreaker.isUnavailable(new SQLException("dup", "23000"))).isFalse();
+    }
+}
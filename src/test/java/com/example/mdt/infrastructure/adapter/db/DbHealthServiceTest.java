@@ -0,0 +1,64 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DbHealthServiceTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final FlywayLazyMigrator migrator = mock(FlywayLazyMigrator.class);
+    private final DbCircuitBreaker breaker = new DbCircuitBreaker(new DbCircuitBreakerProperties());
+    private final DbHealthService health = new DbHealthService(dataSource, migrator, breaker);
+
+    private void dbUp() throws Exception {
+        Connection c = mock(Connection.class);
+        when(c.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        when(dataSource.getConnection()).thenReturn(c);
+    }
+
+    @Test
+    void unreachableDbIsUnavailableAndOpensTheBreaker() throws Exception {
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("refused"));
+
+        health.check();
+
+        assertThat(health.isMigrated()).isFalse();
+        assertThat(health.isAvailable()).isFalse();
+        assertThat(breaker.state()).isEqualTo(DbCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void pollStopsOnceMigrated() throws Exception {
+        dbUp();
+
+        health.check();
+        health.check();
+
+        assertThat(health.isMigrated()).isTrue();
+        assertThat(health.isAvailable()).isTrue();
+        verify(dataSource, times(1)).getConnection();
+        verify(migrator, times(1)).migrate();
+    }
+
+    @Test
+    void afterMigrationTheBreakerDecides() throws Exception {
+        dbUp();
+        health.check();
+
+        breaker.onFailure(breaker.start(), new SQLTransientConnectionException("pool exhausted"));
+
+        assertThat(health.isAvailable()).isFalse();
+        assertThat(health.isMigrated()).isTrue();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.mdt.infrastructure.adapter.db;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlywayLazyMigratorTest {
+
+    @Test
+    void compactLocationOnlyWhenEnabled() {
+        String[] base = {"classpath:db/migration"};
+
+        assertThat(FlywayLazyMigrator.locations(base, false)).containsExactly("classpath:db/migration");
+        assertThat(FlywayLazyMigrator.locations(base, true))
+                .containsExactly("classpath:db/migration", FlywayLazyMigrator.COMPACT_LOCATION);
+    }
+
+    @Test
+    void compactLocationIsNotAddedTwice() {
+        String[] base = {"classpath:db/migration", " " + FlywayLazyMigrator.COMPACT_LOCATION};
+
+        assertThat(FlywayLazyMigrator.locations(base, true))
+                .containsExactly("classpath:db/migration", FlywayLazyMigrator.COMPACT_LOCATION);
+    }
+}
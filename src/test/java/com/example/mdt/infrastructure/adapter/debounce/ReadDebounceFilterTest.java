@@ -0,0 +1,106 @@
+package com.example.mdt.infrastructure.adapter.debounce;
+
+import com.example.mdt.domain.gateway.DeteccionFilter;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadDebounceFilterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0, 0);
+
+    private final ReadDebounceFilter filter = new ReadDebounceFilter(props(2000));
+
+    private static ReadDebounceProperties props(long windowMs) {
+        ReadDebounceProperties props = new ReadDebounceProperties();
+        props.setEnabled(true);
+        props.setWindowMs(windowMs);
+        props.setCapacity(1024);
+        return props;
+    }
+
+    private static Deteccion read(long lector, String epc, LocalDateTime at) {
+        return new Deteccion(lector, 10L, epc, -50, "m1", at, "1.0");
+    }
+
+    /** Lo que haría prepare + commit con un SCAN: filtra con una vista por mensaje y confirma. */
+    private PreparedScan prepare(Deteccion... reads) {
+        DeteccionFilter message = filter.forMessage();
+        List<Deteccion> rows = new ArrayList<>();
+        for (Deteccion d : reads) {
+            if (message.accept(d)) rows.add(d);
+        }
+        return new PreparedScan(rows, List.of(reads));
+    }
+
+    @Test
+    void repeatedTagWithinOneMessageIsWrittenOnce() {
+        Deteccion a = read(1, "E200", T0);
+        Deteccion again = read(1, "E200", T0);
+        Deteccion other = read(1, "E201", T0);
+
+        PreparedScan scan = prepare(a, again, other);
+
+        assertThat(scan.rows()).containsExactly(a, other);
+    }
+
+    @Test
+    void acceptDoesNotChangeStateBeforeCommit() {
+        Deteccion first = read(1, "E200", T0);
+
+        assertThat(filter.accept(first)).isTrue();
+        assertThat(filter.accept(read(1, "E200", T0.plusNanos(500_000_000)))).as("first never committed").isTrue();
+    }
+
+    @Test
+    void committedRowSuppressesRereadsWithinTheWindow() {
+        filter.committed(prepare(read(1, "E200", T0)));
+
+        assertThat(filter.accept(read(1, "E200", T0.plusNanos(1_500_000_000)))).isFalse();
+        assertThat(filter.accept(read(1, "E200", T0.plusSeconds(2)))).isTrue();
+        assertThat(filter.accept(read(2, "E200", T0.plusSeconds(1)))).as("other reader").isTrue();
+    }
+
+    @Test
+    void retryOfAnUncommittedMessageKeepsItsRows() {
+        Deteccion d = read(1, "E200", T0);
+
+        PreparedScan nacked = prepare(d);
+        PreparedScan retried = prepare(d);
+
+        assertThat(nacked.rows()).containsExactly(d);
+        assertThat(retried.rows()).containsExactly(d);
+    }
+
+    @Test
+    void replayOfACommittedMessageIsSuppressed() {
+        Deteccion d = read(1, "E200", T0);
+        filter.committed(prepare(d));
+
+        assertThat(prepare(d).rows()).isEmpty();
+    }
+
+    @Test
+    void olderReadOutsideTheWindowPasses() {
+        filter.committed(prepare(read(1, "E200", T0.plusSeconds(10))));
+
+        assertThat(filter.accept(read(1, "E200", T0))).isTrue();
+        assertThat(filter.accept(read(1, "E200", T0.plusSeconds(9)))).isFalse();
+    }
+
+    @Test
+    void suppressedReadsAreCountedOnCommit() {
+        filter.committed(prepare(read(1, "E200", T0)));
+        assertThat(filter.suppressedTotal()).isZero();
+
+        filter.committed(prepare(read(1, "E200", T0.plusSeconds(1)), read(1, "E201", T0.plusSeconds(1))));
+
+        assertThat(filter.suppressedTotal()).isEqualTo(1);
+    }
+}
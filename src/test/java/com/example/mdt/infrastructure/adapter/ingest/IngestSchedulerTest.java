@@ -0,0 +1,114 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestSchedulerTest {
+
+    private static IngestSchedulerProperties props() {
+        IngestSchedulerProperties props = new IngestSchedulerProperties();
+        props.setMinReplayRate(10);
+        props.setMaxReplayRate(100);
+        props.setIncreaseStep(40);
+        props.setDecreaseFactor(0.5);
+        props.setTargetLatencyMs(200);
+        return props;
+    }
+
+    private static DataSource hikari(int waiters) throws Exception {
+        HikariPoolMXBean mx = mock(HikariPoolMXBean.class);
+        when(mx.getThreadsAwaitingConnection()).thenReturn(waiters);
+        HikariDataSource hikari = mock(HikariDataSource.class);
+        when(hikari.getHikariPoolMXBean()).thenReturn(mx);
+        DataSource ds = mock(DataSource.class);
+        when(ds.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(ds.unwrap(HikariDataSource.class)).thenReturn(hikari);
+        return ds;
+    }
+
+    @Test
+    void rateGrowsAdditivelyUpToTheMaximum() {
+        IngestScheduler scheduler = new IngestScheduler(props(), mock(DataSource.class));
+        assertThat(scheduler.replayRate()).isEqualTo(10);
+
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(50);
+        scheduler.adjust();
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(100);
+    }
+
+    @Test
+    void slowLiveInsertsHalveTheRateDownToTheMinimum() {
+        IngestScheduler scheduler = new IngestScheduler(props(), mock(DataSource.class));
+        scheduler.adjust();
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(90);
+
+        scheduler.recordLiveInsert(TimeUnit.MILLISECONDS.toNanos(300));
+        scheduler.recordLiveInsert(TimeUnit.MILLISECONDS.toNanos(500));
+        scheduler.adjust();
+        assertThat(scheduler.lastLiveLatencyMs()).isEqualTo(400);
+        assertThat(scheduler.replayRate()).isEqualTo(45);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.recordLiveInsert(TimeUnit.SECONDS.toNanos(1));
+            scheduler.adjust();
+        }
+        assertThat(scheduler.replayRate()).isEqualTo(10);
+    }
+
+    @Test
+    void latencyWindowResetsOnEachAdjust() {
+        IngestScheduler scheduler = new IngestScheduler(props(), mock(DataSource.class));
+        scheduler.recordLiveInsert(TimeUnit.SECONDS.toNanos(1));
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(10);
+
+        scheduler.adjust();
+        assertThat(scheduler.lastLiveLatencyMs()).isZero();
+        assertThat(scheduler.replayRate()).isEqualTo(50);
+    }
+
+    @Test
+    void poolWaitersBlockReplayAndShrinkTheRate() throws Exception {
+        IngestScheduler scheduler = new IngestScheduler(props(), hikari(2));
+        Thread.sleep(150);
+
+        assertThat(scheduler.tryAcquireReplay(1)).isFalse();
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(10);
+    }
+
+    @Test
+    void tokenBucketLimitsTheBurstToOneSecondOfRate() throws Exception {
+        IngestScheduler scheduler = new IngestScheduler(props(), mock(DataSource.class));
+        Thread.sleep(1_100);
+
+        int granted = 0;
+        while (scheduler.tryAcquireReplay(1)) granted++;
+        assertThat(granted).isBetween(10, 11);
+    }
+
+    @Test
+    void disabledSchedulerNeverThrottles() throws Exception {
+        IngestSchedulerProperties props = props();
+        props.setEnabled(false);
+        IngestScheduler scheduler = new IngestScheduler(props, hikari(5));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(scheduler.tryAcquireReplay(1)).isTrue();
+        }
+        scheduler.acquireReplay(1_000);
+        scheduler.adjust();
+        assertThat(scheduler.replayRate()).isEqualTo(10);
+    }
+}
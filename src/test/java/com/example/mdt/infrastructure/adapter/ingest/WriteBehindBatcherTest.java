@@ -0,0 +1,105 @@
+package com.example.mdt.infrastructure.adapter.ingest;
+
+import com.example.mdt.domain.gateway.DeteccionesGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.infrastructure.adapter.metrics.IngestMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindBatcherTest {
+
+    private final DeteccionesGateway gateway = mock(DeteccionesGateway.class);
+    private WriteBehindBatcher batcher;
+
+    private WriteBehindBatcher start() {
+        WriteBehindProperties props = new WriteBehindProperties();
+        props.setEnabled(true);
+        props.setBatchRows(3);
+        props.setLingerMs(5_000);
+        batcher = new WriteBehindBatcher(props, gateway, mock(IngestScheduler.class),
+                new IngestMetrics(new SimpleMeterRegistry()));
+        batcher.start();
+        return batcher;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) batcher.stop();
+    }
+
+    private static List<Deteccion> message(String epc) {
+        return List.of(new Deteccion(1L, 2L, epc, -40, "m1", LocalDateTime.of(2024, 5, 1, 8, 0), "1.0"));
+    }
+
+    private static boolean containsBad(List<Deteccion> rows) {
+        return rows.stream().anyMatch(d -> d.epc().equals("BAD"));
+    }
+
+    @Test
+    void messagesAreWrittenTogetherAndCompletedAfterTheFlush() throws Exception {
+        when(gateway.saveAll(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+        WriteBehindBatcher batcher = start();
+
+        CompletableFuture<Integer> a = batcher.submit(message("E200"));
+        CompletableFuture<Integer> b = batcher.submit(message("E201"));
+        CompletableFuture<Integer> c = batcher.submit(message("E202"));
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(c.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        verify(gateway, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void constraintViolationIsolatesTheOffendingMessage() throws Exception {
+        when(gateway.saveAll(anyList())).thenAnswer(inv -> {
+            List<Deteccion> rows = inv.getArgument(0);
+            if (containsBad(rows)) throw new DataIntegrityViolationException("bad row");
+            return rows.size();
+        });
+        WriteBehindBatcher batcher = start();
+
+        CompletableFuture<Integer> a = batcher.submit(message("E200"));
+        CompletableFuture<Integer> bad = batcher.submit(message("BAD"));
+        CompletableFuture<Integer> c = batcher.submit(message("E202"));
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(c.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        verify(gateway, times(4)).saveAll(anyList());
+    }
+
+    @Test
+    void otherFailuresFailTheWholeBatch() {
+        when(gateway.saveAll(anyList())).thenThrow(new QueryTimeoutException("slow"));
+        WriteBehindBatcher batcher = start();
+
+        CompletableFuture<Integer> a = batcher.submit(message("E200"));
+        CompletableFuture<Integer> b = batcher.submit(message("E201"));
+        CompletableFuture<Integer> c = batcher.submit(message("E202"));
+
+        for (CompletableFuture<Integer> f : List.of(a, b, c)) {
+            assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+        }
+        verify(gateway, times(1)).saveAll(anyList());
+    }
+}
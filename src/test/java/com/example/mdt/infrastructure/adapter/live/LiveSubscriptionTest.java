@@ -0,0 +1,166 @@
+package com.example.mdt.infrastructure.adapter.live;
+
+import com.example.mdt.domain.model.Deteccion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveSubscriptionTest {
+
+    /** Evento SSE enviado; {@code name} null = comentario (keep-alive). */
+    private record Sent(String name, String id, Object data) {}
+
+    /** Guarda los eventos en lugar de escribirlos en una respuesta. */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<Sent> sent = new CopyOnWriteArrayList<>();
+        volatile boolean failSends;
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSends) throw new IOException("broken pipe");
+            StringBuilder text = new StringBuilder();
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String s) text.append(s);
+                else data = part.getData();
+            }
+            sent.add(new Sent(field(text, "event:"), field(text, "id:"), data));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        private static String field(StringBuilder text, String prefix) {
+            for (String line : text.toString().split("\n")) {
+                if (line.startsWith(prefix)) return line.substring(prefix.length());
+            }
+            return null;
+        }
+
+        List<Sent> named(String name) {
+            return sent.stream().filter(s -> name.equals(s.name())).toList();
+        }
+    }
+
+    private final LiveDetectionBuffer buffer = new LiveDetectionBuffer(props());
+    private final RecordingEmitter emitter = new RecordingEmitter();
+    private LiveSubscription subscription;
+    private Thread thread;
+
+    private static LiveStreamProperties props() {
+        LiveStreamProperties props = new LiveStreamProperties();
+        props.setBufferCapacity(16);
+        props.setBatchSize(8);
+        props.setPollIntervalMs(5);
+        props.setHeartbeatMs(60_000);
+        return props;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (subscription != null) subscription.close();
+        if (thread != null) thread.join(2_000);
+    }
+
+    private void publish(int from, int to) {
+        for (int i = from; i < to; i++) {
+            buffer.publish(new Deteccion(1L, i % 2 == 0 ? 10L : 20L, "E" + i, -50, "M1", LocalDateTime.now(), "1"));
+        }
+    }
+
+    private void start(long startSeq, Predicate<Deteccion> filter) {
+        assertThat(buffer.addSubscriber(10)).isTrue();
+        subscription = new LiveSubscription(buffer, emitter, filter, startSeq, props());
+        thread = new Thread(subscription, "live-sse-test");
+        thread.start();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> epcs() {
+        return emitter.named("detecciones").stream()
+                .flatMap(s -> ((List<Deteccion>) s.data()).stream())
+                .map(Deteccion::epc)
+                .toList();
+    }
+
+    @Test
+    void resumesAfterLastEventIdInBatches() throws Exception {
+        publish(0, 12);
+
+        start(2, d -> true);
+        await(() -> epcs().size() == 10);
+
+        assertThat(epcs()).containsExactly("E2", "E3", "E4", "E5", "E6", "E7", "E8", "E9", "E10", "E11");
+        assertThat(emitter.named("detecciones")).extracting(Sent::id).containsExactly("9", "11");
+        assertThat(emitter.named("skipped")).isEmpty();
+    }
+
+    @Test
+    void newPublicationsReachAWaitingSubscriber() throws Exception {
+        start(buffer.head(), d -> true);
+        Thread.sleep(20);
+
+        publish(0, 3);
+        await(() -> epcs().size() == 3);
+
+        assertThat(epcs()).containsExactly("E0", "E1", "E2");
+    }
+
+    @Test
+    void overrunSubscriberSkipsToOldestAvailableAndReportsIt() throws Exception {
+        publish(0, 40);
+
+        start(0, d -> true);
+        await(() -> epcs().size() == 16);
+
+        assertThat(emitter.named("skipped")).extracting(Sent::data).containsExactly(24L);
+        assertThat(buffer.skippedTotal()).isEqualTo(24);
+        assertThat(epcs().get(0)).isEqualTo("E24");
+        assertThat(epcs().get(15)).isEqualTo("E39");
+    }
+
+    @Test
+    void filterAdvancesTheCursorWithoutSendingRejectedDetections() throws Exception {
+        publish(0, 6);
+
+        start(0, d -> d.ubicacionId() == 20L);
+        await(() -> epcs().size() == 3);
+
+        assertThat(epcs()).containsExactly("E1", "E3", "E5");
+        assertThat(emitter.named("detecciones")).extracting(Sent::id).containsExactly("5");
+    }
+
+    @Test
+    void failedSendReleasesTheSubscriberSlot() throws Exception {
+        emitter.failSends = true;
+        publish(0, 3);
+
+        start(0, d -> true);
+        thread.join(2_000);
+
+        assertThat(thread.isAlive()).isFalse();
+        assertThat(buffer.subscribers()).isZero();
+        assertThat(emitter.completed).isTrue();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.mdt.infrastructure.adapter.location;
+
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import com.example.mdt.infrastructure.adapter.codec.EpcCodec;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LastSeenIndexTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final DbHealthService dbHealth = mock(DbHealthService.class);
+
+    private LastSeenIndex index(long windowMs, long retentionMs, int maxEntries) {
+        LastSeenProperties props = new LastSeenProperties();
+        props.setOccupancyWindowMs(windowMs);
+        props.setRetentionMs(retentionMs);
+        props.setMaxEntries(maxEntries);
+        return new LastSeenIndex(props, jdbc, dbHealth);
+    }
+
+    private LastSeenIndex index() {
+        return index(300_000, 86_400_000, 1_000);
+    }
+
+    private static Deteccion read(String epc, long lectorId, Long ubicacionId, LocalDateTime at) {
+        return new Deteccion(lectorId, ubicacionId, epc, -50, "M1", at, "1");
+    }
+
+    private static void commit(LastSeenIndex index, Deteccion... reads) {
+        index.committed(new PreparedScan(List.of(), List.of(reads)));
+    }
+
+    @Test
+    void committedReadsAreIndexedByUppercaseEpc() {
+        LastSeenIndex index = index();
+        LocalDateTime now = LocalDateTime.now();
+
+        commit(index, read("e2001a", 1L, 10L, now), read("E2001B", 1L, 10L, now));
+
+        assertThat(index.find("E2001A")).hasValueSatisfying(ls -> {
+            assertThat(ls.lectorId()).isEqualTo(1L);
+            assertThat(ls.ubicacionId()).isEqualTo(10L);
+            assertThat(ls.rssi()).isEqualTo(-50);
+        });
+        assertThat(index.find("e2001b")).isPresent();
+        assertThat(index.occupancy(10L)).isEqualTo(2);
+        assertThat(index.tracked()).isEqualTo(2);
+    }
+
+    @Test
+    void epcMovesBetweenLocations() {
+        LastSeenIndex index = index();
+        LocalDateTime now = LocalDateTime.now();
+
+        commit(index, read("E1", 1L, 10L, now.minusSeconds(5)));
+        commit(index, read("E1", 2L, 20L, now));
+
+        assertThat(index.find("E1")).hasValueSatisfying(ls -> assertThat(ls.ubicacionId()).isEqualTo(20L));
+        assertThat(index.occupancy()).isEqualTo(Map.of(20L, 1L));
+    }
+
+    @Test
+    void olderReadDoesNotMoveTheEpc() {
+        LastSeenIndex index = index();
+        LocalDateTime now = LocalDateTime.now();
+
+        commit(index, read("E1", 2L, 20L, now));
+        commit(index, read("E1", 1L, 10L, now.minusSeconds(30)));
+
+        assertThat(index.find("E1")).hasValueSatisfying(ls -> assertThat(ls.ubicacionId()).isEqualTo(20L));
+        assertThat(index.occupancy(10L)).isZero();
+        assertThat(index.occupancy(20L)).isEqualTo(1);
+    }
+
+    @Test
+    void sweepExpiresOccupancyThenDropsTheEpc() throws InterruptedException {
+        LastSeenIndex index = index(100, 250, 1_000);
+        commit(index, read("E1", 1L, 10L, LocalDateTime.now()));
+        assertThat(index.occupancy(10L)).isEqualTo(1);
+
+        Thread.sleep(150);
+        index.sweep();
+        assertThat(index.occupancy(10L)).isZero();
+        assertThat(index.tracked()).isEqualTo(1);
+
+        Thread.sleep(150);
+        index.sweep();
+        assertThat(index.tracked()).isZero();
+        assertThat(index.occupancy(10L)).isZero();
+    }
+
+    @Test
+    void readOutsideTheWindowIsTrackedButNotCounted() {
+        LastSeenIndex index = index(1_000, 86_400_000, 1_000);
+
+        commit(index, read("E1", 1L, 10L, LocalDateTime.now().minusMinutes(5)));
+
+        assertThat(index.find("E1")).isPresent();
+        assertThat(index.occupancy(10L)).isZero();
+    }
+
+    @Test
+    void newEpcsBeyondMaxEntriesAreNotTracked() {
+        LastSeenIndex index = index(300_000, 86_400_000, 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        commit(index, read("E1", 1L, 10L, now), read("E2", 1L, 10L, now));
+        commit(index, read("E1", 2L, 20L, now.plusSeconds(1)));
+
+        assertThat(index.tracked()).isEqualTo(1);
+        assertThat(index.find("E2")).isEmpty();
+        assertThat(index.find("E1")).hasValueSatisfying(ls -> assertThat(ls.ubicacionId()).isEqualTo(20L));
+    }
+
+    @Test
+    void rebuildDecodesCompactEpcsAndRetriesOnSweepAfterFailure() throws Exception {
+        LastSeenIndex index = index();
+        when(dbHealth.isAvailable()).thenReturn(true);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("epc")).thenReturn(null);
+        when(rs.getBytes("epc_bin")).thenReturn(EpcCodec.encode("E2801160"));
+        when(rs.getTimestamp("created_at")).thenReturn(new Timestamp(System.currentTimeMillis()));
+        when(rs.getLong("ubicacion_id")).thenReturn(10L);
+        when(rs.getLong("lector_id")).thenReturn(3L);
+        when(rs.getInt("rssi")).thenReturn(-60);
+        doThrow(new IllegalStateException("connection refused"))
+                .doAnswer(inv -> {
+                    ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+                    return null;
+                })
+                .when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        index.rebuildAtStartup();
+        assertThat(index.tracked()).isZero();
+
+        index.sweep();
+        assertThat(index.find("E2801160")).hasValueSatisfying(ls -> {
+            assertThat(ls.lectorId()).isEqualTo(3L);
+            assertThat(ls.rssi()).isEqualTo(-60);
+        });
+        assertThat(index.occupancy(10L)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingMetadataGatewayTest {
+
+    private final MetadataGatewayJpaAdapter delegate = mock(MetadataGatewayJpaAdapter.class);
+
+    private CachingMetadataGateway cache(long negativeTtlMs) {
+        when(delegate.loadLectorIds()).thenReturn(Map.of("LEC-1", 1L));
+        when(delegate.loadUbicacionIds()).thenReturn(Set.of(10L));
+        when(delegate.findLectorIdByCodigo("LEC-X")).thenReturn(Optional.empty());
+        when(delegate.existsUbicacionId(99L)).thenReturn(false);
+        CachingMetadataGateway cache = new CachingMetadataGateway(delegate, mock(DbHealthService.class), negativeTtlMs);
+        cache.reload();
+        return cache;
+    }
+
+    @Test
+    void snapshotHitsDoNotQueryTheDatabase() {
+        CachingMetadataGateway cache = cache(30_000);
+
+        assertThat(cache.findLectorIdByCodigo("LEC-1")).contains(1L);
+        assertThat(cache.existsUbicacionId(10L)).isTrue();
+        verify(delegate, never()).findLectorIdByCodigo("LEC-1");
+        verify(delegate, never()).existsUbicacionId(10L);
+    }
+
+    @Test
+    void unknownValuesAreQueriedOncePerNegativeTtl() {
+        CachingMetadataGateway cache = cache(30_000);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.findLectorIdByCodigo("LEC-X")).isEmpty();
+            assertThat(cache.existsUbicacionId(99L)).isFalse();
+        }
+
+        verify(delegate, times(1)).findLectorIdByCodigo("LEC-X");
+        verify(delegate, times(1)).existsUbicacionId(99L);
+    }
+
+    @Test
+    void negativeEntryExpires() throws InterruptedException {
+        CachingMetadataGateway cache = cache(20);
+        cache.findLectorIdByCodigo("LEC-X");
+
+        Thread.sleep(50);
+        cache.findLectorIdByCodigo("LEC-X");
+
+        verify(delegate, times(2)).findLectorIdByCodigo("LEC-X");
+    }
+
+    @Test
+    void reloadForgetsNegativeEntries() {
+        CachingMetadataGateway cache = cache(30_000);
+        cache.findLectorIdByCodigo("LEC-X");
+
+        cache.reload();
+        cache.findLectorIdByCodigo("LEC-X");
+
+        verify(delegate, times(2)).findLectorIdByCodigo("LEC-X");
+    }
+
+    @Test
+    void valueFoundOnMissJoinsTheSnapshot() {
+        CachingMetadataGateway cache = cache(30_000);
+        when(delegate.findLectorIdByCodigo("LEC-2")).thenReturn(Optional.of(2L));
+
+        assertThat(cache.findLectorIdByCodigo("LEC-2")).contains(2L);
+        assertThat(cache.findLectorIdByCodigo("LEC-2")).contains(2L);
+
+        verify(delegate, times(1)).findLectorIdByCodigo("LEC-2");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.model.Deteccion;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CompactColumnEncoderTest {
+
+    private static final String EPC = "E2801160600002054C4B1A2F";
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    private CompactColumnEncoder encoder(boolean enabled) {
+        CompactSchemaProperties props = new CompactSchemaProperties();
+        props.setEnabled(enabled);
+        return new CompactColumnEncoder(props, jdbc);
+    }
+
+    private static Deteccion read(String machine, String version) {
+        return new Deteccion(1L, 2L, EPC, -40, machine, LocalDateTime.of(2024, 5, 1, 8, 0), version);
+    }
+
+    @Test
+    void encodeNeverGoesToTheDatabase() {
+        CompactColumnEncoder encoder = encoder(true);
+
+        CompactColumnEncoder.Columns c = encoder.encode(read("M-1", "1.0"));
+
+        assertThat(c.epc()).isNull();
+        assertThat(c.epcBin()).hasSize(12);
+        assertThat(c.machine()).isEqualTo("M-1");
+        assertThat(c.machineId()).isNull();
+        assertThat(c.version()).isEqualTo("1.0");
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void resolvedValuesAreEncodedAsIds() {
+        when(jdbc.queryForList(anyString(), eq(Integer.class), eq("M-1"))).thenReturn(List.of(7));
+        when(jdbc.queryForList(anyString(), eq(Integer.class), eq("1.0"))).thenReturn(List.of(3));
+        CompactColumnEncoder encoder = encoder(true);
+
+        encoder.resolve(List.of(read("M-1", "1.0"), read("M-1", "1.0")));
+        CompactColumnEncoder.Columns c = encoder.encode(read("M-1", "1.0"));
+
+        assertThat(c.machine()).isNull();
+        assertThat(c.machineId()).isEqualTo(7);
+        assertThat(c.version()).isNull();
+        assertThat(c.versionId()).isEqualTo(3);
+        verify(jdbc, times(1)).update(anyString(), eq("M-1"));
+    }
+
+    @Test
+    void failedResolutionKeepsTheText() {
+        when(jdbc.update(anyString(), any(Object[].class))).thenThrow(new DataAccessResourceFailureException("down"));
+        CompactColumnEncoder encoder = encoder(true);
+
+        encoder.resolve("M-1", "1.0");
+        CompactColumnEncoder.Columns c = encoder.encode(read("M-1", "1.0"));
+
+        assertThat(c.machine()).isEqualTo("M-1");
+        assertThat(c.machineId()).isNull();
+    }
+
+    @Test
+    void disabledWritesTextOnly() {
+        CompactColumnEncoder encoder = encoder(false);
+
+        encoder.resolve(List.of(read("M-1", "1.0")));
+        CompactColumnEncoder.Columns c = encoder.encode(read("M-1", "1.0"));
+
+        assertThat(c.epc()).isEqualTo(EPC);
+        assertThat(c.epcBin()).isNull();
+        assertThat(c.machine()).isEqualTo("M-1");
+        verifyNoInteractions(jdbc);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.model.Deteccion;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeteccionesGatewayJdbcAdapterTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus status = mock(TransactionStatus.class);
+
+    private DeteccionesGatewayJdbcAdapter adapter() {
+        when(txManager.getTransaction(any())).thenReturn(status);
+        CompactColumnEncoder columns = new CompactColumnEncoder(new CompactSchemaProperties(), jdbc);
+        return new DeteccionesGatewayJdbcAdapter(jdbc, txManager, columns, 10, 3);
+    }
+
+    private static List<Deteccion> reads(int n) {
+        List<Deteccion> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(new Deteccion(1L, 2L, "E20" + i, -40, "M1", LocalDateTime.of(2024, 5, 1, 8, 0), "1.0"));
+        }
+        return out;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shortLoadIsRolledBackAndRetriedWithInsert() {
+        DeteccionesGatewayJdbcAdapter adapter = adapter();
+        when(jdbc.execute(any(ConnectionCallback.class))).thenReturn(4);
+        when(jdbc.update(anyString(), any(PreparedStatementSetter.class))).thenReturn(5);
+
+        int written = adapter.saveAll(reads(5));
+
+        assertThat(written).isEqualTo(5);
+        verify(txManager).rollback(status);
+        verify(txManager).commit(status);
+        verify(jdbc, times(1)).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fullLoadIsCommittedWithoutInsert() {
+        DeteccionesGatewayJdbcAdapter adapter = adapter();
+        when(jdbc.execute(any(ConnectionCallback.class))).thenReturn(5);
+
+        int written = adapter.saveAll(reads(5));
+
+        assertThat(written).isEqualTo(5);
+        verify(txManager).commit(status);
+        verify(jdbc, times(0)).update(anyString(), any(PreparedStatementSetter.class));
+    }
+}
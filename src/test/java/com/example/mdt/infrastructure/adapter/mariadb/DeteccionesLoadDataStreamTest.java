@@ -0,0 +1,77 @@
+package com.example.mdt.infrastructure.adapter.mariadb;
+
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.TagTipo;
+import com.example.mdt.infrastructure.adapter.codec.EpcCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeteccionesLoadDataStreamTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 500_000_000);
+
+    private static String read(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void fieldsAreTabSeparatedWithNullsAsBackslashN() throws IOException {
+        Deteccion d = new Deteccion(1L, null, "E280", -40, "M1", LocalDateTime.of(2024, 5, 1, 11, 59, 58), "v1",
+                9L, TagTipo.EMPLEADO, 3L);
+        CompactColumnEncoder.Columns c = new CompactColumnEncoder.Columns(null, EpcCodec.encode("E280"),
+                "M1", null, null, 2);
+
+        String out = read(new DeteccionesLoadDataStream(List.of(d), List.of(c), NOW));
+
+        assertThat(out).isEqualTo(String.join("\t",
+                "1", "\\N", "\\N", "E280", "-40", "M1", "\\N", "\\N", "2", "9", "EMPLEADO", "3",
+                "2024-05-01 11:59:58", "2024-05-01 12:00:00") + "\n");
+    }
+
+    @Test
+    void specialCharactersAreEscaped() throws IOException {
+        Deteccion d = new Deteccion(1L, 2L, "A\tB", null, "x\\y\nz\r\0", null, null);
+        CompactColumnEncoder.Columns c = new CompactColumnEncoder.Columns("A\tB", null, "x\\y\nz\r\0", null, null, null);
+
+        String out = read(new DeteccionesLoadDataStream(List.of(d), List.of(c), NOW));
+        String[] fields = out.substring(0, out.length() - 1).split("\t", -1);
+
+        assertThat(out).endsWith("\n").doesNotContain("\r").doesNotContain("\0");
+        assertThat(out.chars().filter(ch -> ch == '\n').count()).isEqualTo(1);
+        assertThat(fields).hasSize(14);
+        assertThat(fields[2]).isEqualTo("A\\tB");
+        assertThat(fields[5]).isEqualTo("x\\\\y\\nz\\r\\0");
+        assertThat(fields[12]).as("created_at falls back to now").isEqualTo("2024-05-01 12:00:00");
+    }
+
+    @Test
+    void rowsAreStreamedOnePerLineThroughSmallReads() throws IOException {
+        Deteccion a = new Deteccion(1L, 1L, "AAAA", 1, null, NOW, null);
+        Deteccion b = new Deteccion(2L, 2L, "BBBB", 2, null, NOW, null);
+        CompactColumnEncoder.Columns ca = new CompactColumnEncoder.Columns("AAAA", null, null, null, null, null);
+        CompactColumnEncoder.Columns cb = new CompactColumnEncoder.Columns("BBBB", null, null, null, null, null);
+        DeteccionesLoadDataStream in = new DeteccionesLoadDataStream(List.of(a, b), List.of(ca, cb), NOW);
+
+        StringBuilder out = new StringBuilder();
+        byte[] buf = new byte[3];
+        for (int n; (n = in.read(buf, 0, buf.length)) > 0; ) {
+            out.append(new String(buf, 0, n, StandardCharsets.US_ASCII));
+        }
+
+        assertThat(out.toString().split("\n")).hasSize(2);
+        assertThat(out.toString()).startsWith("1\t1\tAAAA\t").contains("\n2\t2\tBBBB\t");
+        assertThat(in.read()).isEqualTo(-1);
+    }
+
+    @Test
+    void emptyBatchIsEmptyStream() throws IOException {
+        assertThat(new DeteccionesLoadDataStream(List.of(), List.of(), NOW).read()).isEqualTo(-1);
+    }
+}
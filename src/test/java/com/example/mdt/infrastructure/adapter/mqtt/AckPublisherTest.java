@@ -0,0 +1,131 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import com.example.mdt.infrastructure.adapter.metrics.IngestMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AckPublisherTest {
+
+    /** Mensaje publicado: topic, JSON y correlation data. */
+    private record Sent(String topic, String json, byte[] correlationData) {}
+
+    private final MqttConnection connection = mock(MqttConnection.class);
+    private final List<Sent> sent = new CopyOnWriteArrayList<>();
+
+    private AckPublisher publisher(int capacity) throws Exception {
+        when(connection.publish(anyString(), any(MqttMessage.class))).thenAnswer(inv -> {
+            MqttMessage msg = inv.getArgument(1);
+            byte[] cd = msg.getProperties() != null ? msg.getProperties().getCorrelationData() : null;
+            sent.add(new Sent(inv.getArgument(0), new String(msg.getPayload(), StandardCharsets.UTF_8), cd));
+            return null;
+        });
+        return new AckPublisher(1, capacity, new ObjectMapper(), new IngestMetrics(new SimpleMeterRegistry()));
+    }
+
+    private AckPublisher.Reply ack(String topic, int inserted) {
+        return new AckPublisher.Reply(connection, topic, null, true, true, inserted, null);
+    }
+
+    private AckPublisher.Reply nack(String topic, String reason) {
+        return new AckPublisher.Reply(connection, topic, null, true, false, 0, reason);
+    }
+
+    /**
+     * Encola todo antes de arrancar para que salga en una sola tanda y espera
+     * {@code expected} publicaciones antes de parar el hilo.
+     */
+    private void publishAll(AckPublisher publisher, int expected, AckPublisher.Reply... replies)
+            throws InterruptedException {
+        for (AckPublisher.Reply r : replies) {
+            assertThat(publisher.submit(r)).isTrue();
+        }
+        publisher.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sent.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        publisher.stop();
+    }
+
+    @Test
+    void consecutiveAcksToOneTopicAreCoalesced() throws Exception {
+        AckPublisher publisher = publisher(16);
+
+        publishAll(publisher, 2, ack("dev/A/ack", 2), ack("dev/B/ack", 1), ack("dev/A/ack", 3), ack("dev/A/ack", 0));
+
+        assertThat(sent).extracting(Sent::topic, Sent::json).containsExactly(
+                tuple("dev/A/ack", "{\"ok\":true,\"inserted\":5,\"count\":3}"),
+                tuple("dev/B/ack", "{\"ok\":true,\"inserted\":1}"));
+    }
+
+    @Test
+    void nackFlushesTheOpenGroupOfItsTopicFirst() throws Exception {
+        AckPublisher publisher = publisher(16);
+
+        publishAll(publisher, 3, ack("dev/A/ack", 2), ack("dev/A/ack", 2), nack("dev/A/ack", "invalid"),
+                ack("dev/A/ack", 1));
+
+        assertThat(sent).extracting(Sent::json).containsExactly(
+                "{\"ok\":true,\"inserted\":4,\"count\":2}",
+                "{\"ok\":false,\"reason\":\"invalid\"}",
+                "{\"ok\":true,\"inserted\":1}");
+    }
+
+    @Test
+    void repliesWithCorrelationDataOrSharedTopicAreNeverCoalesced() throws Exception {
+        AckPublisher publisher = publisher(16);
+        byte[] cd = {7};
+
+        publishAll(publisher, 4,
+                new AckPublisher.Reply(connection, "replies", cd, true, true, 1, null),
+                new AckPublisher.Reply(connection, "replies", cd, true, true, 1, null),
+                new AckPublisher.Reply(connection, "shared/ack", null, false, true, 1, null),
+                new AckPublisher.Reply(connection, "shared/ack", null, false, true, 1, null));
+
+        assertThat(sent).hasSize(4);
+        assertThat(sent.get(0).correlationData()).containsExactly(7);
+        assertThat(sent).extracting(Sent::json).containsOnly("{\"ok\":true,\"inserted\":1}");
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() throws Exception {
+        AckPublisher publisher = publisher(2);
+
+        assertThat(publisher.submit(ack("dev/A/ack", 1))).isTrue();
+        assertThat(publisher.submit(ack("dev/A/ack", 1))).isTrue();
+        assertThat(publisher.submit(ack("dev/A/ack", 1))).isFalse();
+        assertThat(publisher.queueDepth()).isEqualTo(2);
+    }
+
+    @Test
+    void fullInflightWindowIsRetried() throws Exception {
+        AckPublisher publisher = publisher(16);
+        MqttException inflight = new MqttException(MqttClientException.REASON_CODE_MAX_INFLIGHT);
+        when(connection.publish(anyString(), any(MqttMessage.class)))
+                .thenThrow(inflight)
+                .thenThrow(inflight)
+                .thenAnswer(inv -> {
+                    sent.add(new Sent(inv.getArgument(0), "", null));
+                    return null;
+                });
+
+        publishAll(publisher, 1, ack("dev/A/ack", 1));
+
+        assertThat(sent).extracting(Sent::topic).containsExactly("dev/A/ack");
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundAckTrackerTest {
+
+    private final List<Integer> acked = new ArrayList<>();
+    private final InboundAckTracker tracker = new InboundAckTracker(true, (id, qos) -> acked.add(id));
+
+    @Test
+    void acksAreSentInArrivalOrder() {
+        InboundAckTracker.Ticket first = tracker.register(1, 1);
+        InboundAckTracker.Ticket second = tracker.register(2, 1);
+        InboundAckTracker.Ticket third = tracker.register(3, 1);
+
+        third.complete();
+        second.complete();
+        assertThat(acked).isEmpty();
+        assertThat(tracker.unacked()).isEqualTo(3);
+
+        first.complete();
+        assertThat(acked).containsExactly(1, 2, 3);
+        assertThat(tracker.unacked()).isZero();
+    }
+
+    @Test
+    void completingTwiceAcksOnce() {
+        InboundAckTracker.Ticket t = tracker.register(7, 1);
+
+        t.complete();
+        t.complete();
+
+        assertThat(acked).containsExactly(7);
+    }
+
+    @Test
+    void qos0AndDisabledTrackerAreNoOps() {
+        tracker.register(1, 0).complete();
+        assertThat(tracker.unacked()).isZero();
+
+        List<Integer> none = new ArrayList<>();
+        InboundAckTracker disabled = new InboundAckTracker(false, (id, qos) -> none.add(id));
+        disabled.register(1, 1).complete();
+        assertThat(none).isEmpty();
+        assertThat(disabled.unacked()).isZero();
+    }
+
+    @Test
+    void resetDropsTicketsOfThePreviousConnection() {
+        InboundAckTracker.Ticket old = tracker.register(1, 1);
+        tracker.reset();
+        InboundAckTracker.Ticket fresh = tracker.register(1, 1);
+
+        old.complete();
+        assertThat(acked).isEmpty();
+
+        fresh.complete();
+        assertThat(acked).containsExactly(1);
+    }
+
+    @Test
+    void ackFailureDoesNotBlockLaterAcks() {
+        List<Integer> seen = new ArrayList<>();
+        InboundAckTracker failing = new InboundAckTracker(true, (id, qos) -> {
+            seen.add(id);
+            if (id == 1) throw new IllegalStateException("broker gone");
+        });
+        InboundAckTracker.Ticket first = failing.register(1, 1);
+        InboundAckTracker.Ticket second = failing.register(2, 1);
+
+        second.complete();
+        first.complete();
+
+        assertThat(seen).containsExactly(1, 2);
+        assertThat(failing.unacked()).isZero();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mdt.infrastructure.adapter.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MqttListenerServiceTest {
+
+    private static MqttProps props(long sessionExpirySeconds) {
+        MqttProps props = new MqttProps();
+        props.setClientId("mdt-scan-consumer");
+        props.setSessionExpirySeconds(sessionExpirySeconds);
+        return props;
+    }
+
+    @Test
+    void persistentSessionGetsAStableClientIdPerConnection() {
+        MqttProps props = props(3600);
+
+        String first = MqttListenerService.buildClientId(props, 0);
+
+        assertThat(first).startsWith("mdt-scan-consumer-").endsWith("-0");
+        assertThat(MqttListenerService.buildClientId(props, 0)).as("same id after a restart").isEqualTo(first);
+        assertThat(MqttListenerService.buildClientId(props, 1)).isNotEqualTo(first).endsWith("-1");
+    }
+
+    @Test
+    void sessionThatDiesWithTheConnectionGetsAUniqueClientId() {
+        MqttProps props = props(0);
+
+        assertThat(MqttListenerService.buildClientId(props, 0))
+                .startsWith("mdt-scan-consumer-")
+                .isNotEqualTo(MqttListenerService.buildClientId(props, 0));
+    }
+
+    @Test
+    void blankBaseFallsBackToDefault() {
+        MqttProps props = props(60);
+        props.setClientId(" ");
+
+        assertThat(MqttListenerService.buildClientId(props, 2)).startsWith("mdt-client-").endsWith("-2");
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PresenceJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static PresenceJournal.Entry read(String epc, long at) {
+        return new PresenceJournal.Entry(PresenceJournal.READ, 1L, epc, 10L, at, at, 1, -50, true);
+    }
+
+    private static PresenceJournal.Entry session(String epc, long first, long last) {
+        return new PresenceJournal.Entry(PresenceJournal.SESSION, 1L, epc, null, first, last, 3, null, false);
+    }
+
+    private List<PresenceJournal.Entry> recover() throws IOException {
+        List<PresenceJournal.Entry> out = new ArrayList<>();
+        new PresenceJournal(dir, false).recover(out::add);
+        return out;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> st = Files.list(dir)) {
+            return st.filter(p -> p.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    @Test
+    void entriesRoundTripInOrder() throws IOException {
+        PresenceJournal journal = new PresenceJournal(dir, false);
+        journal.recover(e -> {});
+        journal.append(List.of(read("E200", 1000), read("E201", 2000)));
+        journal.close();
+
+        assertThat(recover()).containsExactly(read("E200", 1000), read("E201", 2000));
+        assertThat(PresenceJournal.hasState(dir)).isTrue();
+    }
+
+    @Test
+    void snapshotReplacesOlderSegments() throws IOException {
+        PresenceJournal journal = new PresenceJournal(dir, false);
+        journal.recover(e -> {});
+        journal.append(List.of(read("E200", 1000)));
+        long segment = journal.roll();
+        journal.writeSnapshot(segment, List.of(session("E200", 1000, 1000)));
+        journal.append(List.of(read("E200", 1500)));
+        journal.close();
+
+        assertThat(recover()).containsExactly(session("E200", 1000, 1000), read("E200", 1500));
+        assertThat(files(".snap")).hasSize(1);
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        PresenceJournal journal = new PresenceJournal(dir, false);
+        journal.recover(e -> {});
+        journal.append(List.of(read("E200", 1000), read("E201", 2000)));
+        journal.close();
+        Path segment = files(".wal").get(0);
+        try (RandomAccessFile f = new RandomAccessFile(segment.toFile(), "rw")) {
+            f.setLength(f.length() - 3);
+        }
+
+        assertThat(recover()).containsExactly(read("E200", 1000));
+    }
+}
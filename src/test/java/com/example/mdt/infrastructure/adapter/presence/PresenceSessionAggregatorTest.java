@@ -0,0 +1,166 @@
+package com.example.mdt.infrastructure.adapter.presence;
+
+import com.example.mdt.domain.gateway.PresenciasGateway;
+import com.example.mdt.domain.model.Deteccion;
+import com.example.mdt.domain.model.PreparedScan;
+import com.example.mdt.domain.model.Presencia;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogProperties;
+import com.example.mdt.infrastructure.adapter.backlog.BacklogStore;
+import com.example.mdt.infrastructure.adapter.db.DbHealthService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceSessionAggregatorTest {
+
+    @TempDir
+    Path dir;
+
+    private final PresenciasGateway gateway = mock(PresenciasGateway.class);
+    private final DbHealthService dbHealth = mock(DbHealthService.class);
+    private BacklogStore backlog;
+
+    @BeforeEach
+    void setUp() {
+        BacklogProperties backlogProps = new BacklogProperties();
+        backlogProps.setDir(dir.resolve("backlog").toString());
+        backlog = new BacklogStore(backlogProps);
+    }
+
+    private PresenceProperties props(boolean rawDetections) {
+        PresenceProperties props = new PresenceProperties();
+        props.setEnabled(true);
+        props.setRawDetections(rawDetections);
+        props.setIdleGapMs(30_000);
+        props.setJournalDir(dir.resolve("presence").toString());
+        return props;
+    }
+
+    private PresenceSessionAggregator aggregator(PresenceProperties props) {
+        return new PresenceSessionAggregator(props, gateway, dbHealth, backlog);
+    }
+
+    private static Deteccion read(String epc, LocalDateTime at, int rssi) {
+        return new Deteccion(1L, 10L, epc, rssi, "m1", at, "1.0");
+    }
+
+    /** Un mensaje que hizo commit, filtrado como lo haría prepare. */
+    private static void commit(PresenceSessionAggregator aggregator, Deteccion... reads) {
+        List<Deteccion> rows = new ArrayList<>();
+        for (Deteccion d : reads) {
+            if (aggregator.accept(d)) rows.add(d);
+        }
+        aggregator.committed(new PreparedScan(rows, List.of(reads)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Presencia> written() {
+        ArgumentCaptor<List<Presencia>> captor = ArgumentCaptor.forClass(List.class);
+        verify(gateway).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void readsOfAMessageExtendOneSessionWrittenWhenIdle() {
+        when(dbHealth.isAvailable()).thenReturn(true);
+        PresenceSessionAggregator aggregator = aggregator(props(true));
+        LocalDateTime t0 = LocalDateTime.now().minusMinutes(5).truncatedTo(ChronoUnit.MILLIS);
+
+        commit(aggregator, read("E200", t0, -60), read("E200", t0.plusSeconds(2), -45));
+        aggregator.sweep();
+
+        assertThat(written()).singleElement().satisfies(p -> {
+            assertThat(p.firstSeen()).isEqualTo(t0);
+            assertThat(p.lastSeen()).isEqualTo(t0.plusSeconds(2));
+            assertThat(p.readCount()).isEqualTo(2);
+            assertThat(p.maxRssi()).isEqualTo(-45);
+        });
+        assertThat(aggregator.openSessions()).isZero();
+    }
+
+    @Test
+    void acceptAloneDoesNotOpenSessions() {
+        PresenceSessionAggregator aggregator = aggregator(props(false));
+
+        assertThat(aggregator.accept(read("E200", LocalDateTime.now(), -50))).as("no raw row").isFalse();
+        assertThat(aggregator.openSessions()).isZero();
+    }
+
+    @Test
+    void openSessionsSurviveACleanRestart() {
+        PresenceSessionAggregator first = aggregator(props(false));
+        commit(first, read("E200", LocalDateTime.now(), -50), read("E201", LocalDateTime.now(), -50));
+        first.close();
+
+        PresenceSessionAggregator second = aggregator(props(false));
+
+        assertThat(second.openSessions()).isEqualTo(2);
+        verify(gateway, never()).saveAll(any());
+    }
+
+    @Test
+    void journaledReadsSurviveACrash() {
+        PresenceSessionAggregator crashed = aggregator(props(false));
+        commit(crashed, read("E200", LocalDateTime.now(), -50));
+
+        PresenceSessionAggregator recovered = aggregator(props(false));
+
+        assertThat(recovered.openSessions()).isEqualTo(1);
+    }
+
+    @Test
+    void closedSessionNotYetWrittenIsWrittenAfterRestart() {
+        PresenceSessionAggregator crashed = aggregator(props(false));
+        commit(crashed, read("E200", LocalDateTime.now().minusMinutes(5), -50));
+        crashed.sweep();
+
+        when(dbHealth.isAvailable()).thenReturn(true);
+        PresenceSessionAggregator recovered = aggregator(props(false));
+        recovered.sweep();
+
+        assertThat(written()).singleElement().satisfies(p -> assertThat(p.epc()).isEqualTo("E200"));
+    }
+
+    @Test
+    void writtenSessionsAreNotRecovered() {
+        when(dbHealth.isAvailable()).thenReturn(true);
+        PresenceSessionAggregator crashed = aggregator(props(false));
+        commit(crashed, read("E200", LocalDateTime.now().minusMinutes(5), -50));
+        crashed.sweep();
+
+        PresenceSessionAggregator recovered = aggregator(props(false));
+        recovered.sweep();
+
+        verify(gateway, times(1)).saveAll(any());
+        assertThat(recovered.openSessions()).isZero();
+    }
+
+    @Test
+    void pendingWritesOverTheLimitGoToTheBacklog() {
+        PresenceProperties props = props(false);
+        props.setMaxPendingWrites(0);
+        PresenceSessionAggregator aggregator = aggregator(props);
+        commit(aggregator, read("E200", LocalDateTime.now().minusMinutes(5), -50));
+
+        aggregator.sweep();
+
+        verify(gateway, never()).saveAll(any());
+        assertThat(backlog.readBatch(10)).singleElement()
+                .satisfies(rec -> assertThat(rec.reason()).isEqualTo(PresenceBacklogHandler.REASON));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mdt.infrastructure.adapter.tags;
+
+import com.example.mdt.domain.model.TagInfo;
+import com.example.mdt.domain.model.TagTipo;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagTableTest {
+
+    private static TagInfo tag(long id) {
+        return new TagInfo(id, TagTipo.EMPLEADO, 100 + id, true);
+    }
+
+    @Test
+    void packKeepsLengthSoLeadingZerosDoNotCollide() {
+        assertThat(TagTable.packHi("0A")).isNotZero();
+        assertThat(TagTable.packHi("0A")).isNotEqualTo(TagTable.packHi("000A"));
+        assertThat(TagTable.packLo("0A")).isEqualTo(TagTable.packLo("000A"));
+    }
+
+    @Test
+    void packIsCaseInsensitiveAndRejectsNonHexOrTooLong() {
+        String epc = "E2801160600002054C4B1A2F";
+        assertThat(TagTable.packHi(epc.toLowerCase())).isEqualTo(TagTable.packHi(epc));
+        assertThat(TagTable.packLo(epc.toLowerCase())).isEqualTo(TagTable.packLo(epc));
+
+        assertThat(TagTable.packHi(null)).isZero();
+        assertThat(TagTable.packHi("")).isZero();
+        assertThat(TagTable.packHi("E280-1160")).isZero();
+        assertThat(TagTable.packHi("A".repeat(TagTable.MAX_PACKED_HEX + 1))).isZero();
+        assertThat(TagTable.packHi("A".repeat(TagTable.MAX_PACKED_HEX))).isNotZero();
+    }
+
+    @Test
+    void lookupReturnsStoredFields() {
+        TagTable table = TagTable.forTags(16);
+        table.put("E2801160600002054C4B1A2F", new TagInfo(5, TagTipo.EQUIPMENT, null, false));
+
+        TagInfo found = table.find("e2801160600002054c4b1a2f");
+
+        assertThat(found).isEqualTo(new TagInfo(5, TagTipo.EQUIPMENT, null, false));
+        assertThat(table.find("E2801160600002054C4B1A30")).isNull();
+        assertThat(table.find(null)).isNull();
+    }
+
+    @Test
+    void putReplacesExistingEntry() {
+        TagTable table = TagTable.forTags(16);
+        table.put("ABCD", tag(1));
+        table.put("abcd", tag(2));
+
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.find("ABCD")).isEqualTo(tag(2));
+    }
+
+    @Test
+    void unpackableEpcsGoToTheSideMap() {
+        TagTable table = TagTable.forTags(16);
+        table.put("tag-001", tag(1));
+
+        assertThat(table.find("TAG-001")).isEqualTo(tag(1));
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void fullTableRejectsNewKeysUntilGrown() {
+        TagTable table = TagTable.forTags(1);
+        int inserted = 0;
+        while (table.put(String.format("%024X", inserted), tag(inserted))) {
+            inserted++;
+        }
+        assertThat(inserted).isPositive();
+        assertThat(table.put(String.format("%024X", 0), tag(99))).as("existing key still replaceable").isTrue();
+
+        TagTable grown = table.grow();
+        assertThat(grown.put(String.format("%024X", inserted), tag(inserted))).isTrue();
+
+        assertThat(grown.size()).isEqualTo(inserted + 1);
+        assertThat(grown.find(String.format("%024X", 0))).isEqualTo(tag(99));
+        for (int i = 1; i <= inserted; i++) {
+            assertThat(grown.find(String.format("%024X", i))).isEqualTo(tag(i));
+        }
+    }
+
+    @Test
+    void forTagsSizesForExpectedTagsWithoutGrowing() {
+        TagTable table = TagTable.forTags(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(table.put(String.format("%024X", i), tag(i))).isTrue();
+        }
+        assertThat(table.size()).isEqualTo(1000);
+    }
+}